@@ -0,0 +1,40 @@
+package com.github.glhez.jtools.jar.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.glhez.jtools.jar.internal.JARFileLocator;
+import com.github.glhez.jtools.jar.internal.JARFileLocator.DeepMode;
+import com.github.glhez.jtools.jar.internal.JARInformation;
+
+/**
+ * Locate the synthetic archives with {@link JARFileLocator}, looking (or not) into WAR and EAR.
+ *
+ * @author gael.lhez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JARFileLocatorBenchmark {
+  @Param({ "DISABLED", "ALL" })
+  public DeepMode deepMode;
+
+  @Benchmark
+  public Set<JARInformation> locate(final SyntheticFileset fileset) {
+    return fileset.locate(deepMode);
+  }
+}
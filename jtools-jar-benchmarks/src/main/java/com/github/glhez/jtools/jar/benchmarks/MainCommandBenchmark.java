@@ -0,0 +1,42 @@
+package com.github.glhez.jtools.jar.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.glhez.jtools.jar.MainCommand;
+
+import picocli.CommandLine;
+
+/**
+ * Run the whole {@link MainCommand} pipeline (locate, process with all processors and write reports) on the synthetic
+ * archives.
+ *
+ * @author gael.lhez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MainCommandBenchmark {
+  @Param({ "1", "4" })
+  public int threads;
+
+  @Benchmark
+  public int run(final SyntheticFileset fileset) {
+    return new CommandLine(new MainCommand()).execute("-O", fileset.getOutputDirectory().toString(), "-D", "ALL",
+                                                      "-t", Integer.toString(threads), "--all", "--classes",
+                                                      "--packages", fileset.getArchiveDirectory().toString());
+  }
+}
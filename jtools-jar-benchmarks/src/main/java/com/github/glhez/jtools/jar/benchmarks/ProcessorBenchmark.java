@@ -0,0 +1,98 @@
+package com.github.glhez.jtools.jar.benchmarks;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.csv.CSVFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.glhez.jtools.jar.internal.ClassPathJARProcessor;
+import com.github.glhez.jtools.jar.internal.JARArchiveOpener;
+import com.github.glhez.jtools.jar.internal.JARFileScanner;
+import com.github.glhez.jtools.jar.internal.JARProcessor;
+import com.github.glhez.jtools.jar.internal.JNLPPermissionsJARProcessor;
+import com.github.glhez.jtools.jar.internal.JavaVersionJARProcessor;
+import com.github.glhez.jtools.jar.internal.ListJARProcessor;
+import com.github.glhez.jtools.jar.internal.MavenArtifactsJARProcessor;
+import com.github.glhez.jtools.jar.internal.ModuleJARProcessor;
+import com.github.glhez.jtools.jar.internal.MutableProcessorContext;
+import com.github.glhez.jtools.jar.internal.ReportFile;
+import com.github.glhez.jtools.jar.internal.SPIServiceJARProcessor;
+import com.github.glhez.jtools.jar.internal.ScanCache;
+import com.github.glhez.jtools.jar.internal.ShowClassJARProcessor;
+import com.github.glhez.jtools.jar.internal.ShowPackageJARProcessor;
+
+/**
+ * Process the synthetic archives with one {@link JARProcessor}, and the processors it depends on.
+ * <p>
+ * Each invocation is a full run of the processor (init, scan and finish, writing the report), using one thread.
+ *
+ * @author gael.lhez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessorBenchmark {
+  @Param({ "maven", "module", "services", "jnlp-permissions", "class-path", "java-version", "package", "class" })
+  public String processorName;
+
+  private JARProcessor processor;
+  private List<JARProcessor> processors;
+  private JARArchiveOpener opener;
+
+  @Setup(Level.Trial)
+  public void setUp(final SyntheticFileset fileset) {
+    final var format = CSVFormat.EXCEL;
+    final var output = fileset.getOutputDirectory();
+    final var maven = MavenArtifactsJARProcessor.newCSVMavenArtifactsJARProcessor(
+        ReportFile.newReportFile(format, output, "maven"));
+    final var module = new ModuleJARProcessor(Optional.of(ReportFile.newReportFile(format, output, "java-modules")),
+        maven);
+    final var report = ReportFile.newReportFile(format, output, processorName);
+    opener = new JARArchiveOpener(64L * 1024 * 1024);
+    processor = switch (processorName) {
+      case "maven" -> maven;
+      case "module" -> module;
+      case "services" -> new SPIServiceJARProcessor(report, module, true, Set.of(), false);
+      case "jnlp-permissions" -> new JNLPPermissionsJARProcessor(report);
+      case "class-path" -> new ClassPathJARProcessor(report);
+      case "java-version" -> new JavaVersionJARProcessor(report, maven, 0);
+      case "package" -> new ShowPackageJARProcessor(report, false, maven, module);
+      case "class" -> new ShowClassJARProcessor(report, false, maven, module, Optional.empty());
+      default -> throw new IllegalArgumentException("unknown processor: " + processorName);
+    };
+    if (processor == maven) {
+      processors = List.of(maven);
+    } else if (processor == module) {
+      processors = List.of(maven, module);
+    } else {
+      processors = List.of(maven, module, processor);
+    }
+  }
+
+  @Benchmark
+  public MutableProcessorContext process(final SyntheticFileset fileset) {
+    final var list = new ListJARProcessor(processors);
+    list.init();
+    final var scanner = new JARFileScanner(list, opener, 1, ScanCache.newScanCache(processors), false);
+    final var context = scanner.scan(fileset.getFiles());
+    list.finish();
+    return context;
+  }
+}
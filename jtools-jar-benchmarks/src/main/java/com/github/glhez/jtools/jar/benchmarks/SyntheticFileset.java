@@ -0,0 +1,145 @@
+package com.github.glhez.jtools.jar.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.github.glhez.jtools.jar.internal.JARFileLocator;
+import com.github.glhez.jtools.jar.internal.JARFileLocator.DeepMode;
+import com.github.glhez.jtools.jar.internal.JARInformation;
+
+/**
+ * A directory of synthetic archives (see {@link SyntheticJARGenerator}), created once per trial.
+ *
+ * @author gael.lhez
+ */
+@State(Scope.Benchmark)
+public class SyntheticFileset {
+  @Param({ "JAR", "WAR", "EAR" })
+  public Layout layout;
+
+  @Param({ "8" })
+  public int jars;
+
+  @Param({ "1000" })
+  public int classes;
+
+  @Param({ "3" })
+  public int packageDepth;
+
+  @Param({ "0", "2" })
+  public int versions;
+
+  private Path directory;
+  private Path outputDirectory;
+  private Set<JARInformation> files;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("jtools-jar-benchmarks-");
+    outputDirectory = Files.createDirectory(directory.resolve("reports"));
+    final var archives = Files.createDirectory(directory.resolve("archives"));
+    layout.write(new SyntheticJARGenerator(classes, packageDepth, versions), archives, jars);
+    files = locate(DeepMode.ALL);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (final var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Locate the archives.
+   *
+   * @param deepMode
+   *          how to scan WAR and EAR.
+   * @return the files found.
+   */
+  public Set<JARInformation> locate(final DeepMode deepMode) {
+    final var locator = new JARFileLocator(deepMode, List.of(), List.of(), List.of());
+    locator.addFileset(List.of(directory.resolve("archives")));
+    if (locator.hasErrors()) {
+      final var message = new StringBuilder("could not locate synthetic archives:");
+      locator.getErrors().forEach(error -> message.append(' ').append(error));
+      throw new IllegalStateException(message.toString());
+    }
+    return locator.getFiles();
+  }
+
+  /**
+   * The directory containing the archives.
+   *
+   * @return a directory.
+   */
+  public Path getArchiveDirectory() {
+    return directory.resolve("archives");
+  }
+
+  /**
+   * A directory for reports.
+   *
+   * @return a directory.
+   */
+  public Path getOutputDirectory() {
+    return outputDirectory;
+  }
+
+  /**
+   * The files found using {@link DeepMode#ALL}.
+   *
+   * @return files.
+   */
+  public Set<JARInformation> getFiles() {
+    return files;
+  }
+
+  public enum Layout {
+    /**
+     * JARs on the file system.
+     */
+    JAR {
+      @Override
+      void write(final SyntheticJARGenerator generator, final Path directory, final int jars) throws IOException {
+        for (var i = 0; i < jars; ++i) {
+          generator.writeJAR(directory.resolve("library-" + i + "-1.0.jar"), "library-" + i);
+        }
+      }
+    },
+    /**
+     * A WAR with compressed JARs, and a WAR with stored JARs.
+     */
+    WAR {
+      @Override
+      void write(final SyntheticJARGenerator generator, final Path directory, final int jars) throws IOException {
+        generator.writeWAR(directory.resolve("compressed.war"), jars / 2, false);
+        generator.writeWAR(directory.resolve("stored.war"), jars - jars / 2, true);
+      }
+    },
+    /**
+     * An EAR with JARs and a WAR.
+     */
+    EAR {
+      @Override
+      void write(final SyntheticJARGenerator generator, final Path directory, final int jars) throws IOException {
+        generator.writeEAR(directory.resolve("application.ear"), jars / 2, false);
+      }
+    };
+
+    abstract void write(SyntheticJARGenerator generator, Path directory, int jars) throws IOException;
+  }
+}
@@ -0,0 +1,225 @@
+package com.github.glhez.jtools.jar.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generate JAR, WAR and EAR for benchmarks.
+ * <p>
+ * The content only depends on the parameters: entries have a fixed time, and classes are named after their index. Each
+ * JAR contains:
+ * <ul>
+ * <li>a manifest, with an <code>Automatic-Module-Name</code> and a <code>Class-Path</code>.</li>
+ * <li>a <code>pom.properties</code>.</li>
+ * <li>a SPI service file.</li>
+ * <li><code>classes</code> valid (but empty) Java 8 classes, spread in packages of <code>packageDepth</code> levels.</li>
+ * <li>if <code>versions</code> is not 0, the first classes compiled for Java 9 and later, as a Multi-Release JAR.</li>
+ * </ul>
+ *
+ * @author gael.lhez
+ */
+public final class SyntheticJARGenerator {
+  private static final long ENTRY_TIME = 946_684_800_000L; // 2000-01-01
+  private static final int JAVA_8_MAJOR = 52;
+  private static final int CLASSES_PER_PACKAGE = 32;
+  private static final int VERSIONED_CLASSES = 16;
+  private static final String GROUP_ID = "com.github.glhez.synthetic";
+  private static final String SERVICE = "com.github.glhez.synthetic.Service";
+
+  private final int classes;
+  private final int packageDepth;
+  private final int versions;
+
+  /**
+   * Create a new generator.
+   *
+   * @param classes
+   *          number of classes per JAR.
+   * @param packageDepth
+   *          number of levels of packages (at least 1).
+   * @param versions
+   *          number of Multi-Release versions (0 for a standard JAR).
+   */
+  public SyntheticJARGenerator(final int classes, final int packageDepth, final int versions) {
+    if (classes < 0 || packageDepth < 1 || versions < 0) {
+      throw new IllegalArgumentException("invalid parameters: classes=" + classes + ", packageDepth=" + packageDepth
+          + ", versions=" + versions);
+    }
+    this.classes = classes;
+    this.packageDepth = packageDepth;
+    this.versions = versions;
+  }
+
+  /**
+   * Write a JAR.
+   *
+   * @param file
+   *          the JAR to create.
+   * @param artifactId
+   *          name of the artifact, used for its classes and GAV.
+   * @throws IOException
+   *           if the JAR could not be written.
+   */
+  public void writeJAR(final Path file, final String artifactId) throws IOException {
+    try (var os = Files.newOutputStream(file)) {
+      writeJAR(os, artifactId);
+    }
+  }
+
+  /**
+   * Write a WAR containing some JARs, in <code>WEB-INF/lib</code>.
+   *
+   * @param file
+   *          the WAR to create.
+   * @param jars
+   *          number of JARs.
+   * @param stored
+   *          if <code>true</code>, the JARs are stored rather than compressed.
+   * @throws IOException
+   *           if the WAR could not be written.
+   */
+  public void writeWAR(final Path file, final int jars, final boolean stored) throws IOException {
+    try (var zos = new ZipOutputStream(Files.newOutputStream(file))) {
+      for (var i = 0; i < jars; ++i) {
+        final var artifactId = "war-library-" + i;
+        putEntry(zos, "WEB-INF/lib/" + artifactId + "-1.0.jar", newJAR(artifactId), stored);
+      }
+    }
+  }
+
+  /**
+   * Write an EAR containing some JARs, in <code>lib</code>, and a WAR.
+   *
+   * @param file
+   *          the EAR to create.
+   * @param jars
+   *          number of JARs in the EAR, and in its WAR.
+   * @param stored
+   *          if <code>true</code>, the JARs and WAR are stored rather than compressed.
+   * @throws IOException
+   *           if the EAR could not be written.
+   */
+  public void writeEAR(final Path file, final int jars, final boolean stored) throws IOException {
+    final var war = Files.createTempFile("synthetic-", ".war");
+    try (var zos = new ZipOutputStream(Files.newOutputStream(file))) {
+      for (var i = 0; i < jars; ++i) {
+        final var artifactId = "ear-library-" + i;
+        putEntry(zos, "lib/" + artifactId + "-1.0.jar", newJAR(artifactId), stored);
+      }
+      writeWAR(war, jars, stored);
+      putEntry(zos, "web.war", Files.readAllBytes(war), stored);
+    } finally {
+      Files.deleteIfExists(war);
+    }
+  }
+
+  private byte[] newJAR(final String artifactId) throws IOException {
+    final var bos = new ByteArrayOutputStream();
+    writeJAR(bos, artifactId);
+    return bos.toByteArray();
+  }
+
+  private void writeJAR(final OutputStream os, final String artifactId) throws IOException {
+    final var rootPackage = "com/github/glhez/synthetic/" + artifactId.replace('-', '_');
+    try (var zos = new ZipOutputStream(os)) {
+      final var manifest = new StringBuilder();
+      manifest.append("Manifest-Version: 1.0\r\n");
+      manifest.append("Automatic-Module-Name: ").append(GROUP_ID).append('.').append(artifactId.replace("-", ""))
+              .append("\r\n");
+      manifest.append("Class-Path: ").append(artifactId).append("-dependency.jar\r\n");
+      if (versions > 0) {
+        manifest.append("Multi-Release: true\r\n");
+      }
+      manifest.append("\r\n");
+      putEntry(zos, "META-INF/MANIFEST.MF", manifest.toString().getBytes(StandardCharsets.UTF_8), false);
+
+      final var pom = "groupId=" + GROUP_ID + "\nartifactId=" + artifactId + "\nversion=1.0\n";
+      putEntry(zos, "META-INF/maven/" + GROUP_ID + "/" + artifactId + "/pom.properties",
+               pom.getBytes(StandardCharsets.UTF_8), false);
+
+      final var service = className(rootPackage, 0).replace('/', '.') + "\n";
+      putEntry(zos, "META-INF/services/" + SERVICE, service.getBytes(StandardCharsets.UTF_8), false);
+
+      for (var i = 0; i < classes; ++i) {
+        final var className = className(rootPackage, i);
+        putEntry(zos, className + ".class", newClass(className, JAVA_8_MAJOR), false);
+      }
+      for (var version = 1; version <= versions; ++version) {
+        final var feature = 8 + version;
+        for (var i = 0; i < Math.min(classes, VERSIONED_CLASSES); ++i) {
+          final var className = className(rootPackage, i);
+          putEntry(zos, "META-INF/versions/" + feature + "/" + className + ".class",
+                   newClass(className, JAVA_8_MAJOR + version), false);
+        }
+      }
+    }
+  }
+
+  /**
+   * Name of a class: classes are grouped by packages of {@link #CLASSES_PER_PACKAGE} classes, and each package is
+   * found under <code>packageDepth - 1</code> intermediate packages.
+   */
+  private String className(final String rootPackage, final int index) {
+    final var packageIndex = index / CLASSES_PER_PACKAGE;
+    final var name = new StringBuilder(rootPackage);
+    for (var level = packageDepth - 1; level > 0; --level) {
+      name.append("/p").append(packageIndex >> 2 * level & 3);
+    }
+    name.append("/p").append(packageIndex).append("/C").append(index);
+    return name.toString();
+  }
+
+  /**
+   * A minimal class file: a public class extending {@link Object}, without members.
+   */
+  private static byte[] newClass(final String className, final int major) throws IOException {
+    final var bos = new ByteArrayOutputStream();
+    try (var dos = new DataOutputStream(bos)) {
+      dos.writeInt(0xCAFEBABE);
+      dos.writeShort(0); // minor
+      dos.writeShort(major);
+      dos.writeShort(5); // constant pool count + 1
+      dos.writeByte(7); // #1 CONSTANT_Class
+      dos.writeShort(2);
+      dos.writeByte(1); // #2 CONSTANT_Utf8
+      dos.writeUTF(className);
+      dos.writeByte(7); // #3 CONSTANT_Class
+      dos.writeShort(4);
+      dos.writeByte(1); // #4 CONSTANT_Utf8
+      dos.writeUTF("java/lang/Object");
+      dos.writeShort(0x0021); // ACC_PUBLIC | ACC_SUPER
+      dos.writeShort(1); // this
+      dos.writeShort(3); // super
+      dos.writeShort(0); // interfaces
+      dos.writeShort(0); // fields
+      dos.writeShort(0); // methods
+      dos.writeShort(0); // attributes
+    }
+    return bos.toByteArray();
+  }
+
+  private static void putEntry(final ZipOutputStream zos, final String name, final byte[] content,
+      final boolean stored) throws IOException {
+    final var entry = new ZipEntry(name);
+    entry.setTime(ENTRY_TIME);
+    if (stored) {
+      final var crc = new CRC32();
+      crc.update(content);
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(content.length);
+      entry.setCompressedSize(content.length);
+      entry.setCrc(crc.getValue());
+    }
+    zos.putNextEntry(entry);
+    zos.write(content);
+    zos.closeEntry();
+  }
+}
@@ -0,0 +1,68 @@
+package com.github.glhez.jtools.jar;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.github.glhez.jtools.jar.internal.ClassIndex;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+/**
+ * Find the JARs containing a class or package, using the index written by <code>jtools-jar --class-index</code>.
+ * <p>
+ * The index is memory-mapped and searched in place, so a lookup does not depend on the number of indexed JARs.
+ *
+ * @author gael.lhez
+ */
+@Command(name = "lookup", mixinStandardHelpOptions = true,
+         description = "Find the JARs containing classes or packages, using an index written with --class-index.")
+@SuppressWarnings("java:S106")
+public class LookupCommand implements Runnable {
+
+  @Spec
+  private CommandSpec spec;
+
+  @Option(names = "--index", description = "Index to search. Default to jtools-jar.idx.", defaultValue = "jtools-jar.idx")
+  private Path index;
+
+  @Option(names = { "--package", "--packages" }, description = "Search packages rather than classes.")
+  private boolean packages;
+
+  @Parameters(arity = "1..*",
+              description = """
+                  Class or package to find, using '.' or '/'. A pattern may use '*' (any characters) and '?' (one
+                  character); a pattern ending by '*' is a prefix.
+                  """)
+  private List<String> patterns;
+
+  public LookupCommand() {
+    // options are set by picocli
+  }
+
+  @Override
+  public void run() {
+    final ClassIndex classIndex;
+    try {
+      classIndex = ClassIndex.open(index);
+    } catch (final IOException e) {
+      throw new ParameterException(spec.commandLine(), "Could not read index [" + index + "]: " + e.getMessage(), e);
+    }
+    for (final var pattern : patterns) {
+      final var matches = packages ? classIndex.findPackages(pattern) : classIndex.findClasses(pattern);
+      if (matches.isEmpty()) {
+        System.err.println("No " + (packages ? "package" : "class") + " matching [" + pattern + "]");
+      }
+      for (final var match : matches) {
+        for (final var jar : match.jars()) {
+          System.out.println(String.join("\t", match.name(), jar.name(), jar.gav(), jar.module()));
+        }
+      }
+    }
+  }
+}
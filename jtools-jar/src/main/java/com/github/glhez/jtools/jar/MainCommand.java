@@ -5,8 +5,13 @@ import static com.github.glhez.jtools.jar.internal.MavenArtifactsJARProcessor.ne
 import static com.github.glhez.jtools.jar.internal.MavenArtifactsJARProcessor.newShellScriptMavenArtifactsJARProcessor;
 import static java.util.stream.Collectors.joining;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -14,36 +19,63 @@ import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.jar.JarFile;
-import java.util.regex.Matcher;
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
-import java.util.zip.ZipFile;
 
 import org.apache.commons.csv.CSVFormat;
 
+import com.github.glhez.jtools.jar.internal.ClassIndexJARProcessor;
 import com.github.glhez.jtools.jar.internal.ClassPathJARProcessor;
+import com.github.glhez.jtools.jar.internal.ClassReferenceJARProcessor;
+import com.github.glhez.jtools.jar.internal.DaemonProtocol;
+import com.github.glhez.jtools.jar.internal.JARArchiveOpener;
 import com.github.glhez.jtools.jar.internal.JARFileLocator;
 import com.github.glhez.jtools.jar.internal.JARFileLocator.DeepMode;
-import com.github.glhez.jtools.jar.internal.JARInformation;
+import com.github.glhez.jtools.jar.internal.JARFileScanner;
 import com.github.glhez.jtools.jar.internal.JARProcessor;
 import com.github.glhez.jtools.jar.internal.JNLPPermissionsJARProcessor;
 import com.github.glhez.jtools.jar.internal.JavaVersionJARProcessor;
 import com.github.glhez.jtools.jar.internal.ListJARProcessor;
 import com.github.glhez.jtools.jar.internal.MavenArtifactsJARProcessor;
+import com.github.glhez.jtools.jar.internal.MissingClassJARProcessor;
 import com.github.glhez.jtools.jar.internal.ModuleJARProcessor;
 import com.github.glhez.jtools.jar.internal.MutableProcessorContext;
+import com.github.glhez.jtools.jar.internal.ProcessorMetrics;
+import com.github.glhez.jtools.jar.internal.ProgressReporter;
 import com.github.glhez.jtools.jar.internal.ReportFile;
+import com.github.glhez.jtools.jar.internal.ScanCache;
 import com.github.glhez.jtools.jar.internal.SPIServiceJARProcessor;
 import com.github.glhez.jtools.jar.internal.ShowClassJARProcessor;
 import com.github.glhez.jtools.jar.internal.ShowPackageJARProcessor;
+import com.github.glhez.jtools.jar.internal.UnusedJARJARProcessor;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.ExitCode;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
 
-@Command(mixinStandardHelpOptions = true)
+@Command(mixinStandardHelpOptions = true, subcommands = { ServeCommand.class, LookupCommand.class })
 @SuppressWarnings("java:S106")
-public class MainCommand implements Runnable {
+public class MainCommand implements Callable<Integer> {
+  private static final int SLOWEST_JARS = 10;
+
+  /**
+   * State of the daemon running this command, or <code>null</code>.
+   */
+  private final ServeCommand.State daemon;
+  /**
+   * Directory of the client of the daemon, used to resolve relative paths, or <code>null</code>.
+   */
+  private final Path workingDirectory;
+
+  @Spec
+  private CommandSpec spec;
+
+  @Option(names = "--server",
+          description = "Send the command to a daemon started with 'serve' and listening on this socket; paths are resolved against the current directory.")
+  private Path server;
 
   @Option(names = { "-O", "--output-directory" },
           description = "Output directory when using reports. Created if it does not exists.")
@@ -87,6 +119,70 @@ public class MainCommand implements Runnable {
               """)
   private List<String> deepFilter;
 
+  @Option(names = "--deep-memory-limit",
+          description = """
+              Compressed JAR found in EAR/WAR are inflated in memory if their size (in MiB) is less than this limit,
+              otherwise they are extracted to a temporary file. Stored JAR are always read in place. Default to 64.
+              """)
+  private Integer deepMemoryLimit;
+
+  @Option(names = { "-t", "--threads" },
+          description = "Number of JAR processed in parallel. Default to the number of available processors.")
+  private Integer threads;
+
+  @Option(names = "--split-entries",
+          description = """
+              JAR having more entries than this number are split in ranges visited in parallel, up to --threads ranges
+              per JAR; 0 to never split. Default to 20000.
+              """)
+  private Integer splitEntries;
+
+  @Option(names = "--no-deduplicate",
+          description = "Process each JAR, even if an identical JAR (same name and content) was found in another EAR/WAR.")
+  private boolean noDeduplicate;
+
+  @Option(names = "--cache",
+          description = """
+              Keep the result of processors in this file. JAR whose size and modification time did not change since the
+              last run are not processed again. Ignored when run by the daemon, which keeps these results in memory.
+              """)
+  private Path cacheFile;
+
+  @Option(names = "--cache-hash",
+          description = "Apply --cache; also compare the SHA-256 of files, which are then fully read.")
+  private boolean cacheHash;
+
+  @Option(names = "--report-compression",
+          description = "Compress reports (NONE or GZIP); compression is done on a dedicated thread per report.")
+  private ReportFile.Compression reportCompression;
+
+  @Option(names = "--report-shard-rows",
+          description = "Split reports in numbered shards of at most this number of rows, each starting with the header.")
+  private Long reportShardRows;
+
+  @Option(names = "--report-shard-size",
+          description = "Split reports in numbered shards of about this size (in MiB, before compression), each starting with the header.")
+  private Long reportShardSize;
+
+  private ReportFile.Options reportOptions;
+
+  @Option(names = { "-v", "--verbose" }, description = "Log each file on the standard error.")
+  private boolean verbose;
+
+  @Option(names = "--verbose-log", description = "Apply --verbose; log each file in this file rather than the standard error.")
+  private Path verboseLog;
+
+  @Option(names = "--progress-interval",
+          description = "Minimal time (in milliseconds) between two progress reports. Default to 1000.")
+  private Integer progressInterval;
+
+  @Option(names = "--metrics",
+          description = """
+              Measure the time spent by each processor on each JAR, the number of entries they visited and of bytes they
+              inflated. Write them to metrics.csv, and print the slowest JAR and processors.
+              """)
+  private boolean metricsReport;
+
   /*
    * processor options
    */
@@ -107,6 +203,20 @@ public class MainCommand implements Runnable {
               """)
   private boolean mavenShellScriptExport;
 
+  @Option(names = "--maven-repository",
+          description = """
+              Find the GAV of JAR without pom.properties in this local Maven repository (eg: ~/.m2/repository), using
+              their SHA-1. The SHA-1 of artifacts is read from their .jar.sha1 file, or computed using --threads.
+              """)
+  private Path mavenRepository;
+
+  @Option(names = "--maven-repository-index",
+          description = """
+              Apply --maven-repository; keep the SHA-1 of artifacts in this file, so that only new or changed artifacts
+              are read by the next run. Default to jtools-jar-maven.idx.
+              """)
+  private Path mavenRepositoryIndex;
+
   @Option(names = { "--jnlp-permission", "--jnlp-permissions" },
           description = "Check for permissions codebase for JNLP")
   private boolean manifestPermissionProcessor;
@@ -129,6 +239,10 @@ public class MainCommand implements Runnable {
   @Option(names = "--java-version", description = "Determine which Java version was used to compile source code (read in bytecode).")
   private boolean javaVersionProcessor;
 
+  @Option(names = "--java-version-sample",
+          description = "Apply --java-version; stop reading the classes of a JAR once its first N classes have the same version (0 to read all classes).")
+  private Integer javaVersionSample;
+
   @Option(names = { "--module", "--modules" }, description = "Scan JAR for Java module-info or Automatic-Module-Name.")
   private boolean moduleProcessor;
 
@@ -145,89 +259,169 @@ public class MainCommand implements Runnable {
   @Option(names = { "--duplicate-class", "--duplicate-classes" }, description = "Show duplicate classes in JAR.")
   private boolean showOnlyDuplicateClasses;
 
+  @Option(names = "--duplicate-class-digest",
+          description = "Apply --class; compare the content of duplicate classes having the same CRC-32 and size using a SHA-256.")
+  private boolean duplicateClassDigest;
+
+  @Option(names = { "--missing-class", "--missing-classes" },
+          description = """
+              Read the constant pool of each class and report the classes it references that are found neither in the
+              JARs nor in the modules of the JDK running jtools-jar.
+              """)
+  private boolean missingClassProcessor;
+
+  @Option(names = { "--unused-jar", "--unused-jars" },
+          description = """
+              Report JAR whose classes are never referenced, directly or not, from the Main-Class of JAR, the
+              implementations of services (as found by --service) or the classes matching --unused-jar-root.
+              Classes only used by reflection are not seen.
+              """)
+  private boolean unusedJARProcessor;
+
+  @Option(names = "--unused-jar-root",
+          description = """
+              Apply --unused-jar; classes whose name matches this pattern are always used (eg: servlets).
+              The pattern use java.util.regex.Pattern and can be added several times.
+              """)
+  private List<String> unusedJARRoots;
+
+  @Option(names = "--class-index",
+          description = """
+              Write an index of the JARs containing each class and package to this file, to be queried using 'lookup'.
+              Unless --cache is used, the results are kept in the same file suffixed by .cache so that only changed JAR
+              are processed when the index is updated.
+              """)
+  private Path classIndex;
+
   private CSVFormat format;
 
+  private Optional<ProcessorMetrics> metrics;
+
+  public MainCommand() {
+    this(null, null);
+  }
+
+  MainCommand(final ServeCommand.State daemon, final Path workingDirectory) {
+    this.daemon = daemon;
+    this.workingDirectory = workingDirectory;
+  }
+
   public static void main(final String[] args) {
-    new picocli.CommandLine(new com.github.glhez.jtools.jar.MainCommand()).execute(args);
+    final var commandLine = new picocli.CommandLine(new com.github.glhez.jtools.jar.MainCommand());
+    System.exit(commandLine.setCaseInsensitiveEnumValuesAllowed(true).execute(args));
   }
 
   @Override
-  public void run() {
+  public Integer call() {
+    if (null != server) {
+      return sendToServer();
+    }
     if (!canRun()) {
-      return;
+      return ExitCode.OK;
     }
 
-    final var processor = buildProcessor();
+    final var opener = new JARArchiveOpener(deepMemoryLimit * 1024L * 1024L);
+    final var processor = buildProcessor(opener);
 
-    final var multiReleaseVersionPattern = Pattern.compile("^META-INF/versions/(\\d+)/$");
+    final var locator = new JARFileLocator(deepScan, includes, excludes, deepFilter,
+        null == daemon ? Optional.empty() : Optional.of(daemon.getListings()));
 
-    try (final var locator = new JARFileLocator(deepScan, includes, excludes, deepFilter)) {
-      locator.addFileset(fileset);
-      if (locator.hasErrors()) {
-        System.err.println("Some file or directories could not be fetched:");
-        locator.getErrors().forEach(System.err::println);
-      }
-      final var files = locator.getFiles();
-
-      final var ctx = new MutableProcessorContext();
-      processor.init();
-
-      var fileIndex = 1;
-      final var fileCount = files.size();
-      for (final JARInformation file : files) {
-        System.out.printf("Processing file: [%6.2f%%] %s%n", 100 * (fileIndex / (double) fileCount), file.archivePath);
-        ctx.setSource(file);
-
-        int[] features = null;
-        try (final var jarFile = new JarFile(file.tmpPath.toFile(), false)) {
-          /*
-           * look up for multi release version now
-           */
-          if (jarFile.isMultiRelease()) {
-            ctx.setSource(file.asMultiRelease());
-
-            /* @formatter:off */
-            features = jarFile.stream()
-                   .map(entry -> multiReleaseVersionPattern.matcher(entry.getName()))
-                   .filter(Matcher::matches)
-                   .map(matcher -> matcher.group(1))
-                   .mapToInt(Integer::parseInt)
-                   .toArray();
-            /* @formatter:on */
-            if (features.length > 0) {
-              System.out.printf("Found %d version for Multi-Release JARs%n", features.length);
-            }
-          }
-
-          processor.process(ctx, jarFile);
-        } catch (final NullPointerException e) {
-          throw e; // rethrow: this is probably OUR error.
-        } catch (final Exception e) {
-          ctx.addError(e);
-        }
+    processor.init();
+    final var cache = newScanCache(processor.getProcessors());
+    final var ctx = scan(processor, opener, cache, consumer -> locator.addFileset(fileset, consumer));
+    if (locator.hasErrors()) {
+      System.err.println("Some file or directories could not be fetched:");
+      locator.getErrors().forEach(System.err::println);
+    }
+    if (cache.isPersistent()) {
+      System.out.printf("Cache: %d JAR restored, %d JAR processed%n", cache.getHits(), cache.getMisses());
+    }
+    if (cache.isStored()) {
+      saveCache(cache);
+    }
+    dumpErrors(ctx);
+    processor.finish();
+    if (metrics.isPresent()) {
+      writeMetrics(metrics.get());
+    }
+    return ExitCode.OK;
+  }
 
-        /*
-         * now use a multi release jar
-         */
-        if (features != null && features.length > 0) {
-          for (final int feature : features) {
-            ctx.setSource(file.asMultiReleaseVersion(feature));
-
-            final var version = Runtime.Version.parse(Integer.toString(feature));
-            try (final var jarFile = new JarFile(file.tmpPath.toFile(), false, ZipFile.OPEN_READ, version)) {
-              processor.process(ctx, jarFile);
-            } catch (final NullPointerException e) {
-              throw e; // rethrow: this is probably OUR error.
-            } catch (final Exception e) {
-              ctx.addError(e);
-            }
-          }
-        }
+  private void writeMetrics(final ProcessorMetrics metrics) {
+    try {
+      metrics.write(newReportFile("metrics"));
+    } catch (final IOException e) {
+      System.err.println("Could not write metrics: " + e.getMessage());
+    }
+    metrics.printSummary(System.err, SLOWEST_JARS);
+  }
+
+  private MutableProcessorContext scan(final ListJARProcessor processor, final JARArchiveOpener opener,
+      final ScanCache cache, final JARFileScanner.FileSource files) {
+    if (null == verboseLog) {
+      return newScanner(processor, opener, cache, verbose ? Optional.of(System.err) : Optional.empty()).scan(files);
+    }
+    final PrintStream log;
+    try {
+      log = new PrintStream(Files.newOutputStream(verboseLog), false, StandardCharsets.UTF_8);
+    } catch (final IOException e) {
+      System.err.println("Could not write verbose log [" + verboseLog + "]: " + e.getMessage());
+      return newScanner(processor, opener, cache, Optional.of(System.err)).scan(files);
+    }
+    try (log) {
+      return newScanner(processor, opener, cache, Optional.of(log)).scan(files);
+    }
+  }
 
-        ++fileIndex;
+  private JARFileScanner newScanner(final ListJARProcessor processor, final JARArchiveOpener opener,
+      final ScanCache cache, final Optional<PrintStream> log) {
+    final var progress = new ProgressReporter(System.out, Duration.ofMillis(progressInterval), log);
+    return new JARFileScanner(processor, opener, threads, cache, !noDeduplicate, progress);
+  }
+
+  /**
+   * Send the arguments, except --server, to the daemon and print its output.
+   *
+   * @return the exit code of the daemon command.
+   */
+  private int sendToServer() {
+    final List<String> arguments = new ArrayList<>();
+    final var it = spec.commandLine().getParseResult().originalArgs().iterator();
+    while (it.hasNext()) {
+      final var arg = it.next();
+      if ("--server".equals(arg) && it.hasNext()) {
+        it.next();
+      } else if (!arg.startsWith("--server=")) {
+        arguments.add(arg);
       }
-      dumpErrors(ctx);
-      processor.finish();
+    }
+    try {
+      final var code = DaemonProtocol.send(server, Paths.get(""), arguments, System.out, System.err);
+      if (code != ExitCode.OK) {
+        System.err.println("Daemon command failed with code " + code);
+      }
+      return code;
+    } catch (final IOException e) {
+      System.err.println("Could not reach daemon [" + server + "]: " + e.getMessage());
+      return ExitCode.SOFTWARE;
+    }
+  }
+
+  /**
+   * Cache of the JARs processed by a previous run: either the results of previous requests of the daemon, or a file.
+   */
+  private ScanCache newScanCache(final List<JARProcessor> processors) {
+    if (null != daemon) {
+      return daemon.newScanCache(fileset, cacheHash, processors);
+    }
+    return null == cacheFile ? ScanCache.newScanCache(processors) : ScanCache.load(cacheFile, cacheHash, processors);
+  }
+
+  private void saveCache(final ScanCache cache) {
+    try {
+      cache.save();
+    } catch (final IOException e) {
+      System.err.println("Could not write cache [" + cacheFile + "]: " + e.getMessage());
     }
   }
 
@@ -237,12 +431,33 @@ public class MainCommand implements Runnable {
     final List<String> problems = new ArrayList<>();
     if (!mavenShellScriptExport && !mavenProcessor && !moduleProcessor && !serviceProcessor
         && !manifestPermissionProcessor && !manifestClassPathProcessor && !javaVersionProcessor && !showPackage
-        && !showOnlyDuplicatePackage && !showClasses && !showOnlyDuplicateClasses) {
+        && !showOnlyDuplicatePackage && !showClasses && !showOnlyDuplicateClasses && !missingClassProcessor
+        && !unusedJARProcessor && null == classIndex) {
       problems.add("no processors registered");
     }
     if (fileset.isEmpty()) {
       problems.add("no files registered");
     }
+    if (threads < 1) {
+      problems.add("invalid number of threads");
+    }
+    if (splitEntries < 0) {
+      problems.add("invalid number of entries per range");
+    }
+    if (deepMemoryLimit < 0) {
+      problems.add("invalid deep memory limit");
+    }
+    if (progressInterval < 0) {
+      problems.add("invalid progress interval");
+    }
+    if (reportShardRows < 0 || reportShardSize < 0) {
+      problems.add("invalid report shard limit");
+    } else {
+      reportOptions = new ReportFile.Options(reportCompression, reportShardRows, reportShardSize * 1024L * 1024L);
+    }
+    if (javaVersionSample < 0) {
+      problems.add("invalid Java version sample");
+    }
 
     if (!problems.isEmpty()) {
       System.err.println(problems.stream().collect(joining(" and ")) + "; use --help for usage.");
@@ -260,6 +475,41 @@ public class MainCommand implements Runnable {
     serviceFiltersEnabled = serviceFilters != null;
     serviceFilters = Objects.requireNonNullElseGet(serviceFilters, Collections::emptySet);
     outputDirectory = Objects.requireNonNullElseGet(outputDirectory, () -> Paths.get(""));
+    threads = Objects.requireNonNullElseGet(threads, () -> Runtime.getRuntime().availableProcessors());
+    splitEntries = Objects.requireNonNullElse(splitEntries, 20000);
+    deepMemoryLimit = Objects.requireNonNullElse(deepMemoryLimit, 64);
+    progressInterval = Objects.requireNonNullElse(progressInterval, 1000);
+    reportCompression = Objects.requireNonNullElse(reportCompression, ReportFile.Compression.NONE);
+    reportShardRows = Objects.requireNonNullElse(reportShardRows, 0L);
+    reportShardSize = Objects.requireNonNullElse(reportShardSize, 0L);
+    if (null != workingDirectory) {
+      fileset = fileset.stream().map(workingDirectory::resolve).toList();
+      outputDirectory = workingDirectory.resolve(outputDirectory);
+      verboseLog = null == verboseLog ? null : workingDirectory.resolve(verboseLog);
+      classIndex = null == classIndex ? null : workingDirectory.resolve(classIndex);
+      mavenRepository = null == mavenRepository ? null : workingDirectory.resolve(mavenRepository);
+      mavenRepositoryIndex = null == mavenRepositoryIndex ? null : workingDirectory.resolve(mavenRepositoryIndex);
+    }
+    if (null != mavenRepository && null == mavenRepositoryIndex) {
+      mavenRepositoryIndex = null == workingDirectory ? Paths.get("jtools-jar-maven.idx")
+          : workingDirectory.resolve("jtools-jar-maven.idx");
+    }
+    unusedJARRoots = Objects.requireNonNullElseGet(unusedJARRoots, Collections::emptyList);
+    if (!unusedJARRoots.isEmpty()) {
+      unusedJARProcessor = true;
+    }
+    if (null != javaVersionSample) {
+      javaVersionProcessor = true;
+    } else {
+      javaVersionSample = 0;
+    }
+    if (null == cacheFile && null == daemon) {
+      if (null != classIndex) {
+        cacheFile = classIndex.resolveSibling(classIndex.getFileName() + ".cache");
+      } else if (cacheHash) {
+        cacheFile = Paths.get("jtools-jar.cache");
+      }
+    }
 
     if (allProcessor) {
       if (!mavenShellScriptExport && !mavenProcessor) {
@@ -284,6 +534,9 @@ public class MainCommand implements Runnable {
     if (showOnlyDuplicatePackage) {
       showPackage = true;
     }
+    if (showOnlyDuplicateClasses || duplicateClassDigest) {
+      showClasses = true;
+    }
 
     if (null == csvSeparator) {
       final var locale = Locale.getDefault();
@@ -296,38 +549,38 @@ public class MainCommand implements Runnable {
     format = CSVFormat.EXCEL.builder().setDelimiter(csvSeparator).get();
   }
 
-  private ListJARProcessor buildProcessor() {
+  private ListJARProcessor buildProcessor(final JARArchiveOpener opener) {
     final List<JARProcessor> processors = new ArrayList<>();
 
-    final var addModuleProcessor = moduleProcessor || serviceProcessor || showPackage || showClasses;
-
+    // processors without report are only run if another processor uses them (see ListJARProcessor::schedule).
     final MavenArtifactsJARProcessor mavenArtifactsJARProcessor;
     if (mavenShellScriptExport) {
-      mavenArtifactsJARProcessor = newShellScriptMavenArtifactsJARProcessor();
+      mavenArtifactsJARProcessor = withRepository(newShellScriptMavenArtifactsJARProcessor(), opener);
     } else if (mavenProcessor) {
-      mavenArtifactsJARProcessor = newCSVMavenArtifactsJARProcessor(newReportFile("maven"));
-    } else if (addModuleProcessor) {
-      mavenArtifactsJARProcessor = newMavenArtifactsJARProcessor();
+      mavenArtifactsJARProcessor = withRepository(newCSVMavenArtifactsJARProcessor(newReportFile("maven")), opener);
     } else {
-      mavenArtifactsJARProcessor = null;
+      mavenArtifactsJARProcessor = withRepository(newMavenArtifactsJARProcessor(), opener);
     }
     add(processors, mavenArtifactsJARProcessor);
 
-    final ModuleJARProcessor moduleJARProcessor;
-    if (moduleProcessor) {
-      moduleJARProcessor = new ModuleJARProcessor(Optional.of(newReportFile("java-modules")),
-          mavenArtifactsJARProcessor);
-    } else if (addModuleProcessor) {
-      moduleJARProcessor = new ModuleJARProcessor(Optional.empty(), mavenArtifactsJARProcessor);
-    } else {
-      moduleJARProcessor = null;
-    }
+    final var moduleJARProcessor = new ModuleJARProcessor(
+        moduleProcessor ? Optional.of(newReportFile("java-modules")) : Optional.empty(), mavenArtifactsJARProcessor);
     add(processors, moduleJARProcessor);
 
+    // the roots of --unused-jar are the implementations of all services, whatever --service reports.
+    var allServicesJARProcessor = new SPIServiceJARProcessor(Optional.empty(), moduleJARProcessor, true, Set.of(),
+        false);
     if (serviceProcessor) {
       final var reportFile = newReportFile(serviceModuleOnly ? "services-module-only" : "services");
-      add(processors, new SPIServiceJARProcessor(reportFile, moduleJARProcessor, !serviceFiltersEnabled, serviceFilters,
-          serviceModuleOnly));
+      final var serviceJARProcessor = new SPIServiceJARProcessor(reportFile, moduleJARProcessor, !serviceFiltersEnabled,
+          serviceFilters, serviceModuleOnly);
+      add(processors, serviceJARProcessor);
+      if (!serviceFiltersEnabled && !serviceModuleOnly) {
+        allServicesJARProcessor = serviceJARProcessor;
+      }
+    }
+    if (!processors.contains(allServicesJARProcessor)) {
+      add(processors, allServicesJARProcessor);
     }
 
     if (manifestPermissionProcessor) {
@@ -337,7 +590,8 @@ public class MainCommand implements Runnable {
       add(processors, new ClassPathJARProcessor(newReportFile("class-path")));
     }
     if (javaVersionProcessor) {
-      add(processors, new JavaVersionJARProcessor(newReportFile("java-version"), mavenArtifactsJARProcessor));
+      add(processors, new JavaVersionJARProcessor(newReportFile("java-version"), mavenArtifactsJARProcessor,
+          javaVersionSample));
     }
     if (showPackage) {
       add(processors, new ShowPackageJARProcessor(
@@ -346,14 +600,41 @@ public class MainCommand implements Runnable {
     }
     if (showClasses) {
       add(processors, new ShowClassJARProcessor(newReportFile(showOnlyDuplicateClasses ? "duplicate-class" : "class"),
-          showOnlyDuplicateClasses, mavenArtifactsJARProcessor, moduleJARProcessor));
+          showOnlyDuplicateClasses, mavenArtifactsJARProcessor, moduleJARProcessor,
+          duplicateClassDigest ? Optional.of(opener) : Optional.empty()));
+    }
+    final var classReferenceJARProcessor = new ClassReferenceJARProcessor();
+    add(processors, classReferenceJARProcessor);
+    if (missingClassProcessor) {
+      add(processors, new MissingClassJARProcessor(newReportFile("missing-class"), classReferenceJARProcessor,
+          mavenArtifactsJARProcessor));
     }
+    if (unusedJARProcessor) {
+      add(processors, new UnusedJARJARProcessor(newReportFile("unused-jar"), classReferenceJARProcessor,
+          allServicesJARProcessor, mavenArtifactsJARProcessor, unusedJARRoots.stream().map(Pattern::compile).toList()));
+    }
+    if (null != classIndex) {
+      add(processors, new ClassIndexJARProcessor(classIndex, mavenArtifactsJARProcessor, moduleJARProcessor));
+    }
+
+    final var scheduled = ListJARProcessor.schedule(processors);
+    metrics = metricsReport ? Optional.of(new ProcessorMetrics(scheduled)) : Optional.empty();
+    return new ListJARProcessor(scheduled, metrics, splitEntries, threads);
+  }
 
-    return new ListJARProcessor(processors);
+  /**
+   * Use --maven-repository, if any.
+   */
+  private MavenArtifactsJARProcessor withRepository(final MavenArtifactsJARProcessor processor,
+      final JARArchiveOpener opener) {
+    if (null == mavenRepository) {
+      return processor;
+    }
+    return processor.withRepository(mavenRepository, mavenRepositoryIndex, threads, opener);
   }
 
   private ReportFile newReportFile(final String fileName) {
-    return ReportFile.newReportFile(format, outputDirectory, fileName);
+    return ReportFile.newReportFile(format, outputDirectory, fileName, reportOptions);
   }
 
   private void add(final List<JARProcessor> processors, final JARProcessor processor) {
@@ -0,0 +1,145 @@
+package com.github.glhez.jtools.jar;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import com.github.glhez.jtools.jar.internal.ArchiveListings;
+import com.github.glhez.jtools.jar.internal.DaemonProtocol;
+import com.github.glhez.jtools.jar.internal.JARProcessor;
+import com.github.glhez.jtools.jar.internal.ScanCache;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * A daemon answering the requests of <code>jtools-jar --server</code> over a Unix domain socket.
+ * <p>
+ * Requests are executed one at a time, as a cold run would, except that the files found in EAR/WAR and the results of
+ * processors are kept in memory between requests: they are used again while the size and modification time of their
+ * files did not change.
+ * <p>
+ * Results are kept for the JAR found by the last request on each fileset, for the last {@value State#MAX_FILESETS}
+ * filesets.
+ *
+ * @author gael.lhez
+ */
+@Command(name = "serve", mixinStandardHelpOptions = true,
+         description = "Start a daemon keeping JAR found and processor results in memory, for use with --server.")
+@SuppressWarnings("java:S106")
+public class ServeCommand implements Runnable {
+
+  @Option(names = "--socket",
+          description = "Unix domain socket to listen to. Default to jtools-jar-<user>.sock in the temporary directory.")
+  private Path socket;
+
+  public ServeCommand() {
+    // options are set by picocli
+  }
+
+  @Override
+  public void run() {
+    socket = Objects.requireNonNullElseGet(socket, DaemonProtocol::defaultSocket);
+    final var state = new State();
+    try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      Files.deleteIfExists(socket);
+      server.bind(UnixDomainSocketAddress.of(socket));
+      Runtime.getRuntime().addShutdownHook(new Thread(this::deleteSocket));
+      System.out.println("Listening on [" + socket + "]");
+      while (server.isOpen()) {
+        try (var channel = server.accept()) {
+          serve(state, channel);
+        } catch (final IOException e) {
+          System.err.println("Could not answer request: " + e.getMessage());
+        }
+      }
+    } catch (final IOException e) {
+      System.err.println("Could not listen on [" + socket + "]: " + e.getMessage());
+    }
+  }
+
+  private void deleteSocket() {
+    try {
+      Files.deleteIfExists(socket);
+    } catch (@SuppressWarnings("unused") final IOException e) {
+      // ignored
+    }
+  }
+
+  /**
+   * Execute a request, sending the standard output and error of the command to the client.
+   */
+  private static void serve(final State state, final SocketChannel channel) throws IOException {
+    final var request = DaemonProtocol.readRequest(channel);
+    final var response = new DaemonProtocol.Response(channel);
+    final var start = System.nanoTime();
+    final var stdout = System.out;
+    final var stderr = System.err;
+    final int code;
+    try (var out = new PrintStream(new BufferedOutputStream(response.getOut()), true, StandardCharsets.UTF_8);
+        var err = new PrintStream(new BufferedOutputStream(response.getErr()), true, StandardCharsets.UTF_8)) {
+      System.setOut(out);
+      System.setErr(err);
+      code = new CommandLine(new MainCommand(state, request.workingDirectory())).setCaseInsensitiveEnumValuesAllowed(true)
+                                                                                 .execute(request.arguments()
+                                                                                                 .toArray(String[]::new));
+    } finally {
+      System.setOut(stdout);
+      System.setErr(stderr);
+    }
+    response.exit(code);
+    System.out.printf("Answered [%s] in %d ms (%d archives listed, %d filesets cached)%n",
+                      String.join(" ", request.arguments()), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                      state.listings.size(), state.caches.size());
+  }
+
+  /**
+   * What is kept between requests.
+   */
+  static final class State {
+    static final int MAX_FILESETS = 8;
+
+    private final ArchiveListings listings;
+    /**
+     * Cache of the last request on each fileset, least recently used first.
+     */
+    private final Map<List<Path>, ScanCache> caches;
+
+    State() {
+      this.listings = new ArchiveListings();
+      this.caches = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<List<Path>, ScanCache> eldest) {
+          return size() > MAX_FILESETS;
+        }
+      };
+    }
+
+    ArchiveListings getListings() {
+      return listings;
+    }
+
+    /**
+     * Create the cache of a request, starting with the results of the previous request on the same fileset.
+     */
+    ScanCache newScanCache(final List<Path> fileset, final boolean hash, final List<JARProcessor> processors) {
+      final var previous = caches.getOrDefault(fileset, ScanCache.newScanCache(List.of()));
+      final var cache = ScanCache.newScanCache(previous, hash, processors);
+      caches.put(List.copyOf(fileset), cache);
+      return cache;
+    }
+  }
+}
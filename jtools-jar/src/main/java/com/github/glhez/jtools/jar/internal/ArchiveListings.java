@@ -0,0 +1,67 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The files found in EAR/WAR by {@link JARFileLocator}, kept between runs.
+ * <p>
+ * A listing is used again while the size and modification time of its archive did not change.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author gael.lhez
+ */
+public class ArchiveListings {
+  private final Map<Path, Listing> listings;
+
+  public ArchiveListings() {
+    this.listings = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Get the files of an archive.
+   *
+   * @param archive
+   *          the real path of an archive.
+   * @param lister
+   *          list the files, if the archive is unknown or changed.
+   * @return the files of the archive.
+   * @throws IOException
+   *           if the archive could not be listed.
+   */
+  List<Path> list(final Path archive, final Lister lister) throws IOException {
+    Objects.requireNonNull(archive, "archive");
+    final var size = Files.size(archive);
+    final var lastModified = Files.getLastModifiedTime(archive).toMillis();
+    final var listing = listings.get(archive);
+    if (null != listing && listing.size == size && listing.lastModified == lastModified) {
+      return listing.files;
+    }
+    final var files = List.copyOf(lister.list(archive));
+    listings.put(archive, new Listing(size, lastModified, files));
+    return files;
+  }
+
+  /**
+   * Number of archives whose listing is kept.
+   *
+   * @return a number of archives.
+   */
+  public int size() {
+    return listings.size();
+  }
+
+  @FunctionalInterface
+  interface Lister {
+    List<Path> list(Path archive) throws IOException;
+  }
+
+  private record Listing(long size, long lastModified, List<Path> files) {
+  }
+}
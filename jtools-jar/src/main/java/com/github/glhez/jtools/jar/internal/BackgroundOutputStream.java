@@ -0,0 +1,188 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A stream writing to another stream on a dedicated thread, for example to compress a report while it is rendered.
+ * <p>
+ * Bytes are buffered, and full buffers are given to the thread through a bounded queue: the writer only waits when the
+ * thread is late by several buffers. Failures of the thread are thrown by the next write, or by {@link #close()}.
+ *
+ * @author gael.lhez
+ */
+class BackgroundOutputStream extends OutputStream {
+  private static final int QUEUED_BUFFERS = 4;
+  private static final byte[] END = new byte[0];
+
+  private final int bufferSize;
+  private final BlockingQueue<byte[]> queue;
+  private final Thread thread;
+  private volatile IOException failure;
+  private byte[] buffer;
+  private int length;
+  private boolean closed;
+
+  /**
+   * Create a new stream.
+   *
+   * @param target
+   *          the stream written by the thread, closed with this stream.
+   * @param bufferSize
+   *          size of each buffer.
+   * @param name
+   *          name of the thread.
+   */
+  BackgroundOutputStream(final OutputStream target, final int bufferSize, final String name) {
+    Objects.requireNonNull(target, "target");
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("invalid buffer size: " + bufferSize);
+    }
+    this.bufferSize = bufferSize;
+    this.queue = new ArrayBlockingQueue<>(QUEUED_BUFFERS);
+    this.buffer = new byte[bufferSize];
+    this.thread = new Thread(() -> drain(target), name);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Write the buffers until the stream is closed; once a write failed, buffers are discarded so that the writer is
+   * never blocked.
+   */
+  private void drain(final OutputStream target) {
+    try (target) {
+      for (var b = queue.take(); b != END; b = queue.take()) {
+        write(target, b);
+      }
+    } catch (final IOException e) {
+      fail(e);
+    } catch (@SuppressWarnings("unused") final InterruptedException e) {
+      fail(new InterruptedIOException("interrupted while writing"));
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void write(final OutputStream target, final byte[] b) {
+    if (null == failure) {
+      try {
+        target.write(b);
+      } catch (final IOException e) {
+        fail(e);
+      }
+    }
+  }
+
+  private void fail(final IOException e) {
+    if (null == failure) {
+      failure = e;
+    }
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    ensureOpen();
+    if (length == buffer.length) {
+      flushBuffer();
+    }
+    buffer[length++] = (byte) b;
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, b.length);
+    ensureOpen();
+    var offset = off;
+    var remaining = len;
+    while (remaining > 0) {
+      if (length == buffer.length) {
+        flushBuffer();
+      }
+      final var n = Math.min(remaining, buffer.length - length);
+      System.arraycopy(b, offset, buffer, length, n);
+      length += n;
+      offset += n;
+      remaining -= n;
+    }
+  }
+
+  /**
+   * Give the buffered bytes to the thread; this does not wait for them to be written.
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    if (length > 0) {
+      flushBuffer();
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    put(length == buffer.length ? buffer : Arrays.copyOf(buffer, length));
+    buffer = new byte[bufferSize];
+    length = 0;
+  }
+
+  private void put(final byte[] b) throws IOException {
+    checkFailure();
+    enqueue(b);
+  }
+
+  private void enqueue(final byte[] b) throws InterruptedIOException {
+    try {
+      queue.put(b);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      final var ioe = new InterruptedIOException("interrupted while writing");
+      ioe.initCause(e);
+      throw ioe;
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    checkFailure();
+  }
+
+  private void checkFailure() throws IOException {
+    final var e = failure;
+    if (null != e) {
+      throw new IOException("Could not write: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Give the remaining bytes to the thread, then wait for the thread to write them and close the target stream.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    try {
+      if (length > 0 && null == failure) {
+        flushBuffer();
+      }
+    } finally {
+      closed = true;
+      buffer = null;
+      enqueue(END);
+    }
+    try {
+      thread.join();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      final var ioe = new InterruptedIOException("interrupted while closing");
+      ioe.initCause(e);
+      throw ioe;
+    }
+    checkFailure();
+  }
+}
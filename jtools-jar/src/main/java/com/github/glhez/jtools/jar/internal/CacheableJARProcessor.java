@@ -0,0 +1,58 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A {@link JARProcessor} whose result per JAR can be stored in a {@link ScanCache}.
+ * <p>
+ * Restoring a result must produce the same state than processing the JAR.
+ *
+ * @author gael.lhez
+ */
+public interface CacheableJARProcessor extends JARProcessor {
+  /**
+   * Name of the results in the cache.
+   * <p>
+   * The name must include any option changing the result of a JAR, so that a cache created with other options is not
+   * used.
+   *
+   * @return a name.
+   */
+  String getCacheName();
+
+  /**
+   * Version of the format used by {@link #writeCache(JARInformation, DataOutput)}.
+   * <p>
+   * This version must be changed whenever the format or the result of the processor changes: results of another
+   * version are ignored.
+   *
+   * @return a version.
+   */
+  int getCacheVersion();
+
+  /**
+   * Write the result of some JAR, which may be empty.
+   *
+   * @param jarInformation
+   *          a processed JAR.
+   * @param out
+   *          target.
+   * @throws IOException
+   *           if the result could not be written.
+   */
+  void writeCache(JARInformation jarInformation, DataOutput out) throws IOException;
+
+  /**
+   * Read the result of some JAR, as written by {@link #writeCache(JARInformation, DataOutput)}.
+   *
+   * @param jarInformation
+   *          the JAR being restored.
+   * @param in
+   *          source.
+   * @throws IOException
+   *           if the result could not be read.
+   */
+  void readCache(JARInformation jarInformation, DataInput in) throws IOException;
+}
@@ -0,0 +1,407 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * A memory-mapped index of the JARs containing each class and package.
+ * <p>
+ * The file contains, after a header:
+ * <ol>
+ * <li>the JARs: offset of their name, GAV and module in the string pool.</li>
+ * <li>the classes, sorted by name (UTF-8 bytes): offset of their name, position and number of their JARs.</li>
+ * <li>the packages, in the same format.</li>
+ * <li>the JARs of each class and package, as indexes in the JARs.</li>
+ * <li>the string pool: each string is stored as its length followed by its UTF-8 bytes.</li>
+ * </ol>
+ * Lookups are binary searches in the mapped file: nothing is read until needed.
+ *
+ * @author gael.lhez
+ */
+public class ClassIndex {
+  private static final int MAGIC = 0x4A544A49;
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 7 * Integer.BYTES;
+  private static final int RECORD_SIZE = 3 * Integer.BYTES;
+
+  private final ByteBuffer buffer;
+  private final int jarCount;
+  private final int classCount;
+  private final int packageCount;
+  private final int jarsOffset;
+  private final int classesOffset;
+  private final int packagesOffset;
+  private final int listsOffset;
+  private final int stringsOffset;
+
+  private ClassIndex(final ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("not a class index");
+    }
+    final var version = buffer.getInt(4);
+    if (version != FORMAT_VERSION) {
+      throw new IOException("unsupported class index version " + version);
+    }
+    this.jarCount = buffer.getInt(8);
+    this.classCount = buffer.getInt(12);
+    this.packageCount = buffer.getInt(16);
+    final var listLength = buffer.getInt(20);
+    final var stringsLength = buffer.getInt(24);
+    this.jarsOffset = HEADER_SIZE;
+    this.classesOffset = jarsOffset + jarCount * RECORD_SIZE;
+    this.packagesOffset = classesOffset + classCount * RECORD_SIZE;
+    this.listsOffset = packagesOffset + packageCount * RECORD_SIZE;
+    this.stringsOffset = listsOffset + listLength * Integer.BYTES;
+    if (stringsOffset + stringsLength != buffer.capacity()) {
+      throw new IOException("truncated class index");
+    }
+  }
+
+  /**
+   * Map an index.
+   *
+   * @param file
+   *          the index.
+   * @return an index, which remains usable once the file is closed.
+   * @throws IOException
+   *           if the index could not be read.
+   */
+  public static ClassIndex open(final Path file) throws IOException {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new ClassIndex(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  public int getJARCount() {
+    return jarCount;
+  }
+
+  public int getClassCount() {
+    return classCount;
+  }
+
+  /**
+   * Find classes.
+   *
+   * @param pattern
+   *          a class name (using <code>.</code> or <code>/</code>), or a pattern where <code>*</code> matches any
+   *          characters and <code>?</code> one character. A pattern ending by its only <code>*</code> is a prefix.
+   * @return the classes, sorted by name.
+   */
+  public List<Match> findClasses(final String pattern) {
+    return find(classesOffset, classCount, pattern);
+  }
+
+  /**
+   * Find packages.
+   *
+   * @param pattern
+   *          a package name, or a pattern (see {@link #findClasses(String)}).
+   * @return the packages, sorted by name.
+   */
+  public List<Match> findPackages(final String pattern) {
+    return find(packagesOffset, packageCount, pattern);
+  }
+
+  private List<Match> find(final int table, final int count, final String pattern) {
+    final var normalized = pattern.replace('/', '.');
+    final var wildcard = IntStream.range(0, normalized.length())
+                                  .filter(i -> normalized.charAt(i) == '*' || normalized.charAt(i) == '?')
+                                  .findFirst()
+                                  .orElse(-1);
+    final var prefix = (wildcard < 0 ? normalized : normalized.substring(0, wildcard))
+        .getBytes(StandardCharsets.UTF_8);
+    final Pattern regex;
+    if (wildcard < 0) {
+      regex = null;
+    } else if (wildcard == normalized.length() - 1 && normalized.charAt(wildcard) == '*') {
+      regex = null; // prefix
+    } else {
+      regex = toRegex(normalized);
+    }
+
+    final List<Match> matches = new ArrayList<>();
+    for (var i = lowerBound(table, count, prefix); i < count; ++i) {
+      final var record = table + i * RECORD_SIZE;
+      final var name = buffer.getInt(record);
+      if (!startsWith(name, prefix)) {
+        break;
+      }
+      if (wildcard < 0 && getStringLength(name) != prefix.length) {
+        break; // exact lookup
+      }
+      final var value = getString(name);
+      if (null == regex || regex.matcher(value).matches()) {
+        matches.add(new Match(value, getJARs(buffer.getInt(record + 4), buffer.getInt(record + 8))));
+      }
+    }
+    return matches;
+  }
+
+  private static Pattern toRegex(final String pattern) {
+    final var regex = new StringBuilder();
+    var literal = new StringBuilder();
+    for (final var c : pattern.toCharArray()) {
+      if (c == '*' || c == '?') {
+        regex.append(Pattern.quote(literal.toString())).append(c == '*' ? ".*" : ".");
+        literal = new StringBuilder();
+      } else {
+        literal.append(c);
+      }
+    }
+    return Pattern.compile(regex.append(Pattern.quote(literal.toString())).toString());
+  }
+
+  private List<IndexedJAR> getJARs(final int position, final int count) {
+    final List<IndexedJAR> jars = new ArrayList<>(count);
+    for (var i = 0; i < count; ++i) {
+      final var record = jarsOffset + buffer.getInt(listsOffset + (position + i) * Integer.BYTES) * RECORD_SIZE;
+      jars.add(new IndexedJAR(getString(buffer.getInt(record)), getString(buffer.getInt(record + 4)),
+          getString(buffer.getInt(record + 8))));
+    }
+    return jars;
+  }
+
+  /**
+   * First record whose name is greater than or equal to <code>key</code>.
+   */
+  private int lowerBound(final int table, final int count, final byte[] key) {
+    var low = 0;
+    var high = count;
+    while (low < high) {
+      final var mid = low + high >>> 1;
+      if (compare(buffer.getInt(table + mid * RECORD_SIZE), key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int compare(final int string, final byte[] key) {
+    final var length = getStringLength(string);
+    final var start = stringsOffset + string + Integer.BYTES;
+    final var n = Math.min(length, key.length);
+    for (var i = 0; i < n; ++i) {
+      final var c = Byte.compareUnsigned(buffer.get(start + i), key[i]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return Integer.compare(length, key.length);
+  }
+
+  private boolean startsWith(final int string, final byte[] prefix) {
+    final var length = getStringLength(string);
+    if (length < prefix.length) {
+      return false;
+    }
+    final var start = stringsOffset + string + Integer.BYTES;
+    for (var i = 0; i < prefix.length; ++i) {
+      if (buffer.get(start + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int getStringLength(final int string) {
+    return buffer.getInt(stringsOffset + string);
+  }
+
+  private String getString(final int string) {
+    final var bytes = new byte[getStringLength(string)];
+    buffer.get(stringsOffset + string + Integer.BYTES, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Write an index.
+   *
+   * @param file
+   *          the index, replaced once written.
+   * @param jars
+   *          the JARs.
+   * @param classesPerJAR
+   *          the id of the classes of each JAR.
+   * @param classNames
+   *          the classes (using <code>.</code>).
+   * @throws IOException
+   *           if the index could not be written.
+   */
+  public static void write(final Path file, final List<IndexedJAR> jars, final List<int[]> classesPerJAR,
+      final StringDictionary classNames) throws IOException {
+    Objects.requireNonNull(file, "file");
+    final var strings = new StringPool();
+    final List<byte[]> names = new ArrayList<>();
+    for (var id = 0; id < classNames.size(); ++id) {
+      names.add(classNames.get(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // JARs of each class, and of each package
+    final List<TreeSet<Integer>> jarsPerClass = new ArrayList<>();
+    names.forEach(name -> jarsPerClass.add(new TreeSet<>()));
+    final Map<String, TreeSet<Integer>> jarsPerPackage = new HashMap<>();
+    for (var jar = 0; jar < classesPerJAR.size(); ++jar) {
+      for (final var id : classesPerJAR.get(jar)) {
+        jarsPerClass.get(id).add(jar);
+        final var className = classNames.get(id);
+        final var index = className.lastIndexOf('.');
+        if (index > 0) {
+          jarsPerPackage.computeIfAbsent(className.substring(0, index), key -> new TreeSet<>()).add(jar);
+        }
+      }
+    }
+    final Comparator<byte[]> byBytes = Arrays::compareUnsigned;
+    final var classOrder = IntStream.range(0, names.size())
+                                    .filter(id -> !jarsPerClass.get(id).isEmpty())
+                                    .boxed()
+                                    .sorted(Comparator.comparing(names::get, byBytes))
+                                    .toList();
+    final var packages = jarsPerPackage.keySet()
+                                       .stream()
+                                       .map(p -> p.getBytes(StandardCharsets.UTF_8))
+                                       .sorted(byBytes)
+                                       .toList();
+
+    final var parent = file.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    final var temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    try {
+      try (var os = Files.newOutputStream(temp); var out = new DataOutputStream(new BufferedOutputStream(os))) {
+        final var listLength = classOrder.stream().mapToInt(id -> jarsPerClass.get(id).size()).sum()
+            + jarsPerPackage.values().stream().mapToInt(TreeSet::size).sum();
+        final var jarRecords = new int[3 * jars.size()];
+        for (var i = 0; i < jars.size(); ++i) {
+          final var jar = jars.get(i);
+          jarRecords[3 * i] = strings.add(jar.name.getBytes(StandardCharsets.UTF_8));
+          jarRecords[3 * i + 1] = strings.add(jar.gav.getBytes(StandardCharsets.UTF_8));
+          jarRecords[3 * i + 2] = strings.add(jar.module.getBytes(StandardCharsets.UTF_8));
+        }
+        final List<TreeSet<Integer>> lists = new ArrayList<>();
+        final var classRecords = new int[3 * classOrder.size()];
+        var position = 0;
+        for (var i = 0; i < classOrder.size(); ++i) {
+          final var id = classOrder.get(i);
+          classRecords[3 * i] = strings.add(names.get(id));
+          classRecords[3 * i + 1] = position;
+          classRecords[3 * i + 2] = jarsPerClass.get(id).size();
+          position += jarsPerClass.get(id).size();
+          lists.add(jarsPerClass.get(id));
+        }
+        final var packageRecords = new int[3 * packages.size()];
+        for (var i = 0; i < packages.size(); ++i) {
+          final var name = packages.get(i);
+          final var packageJars = jarsPerPackage.get(new String(name, StandardCharsets.UTF_8));
+          packageRecords[3 * i] = strings.add(name);
+          packageRecords[3 * i + 1] = position;
+          packageRecords[3 * i + 2] = packageJars.size();
+          position += packageJars.size();
+          lists.add(packageJars);
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(jars.size());
+        out.writeInt(classOrder.size());
+        out.writeInt(packages.size());
+        out.writeInt(listLength);
+        out.writeInt(strings.size());
+        writeInts(out, jarRecords);
+        writeInts(out, classRecords);
+        writeInts(out, packageRecords);
+        for (final var list : lists) {
+          for (final var jar : list) {
+            out.writeInt(jar);
+          }
+        }
+        strings.writeTo(out);
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static void writeInts(final DataOutputStream out, final int[] values) throws IOException {
+    for (final var value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  /**
+   * Strings of the index, each stored once.
+   */
+  private static class StringPool {
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(data);
+    private final Map<ByteBuffer, Integer> offsets = new HashMap<>();
+
+    int add(final byte[] value) throws IOException {
+      final var key = ByteBuffer.wrap(value);
+      final var offset = offsets.get(key);
+      if (null != offset) {
+        return offset;
+      }
+      final var newOffset = out.size();
+      out.writeInt(value.length);
+      out.write(value);
+      offsets.put(key, newOffset);
+      return newOffset;
+    }
+
+    int size() {
+      return out.size();
+    }
+
+    void writeTo(final DataOutputStream target) throws IOException {
+      data.writeTo(target);
+    }
+  }
+
+  /**
+   * A JAR of the index.
+   *
+   * @param name
+   *          the JAR, as shown in reports.
+   * @param gav
+   *          its Maven artifact, or an empty string.
+   * @param module
+   *          its Java module, or an empty string.
+   */
+  public record IndexedJAR(String name, String gav, String module) {
+  }
+
+  /**
+   * A class or package found in the index.
+   *
+   * @param name
+   *          name of the class or package.
+   * @param jars
+   *          JARs containing it.
+   */
+  public record Match(String name, List<IndexedJAR> jars) {
+  }
+}
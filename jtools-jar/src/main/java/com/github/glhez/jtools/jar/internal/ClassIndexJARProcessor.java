@@ -0,0 +1,159 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Write a {@link ClassIndex} of the classes found in JARs, to be queried using <code>jtools-jar lookup</code>.
+ *
+ * @author gael.lhez
+ */
+public class ClassIndexJARProcessor implements CacheableJARProcessor {
+  private static final int CACHE_VERSION = 1;
+  private static final String CLASS_EXTENSION = ".class";
+
+  private final Path indexFile;
+  private final MavenArtifactsJARProcessor mavenArtifactsJARProcessor;
+  private final ModuleJARProcessor moduleJARProcessor;
+  private final StringDictionary classNames;
+  private final Map<JARInformation, int[]> classesPerJAR;
+
+  public ClassIndexJARProcessor(final Path indexFile, final MavenArtifactsJARProcessor mavenArtifactsJARProcessor,
+      final ModuleJARProcessor moduleJARProcessor) {
+    this.indexFile = Objects.requireNonNull(indexFile, "indexFile");
+    this.mavenArtifactsJARProcessor = Objects.requireNonNull(mavenArtifactsJARProcessor, "mavenArtifactsJARProcessor");
+    this.moduleJARProcessor = Objects.requireNonNull(moduleJARProcessor, "moduleJARProcessor");
+    this.classNames = new StringDictionary();
+    this.classesPerJAR = new ConcurrentSkipListMap<>();
+  }
+
+  @Override
+  public List<JARProcessor> getDependencies() {
+    return List.of(mavenArtifactsJARProcessor, moduleJARProcessor);
+  }
+
+  @Override
+  public void init() {
+    classNames.clear();
+    classesPerJAR.clear();
+  }
+
+  @Override
+  public void process(final ProcessorContext context, final JARArchive archive) {
+    // entries are visited
+  }
+
+  @Override
+  public List<EntrySelector> getEntrySelectors() {
+    return List.of(ShowPackageJARProcessor.CLASS_FILE_SELECTOR);
+  }
+
+  @Override
+  public JAREntryVisitor newEntryVisitor(final ProcessorContext context, final JARArchive archive) {
+    return new IndexVisitor(context);
+  }
+
+  private class IndexVisitor implements RangeJAREntryVisitor {
+    private final ProcessorContext context;
+    private final List<String> classes = new ArrayList<>();
+
+    IndexVisitor(final ProcessorContext context) {
+      this.context = context;
+    }
+
+    @Override
+    public void visitEntry(final JAREntryContent entry) {
+      if (ShowPackageJARProcessor.isClassFileEntry(entry.getEntry())) {
+        classes.add(toClassName(entry.getName()));
+      }
+    }
+
+    @Override
+    public RangeJAREntryVisitor newRangeVisitor(final ProcessorContext rangeContext) {
+      return new IndexVisitor(rangeContext);
+    }
+
+    @Override
+    public void merge(final RangeJAREntryVisitor range) {
+      classes.addAll(((IndexVisitor) range).classes);
+    }
+
+    @Override
+    public void visitEnd() {
+      classesPerJAR.put(context.getJARInformation(), classNames.intern(classes));
+    }
+  }
+
+  /**
+   * Convert <code>com/example/Foo$Bar.class</code> to <code>com.example.Foo$Bar</code>.
+   */
+  private static String toClassName(final String entryName) {
+    final var name = entryName.endsWith(CLASS_EXTENSION)
+        ? entryName.substring(0, entryName.length() - CLASS_EXTENSION.length())
+        : entryName;
+    return name.replace('/', '.');
+  }
+
+  /**
+   * Versions have the classes of the base version: only the base version is indexed.
+   */
+  @Override
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    // nothing to do
+  }
+
+  @Override
+  public String getCacheName() {
+    return "class-index";
+  }
+
+  @Override
+  public int getCacheVersion() {
+    return CACHE_VERSION;
+  }
+
+  @Override
+  public void writeCache(final JARInformation jarInformation, final DataOutput out) throws IOException {
+    final var classes = classesPerJAR.get(jarInformation);
+    out.writeBoolean(null != classes);
+    if (null != classes) {
+      ScanCache.writeStrings(out, Arrays.stream(classes).mapToObj(classNames::get).toList());
+    }
+  }
+
+  @Override
+  public void readCache(final JARInformation jarInformation, final DataInput in) throws IOException {
+    if (in.readBoolean()) {
+      classesPerJAR.put(jarInformation, classNames.intern(ScanCache.readStrings(in)));
+    }
+  }
+
+  @Override
+  public void finish() {
+    final List<ClassIndex.IndexedJAR> jars = new ArrayList<>(classesPerJAR.size());
+    for (final var jar : classesPerJAR.keySet()) {
+      jars.add(new ClassIndex.IndexedJAR(jar.toString(), mavenArtifactsJARProcessor.getGAVAsString(jar),
+          moduleJARProcessor.getModuleDescriptorAsString(jar)));
+    }
+    try {
+      ClassIndex.write(indexFile, jars, new ArrayList<>(classesPerJAR.values()), classNames);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Could not write class index to [" + indexFile + "]", e);
+    }
+  }
+
+  @Override
+  public Optional<String> getReport() {
+    return Optional.of("[Class index] to [" + indexFile + "]");
+  }
+}
@@ -1,38 +1,39 @@
 package com.github.glhez.jtools.jar.internal;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.jar.Attributes.Name;
-import java.util.jar.JarFile;
-import java.util.jar.Manifest;
 import java.util.regex.Pattern;
 
 import org.apache.commons.csv.CSVPrinter;
 
-public class ClassPathJARProcessor extends ReportFileJARProcessor {
+public class ClassPathJARProcessor extends StreamingReportFileJARProcessor implements CacheableJARProcessor {
+  private static final int CACHE_VERSION = 1;
   private static final Pattern CLASS_PATH_SPLITTER = Pattern.compile("\\s+");
-  private final Map<JARInformation, Optional<List<String>>> classPathEntries;
+  private final ConcurrentNavigableMap<JARInformation, Optional<List<String>>> classPathEntries;
 
   public ClassPathJARProcessor(final ReportFile reportFile) {
     super("Class Path", reportFile);
-    this.classPathEntries = new LinkedHashMap<>();
+    this.classPathEntries = new ConcurrentSkipListMap<>();
   }
 
   @Override
-  public void init() {
+  protected void reset() {
     classPathEntries.clear();
   }
 
   @Override
-  public void process(final ProcessorContext context, final JarFile jarFile) {
+  public void process(final ProcessorContext context, final JARArchive archive) {
     try {
-      final Optional<String> classPath = Optional.ofNullable(jarFile.getManifest())
-                                                 .map(Manifest::getMainAttributes)
+      final Optional<String> classPath = Optional.ofNullable(archive.getManifest())
+                                                 .map(JARManifest::getMainAttributes)
                                                  .map(attr -> attr.getValue(Name.CLASS_PATH));
       classPathEntries.put(context.getJARInformation(), classPath.map(CLASS_PATH_SPLITTER::split).map(Arrays::asList));
     } catch (final IOException e) {
@@ -41,9 +42,53 @@ public class ClassPathJARProcessor extends ReportFileJARProcessor {
   }
 
   @Override
-  protected void finish(final CSVPrinter printer) throws IOException {
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    final var classPath = classPathEntries.get(version.getBase());
+    if (null != classPath) {
+      classPathEntries.put(context.getJARInformation(), classPath);
+    }
+  }
+
+  @Override
+  public String getCacheName() {
+    return "class-path";
+  }
+
+  @Override
+  public int getCacheVersion() {
+    return CACHE_VERSION;
+  }
+
+  @Override
+  public void writeCache(final JARInformation jarInformation, final DataOutput out) throws IOException {
+    final var classPath = classPathEntries.get(jarInformation);
+    out.writeBoolean(null != classPath);
+    if (null != classPath) {
+      out.writeBoolean(classPath.isPresent());
+      if (classPath.isPresent()) {
+        ScanCache.writeStrings(out, classPath.get());
+      }
+    }
+  }
+
+  @Override
+  public void readCache(final JARInformation jarInformation, final DataInput in) throws IOException {
+    if (in.readBoolean()) {
+      final Optional<List<String>> classPath = in.readBoolean() ? Optional.of(ScanCache.readStrings(in))
+          : Optional.empty();
+      classPathEntries.put(jarInformation, classPath);
+    }
+  }
+
+  @Override
+  protected void printHeader(final CSVPrinter printer) throws IOException {
     printer.printRecord("File", "Class-Path Status", "Entry");
-    for (final var entry : classPathEntries.entrySet()) {
+  }
+
+  @Override
+  protected void printRows(final CSVPrinter printer, final JARInformation file) throws IOException {
+    final var entries = classPathEntries.subMap(file, true, lastVersion(file), true);
+    for (final var entry : entries.entrySet()) {
       final var jar = entry.getKey();
       final var classPath = entry.getValue();
       final var cp = classPath.orElseGet(Collections::emptyList);
@@ -58,6 +103,7 @@ public class ClassPathJARProcessor extends ReportFileJARProcessor {
         }
       }
     }
+    entries.clear();
   }
 
 }
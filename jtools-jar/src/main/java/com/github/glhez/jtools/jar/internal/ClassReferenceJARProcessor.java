@@ -0,0 +1,336 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Collect the classes of each JAR, and the classes each of them references, for use by other processors.
+ * <p>
+ * References are the <code>CONSTANT_Class</code> entries of the constant pool of each class: only the constant pool is
+ * read, and the rest of the class file is not inflated. Classes are identified by the id of their name, in internal
+ * form (<code>java/lang/String</code>).
+ *
+ * @author gael.lhez
+ */
+public class ClassReferenceJARProcessor implements CacheableJARProcessor {
+  private static final int CACHE_VERSION = 1;
+  private static final int JAVA_CLASS_MAGIC = 0xCAFEBABE;
+  private static final String CLASS_EXTENSION = ".class";
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_FLOAT = 4;
+  private static final int CONSTANT_LONG = 5;
+  private static final int CONSTANT_DOUBLE = 6;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELDREF = 9;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+  private static final int CONSTANT_METHOD_HANDLE = 15;
+  private static final int CONSTANT_METHOD_TYPE = 16;
+  private static final int CONSTANT_DYNAMIC = 17;
+  private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+  private static final int CONSTANT_MODULE = 19;
+  private static final int CONSTANT_PACKAGE = 20;
+
+  private final StringDictionary classNames;
+  private final Map<JARInformation, ClassReferences> referencesPerJAR;
+
+  public ClassReferenceJARProcessor() {
+    this.classNames = new StringDictionary();
+    this.referencesPerJAR = new ConcurrentSkipListMap<>();
+  }
+
+  @Override
+  public void init() {
+    classNames.clear();
+    referencesPerJAR.clear();
+  }
+
+  @Override
+  public void process(final ProcessorContext context, final JARArchive archive) {
+    // entries are visited
+  }
+
+  @Override
+  public List<EntrySelector> getEntrySelectors() {
+    return List.of(ShowPackageJARProcessor.CLASS_FILE_SELECTOR);
+  }
+
+  @Override
+  public JAREntryVisitor newEntryVisitor(final ProcessorContext context, final JARArchive archive) {
+    return new ReferenceVisitor(context);
+  }
+
+  private class ReferenceVisitor implements RangeJAREntryVisitor {
+    private final ProcessorContext context;
+    private final List<String> classes = new ArrayList<>();
+    private final List<String> references = new ArrayList<>();
+    private final ConstantPoolReader reader = new ConstantPoolReader();
+    private int[] offsets = new int[64];
+
+    ReferenceVisitor(final ProcessorContext context) {
+      this.context = context;
+    }
+
+    @Override
+    public void visitEntry(final JAREntryContent entry) {
+      if (ShowPackageJARProcessor.isClassFileEntry(entry.getEntry())) {
+        final var name = entry.getName();
+        try {
+          references.addAll(reader.readClassReferences(entry.newInputStream()));
+        } catch (final IOException | java.lang.SecurityException e) {
+          context.addError("Unable to parse JarEntry: " + name + ": " + e.getMessage());
+        }
+        classes.add(name.substring(0, name.length() - CLASS_EXTENSION.length()));
+        if (classes.size() == offsets.length) {
+          offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+        }
+        offsets[classes.size()] = references.size();
+      }
+    }
+
+    @Override
+    public RangeJAREntryVisitor newRangeVisitor(final ProcessorContext rangeContext) {
+      return new ReferenceVisitor(rangeContext);
+    }
+
+    @Override
+    public void merge(final RangeJAREntryVisitor range) {
+      final var other = (ReferenceVisitor) range;
+      final var n = classes.size() + other.classes.size();
+      if (n >= offsets.length) {
+        offsets = Arrays.copyOf(offsets, Math.max(n + 1, 2 * offsets.length));
+      }
+      for (var i = 1; i <= other.classes.size(); ++i) {
+        offsets[classes.size() + i] = references.size() + other.offsets[i];
+      }
+      classes.addAll(other.classes);
+      references.addAll(other.references);
+    }
+
+    @Override
+    public void visitEnd() {
+      referencesPerJAR.put(context.getJARInformation(), new ClassReferences(classNames.intern(classes),
+          Arrays.copyOf(offsets, classes.size() + 1), classNames.intern(references)));
+    }
+  }
+
+  /**
+   * Versions override classes of the base version: only the base version is read.
+   */
+  @Override
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    // nothing to do
+  }
+
+  @Override
+  public void finish() {
+    // results are used by other processors
+  }
+
+  @Override
+  public boolean hasOutput() {
+    return false;
+  }
+
+  @Override
+  public String getCacheName() {
+    return "class-reference";
+  }
+
+  @Override
+  public int getCacheVersion() {
+    return CACHE_VERSION;
+  }
+
+  @Override
+  public void writeCache(final JARInformation jarInformation, final DataOutput out) throws IOException {
+    final var references = referencesPerJAR.get(jarInformation);
+    out.writeBoolean(null != references);
+    if (null != references) {
+      ScanCache.writeStrings(out, Arrays.stream(references.classes).mapToObj(classNames::get).toList());
+      for (var i = 0; i < references.classes.length; ++i) {
+        ScanCache.writeStrings(out, Arrays.stream(references.references, references.offsets[i],
+                                                  references.offsets[i + 1])
+                                          .mapToObj(classNames::get)
+                                          .toList());
+      }
+    }
+  }
+
+  @Override
+  public void readCache(final JARInformation jarInformation, final DataInput in) throws IOException {
+    if (in.readBoolean()) {
+      final var classes = classNames.intern(ScanCache.readStrings(in));
+      final var offsets = new int[classes.length + 1];
+      final List<String> references = new ArrayList<>();
+      for (var i = 0; i < classes.length; ++i) {
+        references.addAll(ScanCache.readStrings(in));
+        offsets[i + 1] = references.size();
+      }
+      referencesPerJAR.put(jarInformation, new ClassReferences(classes, offsets, classNames.intern(references)));
+    }
+  }
+
+  /**
+   * The classes and references of each JAR, by JAR.
+   */
+  Map<JARInformation, ClassReferences> getReferences() {
+    return referencesPerJAR;
+  }
+
+  /**
+   * Number of class names: ids are between 0 (inclusive) and this number (exclusive).
+   */
+  int getClassCount() {
+    return classNames.size();
+  }
+
+  /**
+   * Name of a class, in internal form.
+   */
+  String getClassName(final int id) {
+    return classNames.get(id);
+  }
+
+  /**
+   * Id of a class.
+   *
+   * @param internalName
+   *          name of the class, in internal form.
+   * @return an id, or -1 if the class was neither found nor referenced.
+   */
+  int findClassId(final String internalName) {
+    return classNames.find(internalName);
+  }
+
+  /**
+   * Classes of a JAR, and the classes each of them references.
+   *
+   * @param classes
+   *          id of the classes.
+   * @param offsets
+   *          position of the references of each class in <code>references</code>, and their end.
+   * @param references
+   *          id of referenced classes.
+   */
+  record ClassReferences(int[] classes, int[] offsets, int[] references) {
+  }
+
+  /**
+   * Read the constant pool of class files, reusing its buffers between classes.
+   */
+  static class ConstantPoolReader {
+    private byte[] utf8 = new byte[8192];
+    private int[] utf8Offsets = new int[256];
+    private int[] utf8Lengths = new int[256];
+    /**
+     * Tag of each entry of the current class, 0 for the second entry of a Long or a Double.
+     */
+    private byte[] tags = new byte[256];
+    private int[] classIndexes = new int[64];
+
+    /**
+     * Read the classes referenced by a class file, stopping after the constant pool.
+     *
+     * @return the distinct referenced classes in internal form, excluding arrays of primitive types.
+     */
+    List<String> readClassReferences(final InputStream is) throws IOException {
+      final var in = new DataInputStream(is);
+      if (in.readInt() != JAVA_CLASS_MAGIC) {
+        throw new IOException("not a class file");
+      }
+      in.readInt(); // minor and major version
+      final var count = in.readUnsignedShort();
+      if (tags.length <= count) {
+        utf8Offsets = new int[count + 1];
+        utf8Lengths = new int[count + 1];
+        tags = new byte[count + 1];
+      }
+      var utf8Length = 0;
+      var classCount = 0;
+      for (var i = 1; i < count; ++i) {
+        final var tag = in.readUnsignedByte();
+        tags[i] = (byte) tag;
+        switch (tag) {
+          case CONSTANT_UTF8 -> {
+            final var length = in.readUnsignedShort();
+            if (utf8.length < utf8Length + length) {
+              utf8 = Arrays.copyOf(utf8, Math.max(2 * utf8.length, utf8Length + length));
+            }
+            in.readFully(utf8, utf8Length, length);
+            utf8Offsets[i] = utf8Length;
+            utf8Lengths[i] = length;
+            utf8Length += length;
+          }
+          case CONSTANT_CLASS -> {
+            if (classCount == classIndexes.length) {
+              classIndexes = Arrays.copyOf(classIndexes, 2 * classIndexes.length);
+            }
+            classIndexes[classCount++] = in.readUnsignedShort();
+          }
+          case CONSTANT_STRING, CONSTANT_METHOD_TYPE, CONSTANT_MODULE, CONSTANT_PACKAGE -> in.skipNBytes(2);
+          case CONSTANT_METHOD_HANDLE -> in.skipNBytes(3);
+          case CONSTANT_INTEGER, CONSTANT_FLOAT, CONSTANT_FIELDREF, CONSTANT_METHODREF, CONSTANT_INTERFACE_METHODREF,
+              CONSTANT_NAME_AND_TYPE, CONSTANT_DYNAMIC, CONSTANT_INVOKE_DYNAMIC -> in.skipNBytes(4);
+          case CONSTANT_LONG, CONSTANT_DOUBLE -> {
+            in.skipNBytes(8);
+            tags[++i] = 0; // takes two entries
+          }
+          default -> throw new IOException("invalid constant pool tag " + tag + " at index " + i);
+        }
+      }
+
+      final Set<String> references = new LinkedHashSet<>();
+      for (var k = 0; k < classCount; ++k) {
+        final var index = classIndexes[k];
+        if (index <= 0 || index >= count || tags[index] != CONSTANT_UTF8) {
+          throw new IOException("invalid class name index " + index);
+        }
+        final var reference = toReference(decode(utf8Offsets[index], utf8Lengths[index]));
+        if (null != reference) {
+          references.add(reference);
+        }
+      }
+      return List.copyOf(references);
+    }
+
+    /**
+     * Modified UTF-8 only differs from UTF-8 for NUL and supplementary characters, which are not expected in class
+     * names.
+     */
+    private String decode(final int offset, final int length) {
+      return new String(utf8, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Convert an array descriptor (<code>[Ljava/lang/String;</code>) to its element class.
+     *
+     * @return a class name, or <code>null</code> for an array of primitive type.
+     */
+    private static String toReference(final String name) {
+      if (!name.startsWith("[")) {
+        return name;
+      }
+      final var start = name.lastIndexOf('[') + 1;
+      if (start < name.length() && name.charAt(start) == 'L' && name.endsWith(";")) {
+        return name.substring(start + 1, name.length() - 1);
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Protocol between the <code>jtools-jar serve</code> daemon and its clients, over a Unix domain socket.
+ * <p>
+ * The client sends its working directory and its arguments; the daemon answers with frames containing the standard
+ * output and error of the command, then its exit code. A connection is used for one request.
+ *
+ * @author gael.lhez
+ */
+public final class DaemonProtocol {
+  private static final int MAGIC = 0x4A544A44;
+  private static final int VERSION = 1;
+  private static final int OUT = 1;
+  private static final int ERR = 2;
+  private static final int EXIT = 3;
+
+  private DaemonProtocol() {
+  }
+
+  /**
+   * Default socket of the daemon, in the temporary directory of the current user.
+   *
+   * @return a path.
+   */
+  public static Path defaultSocket() {
+    return Paths.get(System.getProperty("java.io.tmpdir"), "jtools-jar-" + System.getProperty("user.name") + ".sock");
+  }
+
+  /**
+   * Send a request to a daemon, and copy its output.
+   *
+   * @param socket
+   *          socket of the daemon.
+   * @param workingDirectory
+   *          directory used to resolve relative paths in arguments.
+   * @param arguments
+   *          arguments of the command.
+   * @param out
+   *          receive the standard output of the command.
+   * @param err
+   *          receive the standard error of the command.
+   * @return the exit code of the command.
+   * @throws IOException
+   *           if the daemon could not be reached.
+   */
+  public static int send(final Path socket, final Path workingDirectory, final List<String> arguments,
+      final OutputStream out, final OutputStream err) throws IOException {
+    try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.connect(UnixDomainSocketAddress.of(socket));
+      final var dos = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+      dos.writeInt(MAGIC);
+      dos.writeInt(VERSION);
+      ScanCache.writeString(dos, workingDirectory.toAbsolutePath().toString());
+      ScanCache.writeStrings(dos, arguments);
+      dos.flush();
+
+      final var dis = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+      while (true) {
+        final var type = dis.readByte();
+        if (type == EXIT) {
+          return dis.readInt();
+        }
+        final var data = new byte[dis.readInt()];
+        dis.readFully(data);
+        final var target = type == OUT ? out : err;
+        target.write(data);
+        target.flush();
+      }
+    }
+  }
+
+  /**
+   * Read a request.
+   *
+   * @param channel
+   *          a connection accepted by the daemon.
+   * @return the request.
+   * @throws IOException
+   *           if the request could not be read.
+   */
+  public static Request readRequest(final SocketChannel channel) throws IOException {
+    final var dis = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+    if (dis.readInt() != MAGIC) {
+      throw new IOException("not a jtools-jar client");
+    }
+    final var version = dis.readInt();
+    if (version != VERSION) {
+      throw new IOException("unsupported protocol version " + version);
+    }
+    return new Request(Paths.get(ScanCache.readString(dis)), ScanCache.readStrings(dis));
+  }
+
+  /**
+   * A request.
+   *
+   * @param workingDirectory
+   *          directory used to resolve relative paths in arguments.
+   * @param arguments
+   *          arguments of the command.
+   */
+  public record Request(Path workingDirectory, List<String> arguments) {
+  }
+
+  /**
+   * The answer to a request.
+   */
+  public static class Response {
+    private final DataOutputStream out;
+
+    public Response(final SocketChannel channel) {
+      this.out = new DataOutputStream(Channels.newOutputStream(Objects.requireNonNull(channel, "channel")));
+    }
+
+    /**
+     * Standard output of the command.
+     *
+     * @return a stream sending a frame on each write.
+     */
+    public OutputStream getOut() {
+      return new FrameOutputStream(OUT);
+    }
+
+    /**
+     * Standard error of the command.
+     *
+     * @return a stream sending a frame on each write.
+     */
+    public OutputStream getErr() {
+      return new FrameOutputStream(ERR);
+    }
+
+    /**
+     * End the response.
+     *
+     * @param code
+     *          exit code of the command.
+     * @throws IOException
+     *           if the client is gone.
+     */
+    public void exit(final int code) throws IOException {
+      synchronized (out) {
+        out.writeByte(EXIT);
+        out.writeInt(code);
+        out.flush();
+      }
+    }
+
+    private class FrameOutputStream extends OutputStream {
+      private final int type;
+
+      FrameOutputStream(final int type) {
+        this.type = type;
+      }
+
+      @Override
+      public void write(final int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+          return;
+        }
+        synchronized (out) {
+          out.writeByte(type);
+          out.writeInt(len);
+          out.write(b, off, len);
+          out.flush();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Select the entries of a JAR by name.
+ * <p>
+ * Selectors are declared by {@link JARProcessor#getEntrySelectors()} so that {@link ListJARProcessor} can enumerate
+ * the entries once and only route those that matter to each processor.
+ *
+ * @author gael.lhez
+ */
+public final class EntrySelector implements Predicate<String> {
+  private final String prefix;
+  private final String suffix;
+  private final boolean exact;
+
+  private EntrySelector(final String prefix, final String suffix, final boolean exact) {
+    this.prefix = Objects.requireNonNull(prefix, "prefix");
+    this.suffix = Objects.requireNonNull(suffix, "suffix");
+    this.exact = exact;
+  }
+
+  /**
+   * Select entries whose name starts with some prefix.
+   *
+   * @param prefix
+   *          the prefix (eg: <code>META-INF/services/</code>).
+   * @return a selector.
+   */
+  public static EntrySelector prefix(final String prefix) {
+    return new EntrySelector(prefix, "", false);
+  }
+
+  /**
+   * Select entries whose name ends with some suffix.
+   *
+   * @param suffix
+   *          the suffix (eg: <code>.class</code>).
+   * @return a selector.
+   */
+  public static EntrySelector suffix(final String suffix) {
+    return new EntrySelector("", suffix, false);
+  }
+
+  /**
+   * Select entries whose name starts with some prefix and ends with some suffix.
+   *
+   * @param prefix
+   *          the prefix (eg: <code>META-INF/maven/</code>).
+   * @param suffix
+   *          the suffix (eg: <code>/pom.properties</code>).
+   * @return a selector.
+   */
+  public static EntrySelector prefixAndSuffix(final String prefix, final String suffix) {
+    return new EntrySelector(prefix, suffix, false);
+  }
+
+  /**
+   * Select one entry.
+   *
+   * @param name
+   *          the name of the entry.
+   * @return a selector.
+   */
+  public static EntrySelector name(final String name) {
+    return new EntrySelector(name, "", true);
+  }
+
+  @Override
+  public boolean test(final String name) {
+    if (exact) {
+      return prefix.equals(name);
+    }
+    return name.startsWith(prefix) && name.endsWith(suffix);
+  }
+
+  @Override
+  public String toString() {
+    return exact ? prefix : prefix + "*" + suffix;
+  }
+
+}
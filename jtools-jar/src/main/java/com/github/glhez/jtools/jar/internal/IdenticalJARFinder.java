@@ -0,0 +1,207 @@
+package com.github.glhez.jtools.jar.internal;
+
+import static java.util.stream.Collectors.groupingBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Find JARs having the same content, for example the same library bundled in several WARs.
+ * <p>
+ * JARs having the same name, size and CRC-32 (read from the central directory of their parent archive) are
+ * candidates, and are identical if they also have the same SHA-256. Only candidates are fully read.
+ * <p>
+ * The name is part of the identity because it is used by some processors (see {@link MavenArtifactsJARProcessor}).
+ * <p>
+ * JARs may be compared all at once ({@link #find(Collection)}), or while they are found
+ * ({@link #add(Collection)} then {@link #isIdentical(JARInformation, JARInformation)}).
+ *
+ * @author gael.lhez
+ */
+public class IdenticalJARFinder {
+  private static final long UNKNOWN_CRC = -1;
+
+  private final JARArchiveOpener opener;
+  /**
+   * JARs given to {@link #add(Collection)}, which were not candidates to be identical to a previous JAR.
+   */
+  private final Map<NameAndSize, List<Candidate>> added;
+  /**
+   * Digest of JARs to which others were compared.
+   */
+  private final Map<JARInformation, String> digests;
+
+  public IdenticalJARFinder(final JARArchiveOpener opener) {
+    this.opener = Objects.requireNonNull(opener, "opener");
+    this.added = new HashMap<>();
+    this.digests = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Find identical JARs.
+   * <p>
+   * A JAR which could not be read is not considered identical to any other JAR.
+   *
+   * @param files
+   *          JARs to compare.
+   * @return for each group of identical JARs, the first one (in {@link JARInformation} order) and the others.
+   */
+  public Map<JARInformation, List<JARInformation>> find(final Collection<JARInformation> files) {
+    final Map<NameAndSize, List<Candidate>> candidates = new LinkedHashMap<>();
+    for (final var candidate : describe(files)) {
+      candidates.computeIfAbsent(candidate.key, key -> new ArrayList<>()).add(candidate);
+    }
+
+    final Map<JARInformation, String> digests = new TreeMap<>();
+    for (final var sameSize : candidates.values()) {
+      if (sameSize.size() < 2) {
+        continue;
+      }
+      // the CRC-32 can only be used if all JARs have one (eg: not a JAR on the file system).
+      final Collection<List<Candidate>> groups;
+      if (sameSize.stream().allMatch(candidate -> candidate.crc != UNKNOWN_CRC)) {
+        groups = sameSize.stream().collect(groupingBy(candidate -> candidate.crc)).values();
+      } else {
+        groups = List.of(sameSize);
+      }
+      groups.stream().filter(group -> group.size() > 1).flatMap(List::stream).forEach(candidate -> {
+        try {
+          digests.put(candidate.file, digest(candidate.file));
+        } catch (@SuppressWarnings("unused") final IOException e) {
+          // not deduplicated: the error will be reported when the file is processed.
+        }
+      });
+    }
+
+    final Map<String, TreeSet<JARInformation>> identical = new LinkedHashMap<>();
+    digests.forEach((jar, digest) -> identical.computeIfAbsent(jar.getFileName() + ":" + digest,
+                                                               key -> new TreeSet<>())
+                                              .add(jar));
+
+    final Map<JARInformation, List<JARInformation>> result = new TreeMap<>();
+    for (final var jars : identical.values()) {
+      if (jars.size() > 1) {
+        final var first = jars.pollFirst();
+        result.put(first, List.copyOf(jars));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Add JARs found while scanning, and find those which may be identical to a JAR added before.
+   * <p>
+   * Only the central directory of archives is read: the content of a JAR and of its candidate must then be compared
+   * using {@link #isIdentical(JARInformation, JARInformation)}.
+   *
+   * @param files
+   *          JARs to add.
+   * @return for each JAR which may be identical to a JAR added before, this JAR.
+   */
+  public synchronized Map<JARInformation, JARInformation> add(final Collection<JARInformation> files) {
+    final Map<JARInformation, JARInformation> result = new HashMap<>();
+    for (final var candidate : describe(files)) {
+      final var others = added.computeIfAbsent(candidate.key, key -> new ArrayList<>());
+      // the CRC-32 can only be used if both JARs have one (eg: not a JAR on the file system).
+      final var first = others.stream()
+                              .filter(other -> other.crc == UNKNOWN_CRC || candidate.crc == UNKNOWN_CRC
+                                  || other.crc == candidate.crc)
+                              .findFirst();
+      if (first.isPresent()) {
+        result.put(candidate.file, first.get().file);
+      } else {
+        others.add(candidate);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Compare the content of a JAR with a candidate returned by {@link #add(Collection)}.
+   * <p>
+   * The digest of the first JAR is kept, since it is the candidate of all identical JARs.
+   *
+   * @param first
+   *          a JAR.
+   * @param other
+   *          a JAR which may be identical.
+   * @return <code>true</code> if both JARs have the same content; <code>false</code> if they differ or could not be
+   *         read.
+   */
+  public boolean isIdentical(final JARInformation first, final JARInformation other) {
+    try {
+      var digest = digests.get(first);
+      if (null == digest) {
+        digest = digest(first);
+        digests.putIfAbsent(first, digest);
+      }
+      return digest.equals(digest(other));
+    } catch (@SuppressWarnings("unused") final IOException e) {
+      return false; // not deduplicated: the error will be reported when the file is processed.
+    }
+  }
+
+  private List<Candidate> describe(final Collection<JARInformation> files) {
+    final List<Candidate> candidates = new ArrayList<>();
+    final Map<Path, List<JARInformation>> nested = new TreeMap<>();
+    for (final var file : files) {
+      if (file.pathInArchive.isPresent()) {
+        nested.computeIfAbsent(file.archivePath, key -> new ArrayList<>()).add(file);
+      } else {
+        try {
+          candidates.add(new Candidate(file, new NameAndSize(file.getFileName().toString(),
+              Files.size(file.archivePath)), UNKNOWN_CRC));
+        } catch (@SuppressWarnings("unused") final IOException e) {
+          // not deduplicated
+        }
+      }
+    }
+    nested.forEach((archivePath, jars) -> {
+      try {
+        opener.getEntries(archivePath, jars).forEach((file, entry) -> {
+          final var key = new NameAndSize(file.getFileName().toString(), entry.getSize());
+          candidates.add(new Candidate(file, key, entry.getCrc()));
+        });
+      } catch (@SuppressWarnings("unused") final IOException e) {
+        // not deduplicated
+      }
+    });
+    return candidates;
+  }
+
+  private String digest(final JARInformation file) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("missing SHA-256 algo", e);
+    }
+    final var buffer = new byte[64 * 1024];
+    try (var is = opener.newInputStream(file)) {
+      for (var n = 0; -1 != (n = is.read(buffer, 0, buffer.length));) {
+        digest.update(buffer, 0, n);
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private record NameAndSize(String name, long size) {
+  }
+
+  private record Candidate(JARInformation file, NameAndSize key, long crc) {
+  }
+}
@@ -0,0 +1,86 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.jar.JarEntry;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+/**
+ * The part of {@link java.util.jar.JarFile} used by processors.
+ * <p>
+ * A JAR found in another archive is read in place rather than extracted to a temporary file: this is why processors
+ * are not given a {@link java.util.jar.JarFile}. The content is never versioned (see {@link MultiReleaseVersion}).
+ * <p>
+ * Entries may be read by several threads at the same time, each using its own stream.
+ *
+ * @author gael.lhez
+ */
+public interface JARArchive extends AutoCloseable {
+  /**
+   * Entries, in the order of the central directory.
+   *
+   * @return a stream of entries.
+   * @see java.util.jar.JarFile#stream()
+   */
+  Stream<JarEntry> stream();
+
+  /**
+   * Entries, in the order of their content in the archive: reading each entry then reads the archive sequentially.
+   *
+   * @return a stream of entries.
+   */
+  default Stream<JarEntry> streamInDataOrder() {
+    return stream();
+  }
+
+  /**
+   * Find an entry.
+   *
+   * @param name
+   *          name of the entry.
+   * @return an entry or <code>null</code>.
+   * @see java.util.jar.JarFile#getJarEntry(String)
+   */
+  JarEntry getJarEntry(String name);
+
+  /**
+   * Open an entry.
+   *
+   * @param entry
+   *          an entry of this archive.
+   * @return a stream over the uncompressed content.
+   * @throws IOException
+   *           if the entry could not be read.
+   * @see java.util.jar.JarFile#getInputStream(ZipEntry)
+   */
+  InputStream getInputStream(ZipEntry entry) throws IOException;
+
+  /**
+   * Read the manifest, once: all processors of a JAR share the same instance.
+   *
+   * @return a manifest or <code>null</code>.
+   * @throws IOException
+   *           if the manifest could not be read.
+   * @see java.util.jar.JarFile#getManifest()
+   */
+  JARManifest getManifest() throws IOException;
+
+  /**
+   * Test the <code>Multi-Release</code> attribute of the manifest.
+   *
+   * @return <code>true</code> if this is a Multi-Release JAR.
+   * @see java.util.jar.JarFile#isMultiRelease()
+   */
+  boolean isMultiRelease();
+
+  /**
+   * Size of the archive.
+   *
+   * @return a size, in bytes, or 0 if it could not be read.
+   */
+  long size();
+
+  @Override
+  void close() throws IOException;
+}
@@ -0,0 +1,311 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import com.github.glhez.jtools.zip.ZipArchive;
+import com.github.glhez.jtools.zip.ZipSource;
+
+/**
+ * Open the content of a {@link JARInformation}.
+ * <p>
+ * A JAR found in another archive is read in place:
+ * <ul>
+ * <li>if stored, as a memory mapped slice of the parent archive.</li>
+ * <li>if compressed, inflated in memory unless it is bigger than some limit.</li>
+ * </ul>
+ * A temporary file, deleted when the archive is closed, is only used for big compressed JAR or if the parent archive
+ * could not be read in place (for example an archive split on several disks).
+ * <p>
+ * The central directory of a parent archive is read once for all its JAR, while the archive does not change. Parent
+ * archives too big to be mapped at once are read again each time, and their content is read while their channel is
+ * open.
+ *
+ * @author gael.lhez
+ */
+public class JARArchiveOpener {
+  /**
+   * Maximum size of an array.
+   */
+  private static final long MAX_MEMORY_LIMIT = Integer.MAX_VALUE - 8L;
+
+  private final long memoryLimit;
+  private final Map<Path, Directory> directories;
+
+  /**
+   * Create a new opener.
+   *
+   * @param memoryLimit
+   *          maximum size (in bytes) of a compressed JAR to inflate in memory; bigger JAR than an array can hold are
+   *          always extracted.
+   */
+  public JARArchiveOpener(final long memoryLimit) {
+    if (memoryLimit < 0) {
+      throw new IllegalArgumentException("invalid memory limit: " + memoryLimit);
+    }
+    this.memoryLimit = Math.min(memoryLimit, MAX_MEMORY_LIMIT);
+    this.directories = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Open a JAR.
+   *
+   * @param information
+   *          the JAR.
+   * @return an archive, to be closed.
+   * @throws IOException
+   *           if the JAR could not be opened.
+   */
+  public JARArchive open(final JARInformation information) throws IOException {
+    final var path = information.tmpPath;
+    if (path.isPresent()) {
+      return openFile(path.get());
+    }
+
+    final var name = entryName(information);
+    try (var directory = readDirectory(information.archivePath)) {
+      final var entry = directory.getEntry(name);
+      if (null == entry || entry.isDirectory()) {
+        throw new NoSuchFileException(information.toString());
+      }
+      if (entry.getMethod() == ZipEntry.STORED) {
+        return ZipJARArchive.open(information.toString(), ZipSource.of(directory.getData(entry)));
+      }
+      if (entry.getSize() <= memoryLimit) {
+        final var content = new byte[(int) entry.getSize()];
+        try (var is = directory.getInputStream(entry)) {
+          if (is.readNBytes(content, 0, content.length) != content.length || is.read() != -1) {
+            throw new ZipException("invalid entry size for " + information);
+          }
+        }
+        return ZipJARArchive.open(information.toString(), ZipSource.of(ByteBuffer.wrap(content)));
+      }
+      final var tempFile = createTempFile(information);
+      try (var is = directory.getInputStream(entry)) {
+        Files.copy(is, tempFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+      return JarFileJARArchive.openTemporary(tempFile);
+    } catch (@SuppressWarnings("unused") final ZipException e) {
+      // not readable in place, let the JDK try.
+      return extract(information, name);
+    }
+  }
+
+  /**
+   * Open a JAR found on the file system, keeping the channel open for JAR that could not be mapped at once.
+   */
+  private static JARArchive openFile(final Path path) throws IOException {
+    final var channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      final var source = ZipSource.of(channel);
+      if (channel.size() <= Integer.MAX_VALUE) {
+        channel.close(); // the file was mapped.
+        return ZipJARArchive.open(path.toString(), source);
+      }
+      return ZipJARArchive.open(path.toString(), source, channel);
+    } catch (@SuppressWarnings("unused") final ZipException e) {
+      channel.close();
+      return JarFileJARArchive.open(path); // not readable in place, let the JDK try.
+    } catch (final IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private JARArchive extract(final JARInformation information, final String name) throws IOException {
+    try (var zipFile = new ZipFile(information.archivePath.toFile())) {
+      final var entry = zipFile.getEntry(name);
+      if (null == entry || entry.isDirectory()) {
+        throw new NoSuchFileException(information.toString());
+      }
+      final var tempFile = createTempFile(information);
+      try (var is = zipFile.getInputStream(entry)) {
+        Files.copy(is, tempFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+      return JarFileJARArchive.openTemporary(tempFile);
+    }
+  }
+
+  private Path createTempFile(final JARInformation information) throws IOException {
+    return Files.createTempFile("jarfile-" + information.getFileName().toString(), ".jar");
+  }
+
+  /**
+   * Size of the (uncompressed) JAR.
+   *
+   * @param information
+   *          the JAR.
+   * @return a size, in bytes.
+   * @throws IOException
+   *           if the size could not be read.
+   */
+  public long size(final JARInformation information) throws IOException {
+    final var path = information.tmpPath;
+    if (path.isPresent()) {
+      return Files.size(path.get());
+    }
+    try (var directory = readDirectory(information.archivePath)) {
+      final var entry = directory.getEntry(entryName(information));
+      return null == entry ? 0 : entry.getSize();
+    } catch (@SuppressWarnings("unused") final ZipException e) {
+      return Files.size(information.archivePath);
+    }
+  }
+
+  /**
+   * Entries of the JARs found in some archive, read from its central directory.
+   *
+   * @param archivePath
+   *          the archive.
+   * @param files
+   *          JAR found in this archive.
+   * @return the entry of each JAR found, with its size and CRC-32.
+   * @throws IOException
+   *           if the archive could not be read.
+   */
+  public Map<JARInformation, ZipEntry> getEntries(final Path archivePath, final Collection<JARInformation> files)
+      throws IOException {
+    final Map<JARInformation, ZipEntry> entries = new HashMap<>();
+    try (var directory = readDirectory(archivePath)) {
+      for (final var file : files) {
+        final var entry = directory.getEntry(entryName(file));
+        if (null != entry && !entry.isDirectory()) {
+          final var zipEntry = new ZipEntry(entry.getName());
+          zipEntry.setCrc(entry.getCrc());
+          zipEntry.setSize(entry.getSize());
+          entries.put(file, zipEntry);
+        }
+      }
+    } catch (@SuppressWarnings("unused") final ZipException e) {
+      try (var zipFile = new ZipFile(archivePath.toFile())) {
+        for (final var file : files) {
+          final var entry = zipFile.getEntry(entryName(file));
+          if (null != entry && !entry.isDirectory()) {
+            entries.put(file, entry);
+          }
+        }
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Read the content of a JAR.
+   *
+   * @param information
+   *          the JAR.
+   * @return a stream over the (uncompressed) JAR.
+   * @throws IOException
+   *           if the JAR could not be read.
+   */
+  public InputStream newInputStream(final JARInformation information) throws IOException {
+    final var path = information.tmpPath;
+    if (path.isPresent()) {
+      return Files.newInputStream(path.get());
+    }
+
+    final var name = entryName(information);
+    try (var directory = readDirectory(information.archivePath)) {
+      final var entry = directory.getEntry(name);
+      if (null == entry || entry.isDirectory()) {
+        throw new NoSuchFileException(information.toString());
+      }
+      return directory.getInputStream(entry); // the data is sliced: the stream remains readable once closed
+    } catch (@SuppressWarnings("unused") final ZipException e) {
+      final var zipFile = new ZipFile(information.archivePath.toFile());
+      try {
+        final var entry = zipFile.getEntry(name);
+        if (null == entry || entry.isDirectory()) {
+          throw new NoSuchFileException(information.toString());
+        }
+        return new FilterInputStream(zipFile.getInputStream(entry)) {
+          @Override
+          public void close() throws IOException {
+            try (zipFile) {
+              super.close();
+            }
+          }
+        };
+      } catch (final IOException | RuntimeException ex) {
+        zipFile.close();
+        throw ex;
+      }
+    }
+  }
+
+  /**
+   * Read the central directory of a parent archive, or reuse it if the archive did not change.
+   * <p>
+   * The mapped content remains valid once the channel is closed: the directory is kept. Archives too big to be mapped
+   * at once are mapped in parts, as needed: the directory then keeps the channel open until it is closed.
+   */
+  private Directory readDirectory(final Path archivePath) throws IOException {
+    final var size = Files.size(archivePath);
+    final var lastModified = Files.getLastModifiedTime(archivePath).toMillis();
+    final var directory = directories.get(archivePath);
+    if (null != directory && directory.size() == size && directory.lastModified() == lastModified) {
+      return directory;
+    }
+    final var channel = FileChannel.open(archivePath, StandardOpenOption.READ);
+    try {
+      final var archive = ZipArchive.read(ZipSource.of(channel));
+      if (channel.size() > Integer.MAX_VALUE) {
+        return new Directory(size, lastModified, archive, channel);
+      }
+      channel.close(); // the file was mapped.
+      final var mapped = new Directory(size, lastModified, archive, null);
+      directories.put(archivePath, mapped);
+      return mapped;
+    } catch (final IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static String entryName(final JARInformation information) {
+    final var path = information.pathInArchive.map(Object::toString).orElse("");
+    return path.startsWith("/") ? path.substring(1) : path;
+  }
+
+  /**
+   * The central directory of a parent archive, and the channel used to read it if it could not be mapped at once.
+   */
+  private record Directory(long size, long lastModified, ZipArchive archive, FileChannel channel)
+      implements AutoCloseable {
+
+    ZipArchive.Entry getEntry(final String name) {
+      return archive.getEntry(name);
+    }
+
+    ByteBuffer getData(final ZipArchive.Entry entry) throws IOException {
+      return archive.getData(entry);
+    }
+
+    InputStream getInputStream(final ZipArchive.Entry entry) throws IOException {
+      return archive.getInputStream(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (null != channel) {
+        channel.close();
+      }
+    }
+  }
+
+}
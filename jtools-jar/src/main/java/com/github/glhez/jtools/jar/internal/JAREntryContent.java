@@ -0,0 +1,153 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.jar.JarEntry;
+
+/**
+ * An entry of a JAR, and its content shared by all processors visiting it.
+ * <p>
+ * The entry is opened at most once: the first call to {@link #newInputStream()} opens it, and the bytes read are
+ * kept so that streams returned to the next processors replay them before reading more. A processor reading only
+ * the first bytes of an entry (for example, the header of a class file) thus does not inflate the whole entry.
+ *
+ * @author gael.lhez
+ */
+public final class JAREntryContent implements AutoCloseable {
+  private static final int CHUNK_SIZE = 8192;
+
+  private final JARArchive archive;
+  private final JarEntry entry;
+
+  private InputStream source;
+  private byte[] buffer;
+  private int length;
+  private boolean eof;
+
+  JAREntryContent(final JARArchive archive, final JarEntry entry) {
+    this.archive = Objects.requireNonNull(archive, "archive");
+    this.entry = Objects.requireNonNull(entry, "entry");
+    this.buffer = new byte[0];
+  }
+
+  public JarEntry getEntry() {
+    return entry;
+  }
+
+  public String getName() {
+    return entry.getName();
+  }
+
+  /**
+   * Number of bytes read from the entry so far, shared by all streams.
+   */
+  int getBytesRead() {
+    return length;
+  }
+
+  /**
+   * Open a new stream over the entry content.
+   * <p>
+   * Closing the returned stream does not close the shared stream, which is closed with this instance.
+   *
+   * @return a stream, starting at the beginning of the entry.
+   * @throws IOException
+   *           if the entry could not be opened.
+   */
+  public InputStream newInputStream() throws IOException {
+    if (null == source && !eof) {
+      source = archive.getInputStream(entry);
+    }
+    return new ReplayInputStream();
+  }
+
+  /**
+   * Read the first bytes of the entry, without creating a stream.
+   * <p>
+   * Only the requested bytes are inflated, unless a processor already read more.
+   *
+   * @param header
+   *          the array to fill.
+   * @return the number of bytes read, less than the length of <code>header</code> only if the entry is shorter.
+   * @throws IOException
+   *           if the entry could not be read.
+   */
+  public int readHeader(final byte[] header) throws IOException {
+    if (null == source && !eof && length < header.length) {
+      source = archive.getInputStream(entry);
+    }
+    fill(header.length - 1, header.length);
+    final var n = Math.min(header.length, length);
+    System.arraycopy(buffer, 0, header, 0, n);
+    return n;
+  }
+
+  /**
+   * Ensure that at least <code>position + 1</code> bytes are available, unless the end of the entry was reached.
+   */
+  private boolean fill(final int position) throws IOException {
+    return fill(position, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Ensure that at least <code>position + 1</code> bytes are available, without reading past <code>limit</code>.
+   */
+  private boolean fill(final int position, final int limit) throws IOException {
+    while (position >= length && !eof) {
+      final var chunkSize = Math.min(CHUNK_SIZE, limit - length);
+      if (buffer.length - length < chunkSize) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + chunkSize));
+      }
+      final var n = source.read(buffer, length, Math.min(buffer.length, limit) - length);
+      if (n < 0) {
+        eof = true;
+      } else {
+        length += n;
+      }
+    }
+    return position < length;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (null != source) {
+      source.close();
+      source = null;
+    }
+  }
+
+  private class ReplayInputStream extends InputStream {
+    private int position;
+
+    @Override
+    public int read() throws IOException {
+      if (!fill(position)) {
+        return -1;
+      }
+      return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      Objects.checkFromIndexSize(off, len, b.length);
+      if (len == 0) {
+        return 0;
+      }
+      if (position >= length && !fill(position)) {
+        return -1;
+      }
+      final var n = Math.min(len, length - position);
+      System.arraycopy(buffer, position, b, off, n);
+      position += n;
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return length - position;
+    }
+  }
+
+}
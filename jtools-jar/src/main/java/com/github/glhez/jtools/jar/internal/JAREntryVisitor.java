@@ -0,0 +1,29 @@
+package com.github.glhez.jtools.jar.internal;
+
+/**
+ * Visit the entries of one JAR selected by {@link JARProcessor#getEntrySelectors()}.
+ * <p>
+ * A visitor is created per JAR, and used by only one thread: it may thus keep per JAR state which is to be
+ * published in {@link #visitEnd()}.
+ * <p>
+ * The entries of a big JAR may be split in ranges visited by several threads, if the visitor supports it (see
+ * {@link RangeJAREntryVisitor}).
+ *
+ * @author gael.lhez
+ */
+public interface JAREntryVisitor {
+  /**
+   * Visit one entry.
+   *
+   * @param entry
+   *          the entry and its content (shared with other processors).
+   */
+  void visitEntry(JAREntryContent entry);
+
+  /**
+   * All entries were visited.
+   */
+  default void visitEnd() {
+    // do nothing
+  }
+}
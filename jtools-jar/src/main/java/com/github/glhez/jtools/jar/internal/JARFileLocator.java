@@ -7,41 +7,56 @@ import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
-public class JARFileLocator implements AutoCloseable {
+public class JARFileLocator {
+  /**
+   * Maximum number of files given at once to the consumer of {@link #addFileset(List, Consumer)}.
+   */
+  private static final int BATCH_SIZE = 256;
+
   private final SortedSet<JARInformation> files;
   private final FileErrors errors;
   private final DeepMode deepMode;
-  private final List<Path> tempFiles;
   private final Predicate<NPath> filter;
   private final Predicate<NPath> deepInclude;
+  private final Optional<ArchiveListings> listings;
 
-  private JARFileLocator(final DeepMode deepMode, final Predicate<NPath> filter, final Predicate<NPath> deepInclude) {
+  private JARFileLocator(final DeepMode deepMode, final Predicate<NPath> filter, final Predicate<NPath> deepInclude,
+      final Optional<ArchiveListings> listings) {
     this.deepMode = Objects.requireNonNull(deepMode, "deepMode");
     this.files = new TreeSet<>();
     this.errors = new FileErrors();
-    this.tempFiles = new ArrayList<>();
     this.filter = filter;
     this.deepInclude = deepInclude;
+    this.listings = Objects.requireNonNull(listings, "listings");
   }
 
   public JARFileLocator(final DeepMode deepMode, final List<String> includes, final List<String> excludes,
       final List<String> deepInclude) {
+    this(deepMode, includes, excludes, deepInclude, Optional.empty());
+  }
+
+  /**
+   * Create a locator reusing the files found in EAR/WAR by previous locators, unless these archives changed.
+   */
+  public JARFileLocator(final DeepMode deepMode, final List<String> includes, final List<String> excludes,
+      final List<String> deepInclude, final Optional<ArchiveListings> listings) {
     this(deepMode, toPredicate(includes, true).and(toPredicate(excludes, false).negate()),
-        toPredicate(deepInclude, true));
+        toPredicate(deepInclude, true), listings);
   }
 
   private static Predicate<NPath> toPredicate(final List<String> filters, final boolean defaultValue) {
@@ -68,39 +83,64 @@ public class JARFileLocator implements AutoCloseable {
   }
 
   public void addFileset(final List<Path> files) {
-    if (null != files) {
-      for (final var file : files) {
-        try {
-          final var attributes = Files.getFileAttributeView(file, BasicFileAttributeView.class).readAttributes();
-          addEntry(attributes, file);
-        } catch (final IOException e) {
-          errors.addError(file, e);
-        }
+    addFileset(files, this.files::addAll);
+  }
+
+  /**
+   * Find the JARs of a fileset, giving them to a consumer as soon as they are found rather than keeping them in
+   * {@link #getFiles()}.
+   * <p>
+   * Files are found in {@link JARInformation} order: the paths of the fileset are listed and sorted first, then the
+   * JARs of each EAR/WAR are listed after the EAR/WAR itself, and before the next file.
+   *
+   * @param files
+   *          directories and files.
+   * @param consumer
+   *          receive the files found, by batch, each batch being after the previous ones.
+   */
+  public void addFileset(final List<Path> files, final Consumer<List<JARInformation>> consumer) {
+    Objects.requireNonNull(consumer, "consumer");
+    if (null == files) {
+      return;
+    }
+    // Path order is not the order of a walk: "/a/z" is after "/a-b".
+    final SortedSet<Path> paths = new TreeSet<>();
+    for (final var file : files) {
+      try {
+        final var attributes = Files.getFileAttributeView(file, BasicFileAttributeView.class).readAttributes();
+        addEntry(attributes, file, paths);
+      } catch (final IOException e) {
+        errors.addError(file, e);
       }
     }
+    final List<JARInformation> batch = new ArrayList<>();
+    for (final var path : paths) {
+      deepAdd(path, batch, consumer);
+    }
+    flush(batch, consumer);
   }
 
-  private void addEntry(final BasicFileAttributes attributes, final Path file) {
+  private void addEntry(final BasicFileAttributes attributes, final Path file, final SortedSet<Path> paths) {
     if (attributes.isRegularFile()) {
-      addFile(file);
+      addFile(file, paths);
     } else if (attributes.isDirectory()) {
-      addDirectory(file);
+      addDirectory(file, paths);
     } else {
       errors.addError(file, "Not a regular file or directory");
     }
   }
 
-  private void addFile(final Path entry) {
+  private void addFile(final Path entry, final SortedSet<Path> paths) {
     try {
-      deepAdd(entry.toRealPath());
+      paths.add(entry.toRealPath());
     } catch (final IOException e) {
       errors.addError(entry, e);
     }
   }
 
-  private void addDirectory(final Path entry) {
-    try {
-      filter(this.filter, Files.find(entry.toRealPath(), Integer.MAX_VALUE, deepMode)).forEach(this::deepAdd);
+  private void addDirectory(final Path entry, final SortedSet<Path> paths) {
+    try (var found = Files.find(entry.toRealPath(), Integer.MAX_VALUE, deepMode)) {
+      filter(this.filter, found).forEach(paths::add);
     } catch (final IOException e) {
       errors.addError(entry, e);
     }
@@ -110,36 +150,59 @@ public class JARFileLocator implements AutoCloseable {
     return source.map(NPath::new).filter(filter).map(NPath::getPath);
   }
 
-  private void deepAdd(final Path path) {
+  private void deepAdd(final Path path, final List<JARInformation> batch,
+      final Consumer<List<JARInformation>> consumer) {
     if (!Files.isDirectory(path)) {
-      this.files.add(newJARInformation(path));
+      batch.add(newJARInformation(path));
+      if (batch.size() >= BATCH_SIZE) {
+        flush(batch, consumer);
+      }
     }
     if (deepMode.shouldDescendIntoFile(path)) {
-      processArchive(path);
+      // the archive is given before its content, which may be slow to list.
+      flush(batch, consumer);
+      processArchive(path, consumer);
+    }
+  }
+
+  private static void flush(final List<JARInformation> batch, final Consumer<List<JARInformation>> consumer) {
+    if (!batch.isEmpty()) {
+      consumer.accept(List.copyOf(batch));
+      batch.clear();
+    }
+  }
+
+  private void processArchive(final Path realPath, final Consumer<List<JARInformation>> consumer) {
+    final List<Path> children;
+    try {
+      children = listings.isPresent() ? listings.get().list(realPath, this::listArchive) : listArchive(realPath);
+    } catch (final IOException e) {
+      errors.addError(realPath, e);
+      return;
+    }
+    // the content is read in place when processed.
+    final var jars = filter(deepInclude, children.stream().filter(deepMode::isArchivePath))
+        .map(child -> newJARInformation(realPath, child))
+        .sorted()
+        .toList();
+    if (!jars.isEmpty()) {
+      consumer.accept(jars);
     }
   }
 
-  private void processArchive(final Path realPath) {
+  /**
+   * List the files of an archive which may be JAR.
+   */
+  private List<Path> listArchive(final Path realPath) throws IOException {
+    final List<Path> children = new ArrayList<>();
     try (var fs = FileSystems.newFileSystem(realPath, java.util.Collections.emptyMap())) {
-      fs.getRootDirectories().forEach(root -> {
+      for (final var root : fs.getRootDirectories()) {
         try (var fileset = Files.find(root, Integer.MAX_VALUE, DeepMode.DISABLED)) {
-          filter(deepInclude, fileset.filter(deepMode::isArchivePath)).forEach(child -> {
-            try {
-              final var tempFile = Files.createTempFile("jarfile-" + child.getFileName().toString(), ".jar");
-              Files.copy(child, tempFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
-              tempFiles.add(tempFile);
-              files.add(newJARInformation(realPath, child, tempFile));
-            } catch (final IOException e) {
-              errors.addError(root, e);
-            }
-          });
-        } catch (final IOException e) {
-          errors.addError(root, e);
+          fileset.forEach(children::add);
         }
-      });
-    } catch (final IOException e) {
-      errors.addError(realPath, e);
+      }
     }
+    return children;
   }
 
   public Set<JARInformation> getFiles() {
@@ -233,18 +296,6 @@ public class JARFileLocator implements AutoCloseable {
     }
   }
 
-  @Override
-  public void close() {
-    for (final Path path : tempFiles) {
-      try {
-        Files.deleteIfExists(path);
-      } catch (@SuppressWarnings("unused") final IOException e) {
-        // ignored.
-      }
-    }
-
-  }
-
   /**
    * Normalized path, for use with filters.
    *
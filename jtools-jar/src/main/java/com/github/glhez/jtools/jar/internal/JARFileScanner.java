@@ -0,0 +1,441 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Feed the files found by {@link JARFileLocator} to a {@link JARProcessor}.
+ * <p>
+ * When using more than one thread, each JAR (with the versions of a Multi-Release JAR) is processed by its own worker
+ * and the largest files are scheduled first: the processors must then be thread safe and produce their report in
+ * {@link JARInformation} order. If the processor writes its results while files are processed (see
+ * {@link JARProcessor#isStreaming()}), files are scheduled in {@link JARInformation} order instead, so that few results
+ * are kept until the files before them are processed.
+ * <p>
+ * When the {@link ScanCache} is persistent, JARs which did not change since the last run are restored rather than
+ * processed. Identical JARs (see {@link IdenticalJARFinder}) are processed once, and the results copied to the others
+ * using the cache.
+ * <p>
+ * Files may also be processed while they are found (see {@link #scan(FileSource)}): a discovery thread gives them to
+ * the workers through bounded queues, and identical JARs are detected on the fly. Since the files are found in
+ * {@link JARInformation} order, the processors writing their results while files are processed may write the results
+ * of the files found so far.
+ * <p>
+ * Progress is reported using a {@link ProgressReporter}.
+ *
+ * @author gael.lhez
+ */
+@SuppressWarnings("java:S106")
+public class JARFileScanner {
+  /**
+   * Number of batches found but not yet dispatched to the workers.
+   */
+  private static final int DISCOVERY_QUEUE_SIZE = 64;
+  /**
+   * Number of files dispatched to each worker but not yet processed.
+   */
+  private static final int IN_FLIGHT_PER_THREAD = 4;
+
+  private final JARProcessor processor;
+  private final JARArchiveOpener opener;
+  private final int threads;
+  private final ScanCache cache;
+  private final boolean deduplicate;
+  private final MutableProcessorContext context;
+  private final ProgressReporter progress;
+
+  public JARFileScanner(final JARProcessor processor, final JARArchiveOpener opener, final int threads,
+      final ScanCache cache, final boolean deduplicate) {
+    this(processor, opener, threads, cache, deduplicate,
+         new ProgressReporter(System.out, Duration.ofSeconds(1), Optional.empty()));
+  }
+
+  public JARFileScanner(final JARProcessor processor, final JARArchiveOpener opener, final int threads,
+      final ScanCache cache, final boolean deduplicate, final ProgressReporter progress) {
+    this.processor = Objects.requireNonNull(processor, "processor");
+    this.opener = Objects.requireNonNull(opener, "opener");
+    if (threads < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + threads);
+    }
+    this.threads = threads;
+    this.cache = Objects.requireNonNull(cache, "cache");
+    this.deduplicate = deduplicate;
+    this.context = new MutableProcessorContext();
+    this.progress = Objects.requireNonNull(progress, "progress");
+  }
+
+  /**
+   * Process all files.
+   *
+   * @param files
+   *          files to process.
+   * @return the context, containing errors.
+   */
+  public MutableProcessorContext scan(final Collection<JARInformation> files) {
+    progress.start(files.size());
+    processor.found(reportOrder(files));
+    final List<JARInformation> pending = new ArrayList<>();
+    for (final var file : files) {
+      if (!cache.isPersistent() || !restoreFile(file)) {
+        pending.add(file);
+      }
+    }
+
+    final Map<JARInformation, List<JARInformation>> copies;
+    if (deduplicate) {
+      copies = new IdenticalJARFinder(opener).find(pending);
+      final Set<JARInformation> copied = new HashSet<>();
+      copies.values().forEach(copied::addAll);
+      pending.removeIf(copied::contains);
+      final var copyCount = copies.values().stream().mapToInt(List::size).sum();
+      if (copyCount > 0) {
+        System.out.printf("Found %d JAR identical to another JAR%n", copyCount);
+      }
+    } else {
+      copies = Map.of();
+    }
+
+    if (threads == 1) {
+      try {
+        pending.forEach(file -> processFile(file, copies.getOrDefault(file, List.of()), false));
+      } finally {
+        progress.finish();
+      }
+      return context;
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (final var file : processor.isStreaming() ? reportOrder(pending) : largestFirst(pending)) {
+        final var fileCopies = copies.getOrDefault(file, List.of());
+        futures.add(CompletableFuture.runAsync(() -> processFile(file, fileCopies, false), executor));
+      }
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+      progress.finish();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof final RuntimeException re) {
+        throw re;
+      }
+      throw e;
+    } finally {
+      executor.shutdownNow();
+      progress.finish(); // stop the timer if the scan failed
+    }
+    return context;
+  }
+
+  /**
+   * Process files while they are found.
+   * <p>
+   * The source is run by another thread, and files are processed by batch in the order they are found, at most
+   * {@value #IN_FLIGHT_PER_THREAD} per thread at a time: JARs extracted from an archive are then deleted shortly after
+   * they are found. The files of a batch are scheduled as in {@link #scan(Collection)}.
+   *
+   * @param source
+   *          find the files to process, in {@link JARInformation} order (see {@link FileSource#discover(Consumer)}).
+   * @return the context, containing errors.
+   */
+  public MutableProcessorContext scan(final FileSource source) {
+    progress.startDiscovery();
+    final var discovery = new Discovery(source);
+    discovery.start();
+
+    final var finder = deduplicate ? Optional.of(new IdenticalJARFinder(opener)) : Optional.<IdenticalJARFinder>empty();
+    final var copyCount = new AtomicInteger();
+    final ExecutorService executor = threads == 1 ? null : Executors.newFixedThreadPool(threads);
+    final var inFlight = new Semaphore(IN_FLIGHT_PER_THREAD * threads);
+    final Map<JARInformation, CompletableFuture<Void>> futures = new HashMap<>();
+    try {
+      for (var batch = discovery.take(); batch != Discovery.END; batch = discovery.take()) {
+        progress.found(batch.size());
+        processor.found(batch);
+
+        final List<JARInformation> pending = new ArrayList<>();
+        for (final var file : batch) {
+          if (!cache.isPersistent() || !restoreFile(file)) {
+            pending.add(file);
+          }
+        }
+        final var candidates = finder.isPresent() ? finder.get().add(pending) : Map.<JARInformation, JARInformation>of();
+        final var scheduled = null == executor || processor.isStreaming() ? reportOrder(pending)
+            : largestFirst(pending);
+        // candidates of the batch are dispatched before the files which may be identical to them.
+        scheduled.sort(Comparator.comparing(candidates::containsKey));
+        for (final var file : scheduled) {
+          final var candidate = candidates.get(file);
+          final Runnable task = null == candidate ? () -> processFile(file, List.of(), deduplicate)
+              : () -> copyOrProcess(file, candidate, finder.get(), copyCount);
+          if (null == executor) {
+            task.run();
+          } else {
+            inFlight.acquire();
+            final var previous = null == candidate ? CompletableFuture.<Void>completedFuture(null)
+                : futures.get(candidate);
+            final var future = previous.thenRunAsync(task, executor);
+            future.whenComplete((result, failure) -> inFlight.release());
+            futures.put(file, future);
+          }
+        }
+      }
+      discovery.join();
+      discovery.rethrow();
+
+      progress.discovered();
+      CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+      progress.finish();
+      if (copyCount.get() > 0) {
+        System.out.printf("Found %d JAR identical to another JAR%n", copyCount.get());
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while scanning files", e);
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof final RuntimeException re) {
+        throw re;
+      }
+      throw e;
+    } finally {
+      if (null != executor) {
+        executor.shutdownNow();
+      }
+      discovery.interrupt();
+      progress.finish(); // stop the timer if the scan failed
+    }
+    return context;
+  }
+
+  /**
+   * Copy the results of an identical JAR processed before, or process the file.
+   */
+  private void copyOrProcess(final JARInformation file, final JARInformation candidate,
+      final IdenticalJARFinder finder, final AtomicInteger copyCount) {
+    if (finder.isIdentical(candidate, file) && cache.copyAndKeep(candidate, file, context)) {
+      progress.started(file);
+      processor.processed(file);
+      progress.done(file, 0);
+      copyCount.incrementAndGet();
+    } else {
+      processFile(file, List.of(), false);
+    }
+  }
+
+  private static List<JARInformation> reportOrder(final Collection<JARInformation> files) {
+    final List<JARInformation> sorted = new ArrayList<>(files);
+    sorted.sort(Comparator.naturalOrder());
+    return sorted;
+  }
+
+  private List<JARInformation> largestFirst(final Collection<JARInformation> files) {
+    final Map<JARInformation, Long> sizes = new HashMap<>();
+    for (final var file : files) {
+      try {
+        sizes.put(file, opener.size(file));
+      } catch (@SuppressWarnings("unused") final IOException e) {
+        sizes.put(file, 0L); // the error will be reported when the file is processed.
+      }
+    }
+    final List<JARInformation> sorted = new ArrayList<>(files);
+    sorted.sort(Comparator.comparing(sizes::get, Comparator.reverseOrder()));
+    return sorted;
+  }
+
+  private boolean restoreFile(final JARInformation file) {
+    if (cache.restore(file, context)) {
+      progress.started(file);
+      processor.processed(file);
+      progress.done(file, 0);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Process a file, and its versions if this is a Multi-Release JAR, then copy the results to identical files.
+   * <p>
+   * The file is opened once: versions are processed as an overlay of the base version.
+   *
+   * @param record
+   *          record the results, even if the cache is not persistent, so that they can be copied to identical files
+   *          found later.
+   */
+  private void processFile(final JARInformation file, final List<JARInformation> copies, final boolean record) {
+    progress.started(file);
+
+    final var recorder = cache.isPersistent() || record || !copies.isEmpty()
+        ? Optional.of(cache.newRecorder(file, context))
+        : Optional.<ScanCache.Recorder>empty();
+    final Function<JARInformation, ProcessorContext> contexts = recorder.isPresent() ? recorder.get()::withSource
+        : context::withSource;
+
+    var ctx = contexts.apply(file);
+    var size = 0L;
+    try (final var archive = opener.open(file)) {
+      size = archive.size();
+      List<MultiReleaseVersion> versions = List.of();
+      /*
+       * look up for multi release version now
+       */
+      if (archive.isMultiRelease()) {
+        ctx = contexts.apply(file.asMultiRelease());
+        versions = MultiReleaseVersion.of(file.asMultiRelease(), archive);
+        if (!versions.isEmpty()) {
+          progress.log("Found " + versions.size() + " version for Multi-Release JARs");
+        }
+      }
+
+      processor.process(ctx, archive);
+
+      for (final var version : versions) {
+        processVersion(contexts.apply(version.getJARInformation()), version);
+      }
+    } catch (final NullPointerException e) {
+      throw e; // rethrow: this is probably OUR error.
+    } catch (final Exception e) {
+      ctx.addError(e);
+    }
+
+    if (recorder.isPresent()) {
+      try {
+        recorder.get().save();
+      } catch (final IOException e) {
+        System.err.println("Could not cache result of [" + file + "]: " + e.getMessage());
+      }
+    }
+
+    processor.processed(file);
+    progress.done(file, size);
+
+    if (!copies.isEmpty()) {
+      final var failed = cache.copy(file, copies, context);
+      copies.stream().filter(copy -> !failed.contains(copy)).forEach(copy -> {
+        progress.started(copy);
+        processor.processed(copy);
+        progress.done(copy, 0);
+      });
+      failed.forEach(copy -> processFile(copy, List.of(), false));
+    }
+  }
+
+  private void processVersion(final ProcessorContext ctx, final MultiReleaseVersion version) {
+    try {
+      processor.processVersion(ctx, version);
+    } catch (final NullPointerException e) {
+      throw e; // rethrow: this is probably OUR error.
+    } catch (final Exception e) {
+      ctx.addError(e);
+    }
+  }
+
+  /**
+   * Find files to process.
+   */
+  @FunctionalInterface
+  public interface FileSource {
+    /**
+     * Find files, giving them to a consumer as soon as they are found.
+     *
+     * @param consumer
+     *          receive the files found, by batch, in {@link JARInformation} order: the files of a batch are after the
+     *          files of the previous batches.
+     */
+    void discover(Consumer<List<JARInformation>> consumer);
+  }
+
+  /**
+   * Run a {@link FileSource}, queuing the batches of files it finds.
+   */
+  private static class Discovery extends Thread {
+    /**
+     * Last batch, compared by identity.
+     */
+    static final List<JARInformation> END = new ArrayList<>(0);
+
+    private final FileSource source;
+    private final BlockingQueue<List<JARInformation>> queue;
+    private volatile Throwable failure;
+
+    Discovery(final FileSource source) {
+      super("jtools-jar-discovery");
+      this.source = Objects.requireNonNull(source, "source");
+      this.queue = new ArrayBlockingQueue<>(DISCOVERY_QUEUE_SIZE);
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      try {
+        source.discover(batch -> {
+          if (!batch.isEmpty()) {
+            put(List.copyOf(batch));
+          }
+        });
+      } catch (@SuppressWarnings("unused") final Interrupted e) {
+        return; // the scan was aborted: nobody waits for the end.
+      } catch (final RuntimeException | Error e) {
+        failure = e;
+      }
+      try {
+        queue.put(END);
+      } catch (@SuppressWarnings("unused") final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void put(final List<JARInformation> batch) {
+      try {
+        queue.put(batch);
+      } catch (@SuppressWarnings("unused") final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new Interrupted();
+      }
+    }
+
+    List<JARInformation> take() throws InterruptedException {
+      return queue.take();
+    }
+
+    /**
+     * Rethrow the failure of the source, if any.
+     */
+    void rethrow() {
+      if (failure instanceof final RuntimeException e) {
+        throw e;
+      }
+      if (failure instanceof final Error e) {
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Stop the source once the discovery thread is interrupted.
+   */
+  @SuppressWarnings("serial")
+  private static class Interrupted extends RuntimeException {
+    Interrupted() {
+      super(null, null, false, false);
+    }
+  }
+
+}
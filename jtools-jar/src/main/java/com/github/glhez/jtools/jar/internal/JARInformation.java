@@ -22,9 +22,11 @@ public class JARInformation implements Comparable<JARInformation> {
   public final Optional<Path> pathInArchive;
 
   /**
-   * Path to the content. Same as jarInformation unless there is a {@link #pathInArchive}.
+   * Path to the content, when it can be opened directly: same as {@link #archivePath} unless there is a
+   * {@link #pathInArchive}, in which case it is empty and the content is read in place (see
+   * {@link JARArchiveOpener}).
    */
-  public final Path tmpPath;
+  public final Optional<Path> tmpPath;
 
   /**
    * Multi release JAR.
@@ -36,7 +38,7 @@ public class JARInformation implements Comparable<JARInformation> {
    */
   public final int feature;
 
-  private JARInformation(final Path archivePath, final Optional<Path> pathInArchive, final Path tmpPath,
+  private JARInformation(final Path archivePath, final Optional<Path> pathInArchive, final Optional<Path> tmpPath,
       final boolean multiRelease, final int feature) {
     this.archivePath = Objects.requireNonNull(archivePath, "archivePath");
     this.pathInArchive = Objects.requireNonNull(pathInArchive, "pathInArchive");
@@ -46,11 +48,12 @@ public class JARInformation implements Comparable<JARInformation> {
   }
 
   public static JARInformation newJARInformation(final Path source) {
-    return new JARInformation(source, Optional.empty(), source, false, JarFile.baseVersion().feature());
+    return new JARInformation(source, Optional.empty(), Optional.of(source), false, JarFile.baseVersion().feature());
   }
 
-  public static JARInformation newJARInformation(final Path source, final Path realPath, final Path tmpPath) {
-    return new JARInformation(source, Optional.of(realPath), tmpPath, false, JarFile.baseVersion().feature());
+  public static JARInformation newJARInformation(final Path source, final Path realPath) {
+    return new JARInformation(source, Optional.of(realPath), Optional.empty(), false,
+        JarFile.baseVersion().feature());
   }
 
   public Path getFileName() {
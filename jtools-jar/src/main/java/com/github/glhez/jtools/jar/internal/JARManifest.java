@@ -0,0 +1,127 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * The manifest of a JAR, read once by {@link JARArchive#getManifest()} and shared by all processors.
+ * <p>
+ * Only the main section is inflated and parsed. The sections of entries (eg: the digests of a signed JAR, one per
+ * entry) are only read if {@link #getEntries()} is used.
+ *
+ * @author gael.lhez
+ */
+public final class JARManifest {
+  private static final int CR = '\r';
+  private static final int LF = '\n';
+
+  private final Attributes mainAttributes;
+  private final Source source;
+  private Map<String, Attributes> entries;
+
+  private JARManifest(final Attributes mainAttributes, final Source source) {
+    this.mainAttributes = mainAttributes;
+    this.source = source;
+  }
+
+  /**
+   * Read the main section of a manifest.
+   *
+   * @param source
+   *          open the manifest; used again if the sections of entries are needed.
+   * @return a manifest.
+   * @throws IOException
+   *           if the manifest could not be read.
+   */
+  static JARManifest read(final Source source) throws IOException {
+    Objects.requireNonNull(source, "source");
+    try (var is = source.open()) {
+      return new JARManifest(new Manifest(new ByteArrayInputStream(readMainSection(is))).getMainAttributes(), source);
+    }
+  }
+
+  /**
+   * Read up to the first empty line, which ends the main section.
+   * <p>
+   * Lines end with CR LF, LF or CR: the bytes read are given as is to {@link Manifest}, which parses them like the
+   * whole manifest.
+   */
+  private static byte[] readMainSection(final InputStream is) throws IOException {
+    final var bos = new ByteArrayOutputStream(512);
+    var lineLength = 0;
+    var previous = -1;
+    int c;
+    while ((c = is.read()) != -1) {
+      if (c == LF && previous == CR) {
+        bos.write(c); // end of the line ended by CR
+      } else if (c == LF || c == CR) {
+        if (lineLength == 0) {
+          break;
+        }
+        bos.write(c);
+        lineLength = 0;
+      } else {
+        bos.write(c);
+        ++lineLength;
+      }
+      previous = c;
+    }
+    return bos.toByteArray();
+  }
+
+  /**
+   * The main attributes.
+   *
+   * @return attributes, which must not be modified.
+   * @see Manifest#getMainAttributes()
+   */
+  public Attributes getMainAttributes() {
+    return mainAttributes;
+  }
+
+  /**
+   * The sections of entries, read and parsed on first use.
+   *
+   * @return sections, by entry name, which must not be modified.
+   * @throws IOException
+   *           if the manifest could not be read again.
+   * @see Manifest#getEntries()
+   */
+  public synchronized Map<String, Attributes> getEntries() throws IOException {
+    if (null == entries) {
+      try (var is = source.open()) {
+        entries = new Manifest(is).getEntries();
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * The section of an entry.
+   *
+   * @param name
+   *          name of the entry.
+   * @return attributes or <code>null</code>.
+   * @throws IOException
+   *           if the manifest could not be read again.
+   * @see Manifest#getAttributes(String)
+   */
+  public Attributes getAttributes(final String name) throws IOException {
+    return getEntries().get(name);
+  }
+
+  /**
+   * Open the content of a manifest.
+   */
+  @FunctionalInterface
+  interface Source {
+    InputStream open() throws IOException;
+  }
+
+}
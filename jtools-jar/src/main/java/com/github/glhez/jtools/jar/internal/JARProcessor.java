@@ -1,6 +1,8 @@
 package com.github.glhez.jtools.jar.internal;
 
-import java.util.jar.JarFile;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface JARProcessor {
   /**
@@ -8,18 +10,130 @@ public interface JARProcessor {
    */
   void init();
 
+  /**
+   * Invoked when some files were found, before they are processed.
+   * <p>
+   * Files are found in {@link JARInformation} order: the files given to a call are after all the files given to the
+   * previous calls, so that a processor writing its results while files are processed (see {@link #isStreaming()})
+   * may write the results of the files found so far.
+   *
+   * @param files
+   *          the files which will be processed, as found by {@link JARFileLocator}.
+   */
+  default void found(final Collection<JARInformation> files) {
+    // nothing to do
+  }
+
+  /**
+   * Check if this processor writes its results while files are processed (see {@link #processed(JARInformation)}),
+   * in which case files should be processed in {@link JARInformation} order.
+   *
+   * @return <code>true</code> if this processor writes its results while files are processed.
+   */
+  default boolean isStreaming() {
+    return false;
+  }
+
   /**
    * Process one JAR file.
+   * <p>
+   * This method should not enumerate the entries of the JAR: use {@link #getEntrySelectors()} and
+   * {@link #newEntryVisitor(ProcessorContext, JARArchive)} instead.
+   *
+   * @param context
+   *          a context.
+   * @param archive
+   *          a {@link JARArchive} representing the jar.
+   */
+  void process(ProcessorContext context, JARArchive archive);
+
+  /**
+   * Entries this processor wants to visit.
+   *
+   * @return a list of selectors (empty by default).
+   */
+  default List<EntrySelector> getEntrySelectors() {
+    return List.of();
+  }
+
+  /**
+   * Create a visitor for the entries of one JAR.
+   * <p>
+   * The visitor is created after {@link #process(ProcessorContext, JARArchive)} was invoked on all processors, and is
+   * given only the entries matching {@link #getEntrySelectors()}.
    *
    * @param context
    *          a context.
-   * @param jarFile
-   *          a {@link JarFile} representing the jar.
+   * @param archive
+   *          a {@link JARArchive} representing the jar.
+   * @return a visitor or <code>null</code> if there is nothing to visit.
    */
-  void process(ProcessorContext context, JarFile jarFile);
+  default JAREntryVisitor newEntryVisitor(final ProcessorContext context, final JARArchive archive) {
+    return null;
+  }
+
+  /**
+   * Process one version of a Multi-Release JAR.
+   * <p>
+   * This is invoked after the base version of the same JAR was processed, and only the entries resolved by
+   * {@link MultiReleaseVersion#getEntry(String)} may differ from the base version: processors should derive their
+   * result from the one of {@link MultiReleaseVersion#getBase()} rather than processing the whole JAR again.
+   *
+   * @param context
+   *          a context, whose {@link ProcessorContext#getJARInformation()} is the version.
+   * @param version
+   *          the version.
+   */
+  void processVersion(ProcessorContext context, MultiReleaseVersion version);
+
+  /**
+   * Invoked once a file, and its versions if this is a Multi-Release JAR, was processed.
+   * <p>
+   * The results of the file are not modified afterward.
+   *
+   * @param file
+   *          a file, as given to {@link #found(Collection)}.
+   */
+  default void processed(final JARInformation file) {
+    // nothing to do
+  }
 
   /**
    * Finish the process.
+   * <p>
+   * Processors are finished concurrently: this method must only read the results of other processors.
    */
   void finish();
+
+  /**
+   * The report written by {@link #finish()}.
+   *
+   * @return a description of the report, such as <code>[name] to [path]</code>.
+   */
+  default Optional<String> getReport() {
+    return Optional.empty();
+  }
+
+  /**
+   * Processors whose results are read by this processor, while processing a JAR or when finishing.
+   * <p>
+   * Each JAR is processed by the dependencies of a processor before this processor (see
+   * {@link ListJARProcessor#schedule(List)}).
+   *
+   * @return a list of processors (empty by default).
+   */
+  default List<JARProcessor> getDependencies() {
+    return List.of();
+  }
+
+  /**
+   * Check if this processor produces something (eg: a report), rather than only results for other processors.
+   * <p>
+   * A processor without output is not run unless another processor depends on it.
+   *
+   * @return <code>true</code> by default.
+   */
+  default boolean hasOutput() {
+    return true;
+  }
 }
@@ -1,5 +1,7 @@
 package com.github.glhez.jtools.jar.internal;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Comparator;
@@ -9,12 +11,13 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.jar.JarFile;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.apache.commons.csv.CSVPrinter;
 
-public class JNLPPermissionsJARProcessor extends ReportFileJARProcessor {
-  private final Map<JNLPPermissions, Map<Path, Set<Optional<Path>>>> result = new TreeMap<>();
+public class JNLPPermissionsJARProcessor extends ReportFileJARProcessor implements CacheableJARProcessor {
+  private static final int CACHE_VERSION = 1;
+  private final Map<JARInformation, JNLPPermissions> permissionsPerJAR = new ConcurrentSkipListMap<>();
 
   public JNLPPermissionsJARProcessor(final ReportFile reportFile) {
     super("JNLP Permissions", reportFile);
@@ -22,13 +25,13 @@ public class JNLPPermissionsJARProcessor extends ReportFileJARProcessor {
 
   @Override
   public void init() {
-    result.clear();
+    permissionsPerJAR.clear();
   }
 
   @Override
-  public void process(final ProcessorContext context, final JarFile jarFile) {
+  public void process(final ProcessorContext context, final JARArchive archive) {
     try {
-      final var manifest = jarFile.getManifest();
+      final var manifest = archive.getManifest();
       final var ma = null == manifest ? null : manifest.getMainAttributes();
 
       if (null == ma) {
@@ -52,17 +55,70 @@ public class JNLPPermissionsJARProcessor extends ReportFileJARProcessor {
   }
 
   private void put(final JNLPPermissions permissions, final ProcessorContext context) {
-    result.computeIfAbsent(permissions, p -> new TreeMap<>())
-          .computeIfAbsent(context.getJARInformation().archivePath, p -> new LinkedHashSet<>())
-          .add(context.getJARInformation().pathInArchive);
+    permissionsPerJAR.put(context.getJARInformation(), permissions);
   }
 
   private String clean(final String s) {
     return null == s ? "" : s.trim();
   }
 
+  @Override
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    final var permissions = permissionsPerJAR.get(version.getBase());
+    if (null != permissions) {
+      permissionsPerJAR.put(context.getJARInformation(), permissions);
+    }
+  }
+
+  @Override
+  public String getCacheName() {
+    return "jnlp-permissions";
+  }
+
+  @Override
+  public int getCacheVersion() {
+    return CACHE_VERSION;
+  }
+
+  /**
+   * Write 0 if there is no permissions, 1 for {@link JNLPPermissions#EMPTY} and 2 followed by the permissions.
+   */
+  @Override
+  public void writeCache(final JARInformation jarInformation, final DataOutput out) throws IOException {
+    final var permissions = permissionsPerJAR.get(jarInformation);
+    if (null == permissions) {
+      out.writeByte(0);
+    } else if (permissions == JNLPPermissions.EMPTY) {
+      out.writeByte(1);
+    } else {
+      out.writeByte(2);
+      ScanCache.writeString(out, permissions.permissions);
+      ScanCache.writeString(out, permissions.codebase);
+      ScanCache.writeString(out, permissions.callerAllowableCodebase);
+    }
+  }
+
+  @Override
+  public void readCache(final JARInformation jarInformation, final DataInput in) throws IOException {
+    final var kind = in.readByte();
+    switch (kind) {
+      case 0 -> {
+        // no permissions
+      }
+      case 1 -> permissionsPerJAR.put(jarInformation, JNLPPermissions.EMPTY);
+      case 2 -> permissionsPerJAR.put(jarInformation, new JNLPPermissions(ScanCache.readString(in),
+          ScanCache.readString(in), ScanCache.readString(in)));
+      default -> throw new IOException("invalid JNLP permissions: " + kind);
+    }
+  }
+
   @Override
   protected void finish(final CSVPrinter printer) throws IOException {
+    final Map<JNLPPermissions, Map<Path, Set<Optional<Path>>>> result = new TreeMap<>();
+    permissionsPerJAR.forEach((jar, permissions) -> result.computeIfAbsent(permissions, p -> new TreeMap<>())
+                                                          .computeIfAbsent(jar.archivePath, p -> new LinkedHashSet<>())
+                                                          .add(jar.pathInArchive));
+
     printer.printRecord("Permissions", "Codebase", "Caller-Allowable-Codebase", "Parent", "Child");
 
     for (final var entry : result.entrySet()) {
@@ -0,0 +1,116 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+/**
+ * A {@link JARArchive} backed by a {@link JarFile}, opened using its base version.
+ *
+ * @author gael.lhez
+ */
+class JarFileJARArchive implements JARArchive {
+  private final JarFile jarFile;
+  private final Optional<Path> temporaryFile;
+  private JARManifest manifest;
+  private boolean manifestRead;
+
+  private JarFileJARArchive(final JarFile jarFile, final Optional<Path> temporaryFile) {
+    this.jarFile = Objects.requireNonNull(jarFile, "jarFile");
+    this.temporaryFile = Objects.requireNonNull(temporaryFile, "temporaryFile");
+  }
+
+  static JarFileJARArchive open(final Path path) throws IOException {
+    return new JarFileJARArchive(new JarFile(path.toFile(), false), Optional.empty());
+  }
+
+  /**
+   * Open a temporary file, which is deleted when the archive is closed.
+   */
+  static JarFileJARArchive openTemporary(final Path path) throws IOException {
+    try {
+      return new JarFileJARArchive(new JarFile(path.toFile(), false), Optional.of(path));
+    } catch (final IOException | RuntimeException e) {
+      Files.deleteIfExists(path);
+      throw e;
+    }
+  }
+
+  @Override
+  public Stream<JarEntry> stream() {
+    return jarFile.stream();
+  }
+
+  @Override
+  public JarEntry getJarEntry(final String name) {
+    return jarFile.getJarEntry(name);
+  }
+
+  @Override
+  public InputStream getInputStream(final ZipEntry entry) throws IOException {
+    return jarFile.getInputStream(entry);
+  }
+
+  /**
+   * Read the manifest ourselves: {@link JarFile#getManifest()} parses the sections of all entries.
+   */
+  @Override
+  public synchronized JARManifest getManifest() throws IOException {
+    if (!manifestRead) {
+      final var entry = getManifestEntry();
+      if (null != entry) {
+        manifest = JARManifest.read(() -> jarFile.getInputStream(entry));
+      }
+      manifestRead = true;
+    }
+    return manifest;
+  }
+
+  /**
+   * Find the manifest like {@link JarFile}, ignoring case if there is no <code>META-INF/MANIFEST.MF</code>.
+   */
+  private ZipEntry getManifestEntry() {
+    final var entry = jarFile.getEntry(JarFile.MANIFEST_NAME);
+    if (null != entry) {
+      return entry;
+    }
+    try (var entries = jarFile.stream()) {
+      return entries.filter(e -> JarFile.MANIFEST_NAME.equalsIgnoreCase(e.getName())).findFirst().orElse(null);
+    }
+  }
+
+  @Override
+  public boolean isMultiRelease() {
+    return jarFile.isMultiRelease();
+  }
+
+  @Override
+  public long size() {
+    return new File(jarFile.getName()).length();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      jarFile.close();
+    } finally {
+      if (temporaryFile.isPresent()) {
+        Files.deleteIfExists(temporaryFile.get());
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return jarFile.getName();
+  }
+
+}
@@ -1,82 +1,215 @@
 package com.github.glhez.jtools.jar.internal;
 
-import static java.util.stream.Collectors.counting;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.mapping;
-
-import java.io.DataInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
 import java.io.IOException;
-import java.util.EnumMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
-import java.util.function.Function;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.apache.commons.csv.CSVPrinter;
 
-public class JavaVersionJARProcessor extends ReportFileJARProcessor {
+/**
+ * Count the class files of each JAR per Java version, read in the first 8 bytes of each class.
+ * <p>
+ * When sampling, the class files of a JAR are no longer read once the first classes all have the same version: the
+ * other classes (except <code>module-info.class</code>) are counted with this version.
+ *
+ * @author gael.lhez
+ */
+public class JavaVersionJARProcessor extends StreamingReportFileJARProcessor implements CacheableJARProcessor {
+  private static final int CACHE_VERSION = 2;
   private static final int JAVA_CLASS_MAGIC = 0xCAFEBABE;
+  private static final int HEADER_LENGTH = 8;
+  /**
+   * Always read, since it is usually compiled for another version than the other classes.
+   */
+  private static final String MODULE_INFO_CLASS = "module-info.class";
+  private static final EntrySelector CLASS_SELECTOR = EntrySelector.suffix(".class");
+  private static final JavaVersion[] VERSIONS = JavaVersion.values();
 
-  private final Map<JARInformation, EnumMap<JavaVersion, Long>> entries = new LinkedHashMap<>();
+  private final ConcurrentNavigableMap<JARInformation, int[]> entries = new ConcurrentSkipListMap<>();
   private final Optional<MavenArtifactsJARProcessor> mavenArtifactsJARProcessor;
+  private final int sampleSize;
 
   public JavaVersionJARProcessor(final ReportFile reportFile,
-      final MavenArtifactsJARProcessor mavenArtifactsJARProcessor) {
+      final MavenArtifactsJARProcessor mavenArtifactsJARProcessor, final int sampleSize) {
     super("Java version", reportFile);
     this.mavenArtifactsJARProcessor = Optional.ofNullable(mavenArtifactsJARProcessor); // optional
+    if (sampleSize < 0) {
+      throw new IllegalArgumentException("invalid sample size: " + sampleSize);
+    }
+    this.sampleSize = sampleSize;
+  }
+
+  @Override
+  public List<JARProcessor> getDependencies() {
+    return mavenArtifactsJARProcessor.<List<JARProcessor>>map(List::of).orElse(List.of());
   }
 
   @Override
-  public void init() {
+  protected void reset() {
     entries.clear();
   }
 
   @Override
-  public void process(final ProcessorContext context, final JarFile jarFile) {
-    try (var ss = jarFile.stream()) {
-      final var jvd = javaVersionDetector(context, jarFile);
-      final var val = ss.filter(this::isValidEntry) //
-                        .map(jvd)  //
-                        .collect(groupingBy(Map.Entry::getValue, () -> new EnumMap<>(JavaVersion.class),
-                                            mapping(Map.Entry::getKey, counting())));
-      entries.put(context.getJARInformation(), val);
+  public void process(final ProcessorContext context, final JARArchive archive) {
+    // entries are visited
+  }
+
+  @Override
+  public List<EntrySelector> getEntrySelectors() {
+    return List.of(CLASS_SELECTOR);
+  }
+
+  @Override
+  public JAREntryVisitor newEntryVisitor(final ProcessorContext context, final JARArchive archive) {
+    return new VersionVisitor(context);
+  }
+
+  private class VersionVisitor implements RangeJAREntryVisitor {
+    private final ProcessorContext context;
+    private final int[] counts = new int[VERSIONS.length];
+    private final byte[] header = new byte[HEADER_LENGTH];
+    private int classes;
+    private JavaVersion sampled;
+
+    VersionVisitor(final ProcessorContext context) {
+      this.context = context;
+    }
+
+    @Override
+    public void visitEntry(final JAREntryContent entry) {
+      if (null != sampled && !entry.getName().endsWith(MODULE_INFO_CLASS)) {
+        ++counts[sampled.ordinal()];
+        return;
+      }
+      final var version = detectJavaVersion(context, entry, header);
+      ++counts[version.ordinal()];
+      if (null == sampled && sampleSize > 0 && ++classes == sampleSize && counts[version.ordinal()] == sampleSize) {
+        sampled = version;
+      }
+    }
+
+    /**
+     * Sampling depends on the first classes of the JAR: entries are only split when not sampling.
+     */
+    @Override
+    public RangeJAREntryVisitor newRangeVisitor(final ProcessorContext rangeContext) {
+      return sampleSize == 0 ? new VersionVisitor(rangeContext) : null;
+    }
+
+    @Override
+    public void merge(final RangeJAREntryVisitor range) {
+      final var other = (VersionVisitor) range;
+      for (var i = 0; i < counts.length; ++i) {
+        counts[i] += other.counts[i];
+      }
+    }
+
+    @Override
+    public void visitEnd() {
+      entries.put(context.getJARInformation(), counts);
+    }
+  }
+
+  private static JavaVersion detectJavaVersion(final ProcessorContext context, final JAREntryContent entry,
+      final byte[] header) {
+    try {
+      final var n = entry.readHeader(header);
+      if (n >= 4 && JAVA_CLASS_MAGIC != readInt(header, 0)) {
+        return JavaVersion.ERROR;
+      }
+      if (n < HEADER_LENGTH) {
+        throw new EOFException();
+      }
+      return JavaVersion.match(readUnsignedShort(header, 6), readUnsignedShort(header, 4));
+    } catch (final IOException | java.lang.SecurityException e) {
+      context.addError("Unable to parse JarEntry: " + entry.getName() + ": " + e.getMessage());
+    }
+    return JavaVersion.ERROR;
+  }
+
+  private static int readInt(final byte[] b, final int offset) {
+    return readUnsignedShort(b, offset) << 16 | readUnsignedShort(b, offset + 2);
+  }
+
+  private static int readUnsignedShort(final byte[] b, final int offset) {
+    return (b[offset] & 0xFF) << 8 | b[offset + 1] & 0xFF;
+  }
+
+  @Override
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    final var versions = entries.get(version.getBase());
+    if (null != versions) {
+      entries.put(context.getJARInformation(), versions);
     }
   }
 
-  private boolean isValidEntry(final JarEntry entry) {
-    return entry.getName().endsWith(".class");
+  @Override
+  public String getCacheName() {
+    return sampleSize == 0 ? "java-version" : "java-version:sample=" + sampleSize;
+  }
+
+  @Override
+  public int getCacheVersion() {
+    return CACHE_VERSION;
+  }
+
+  @Override
+  public void writeCache(final JARInformation jarInformation, final DataOutput out) throws IOException {
+    final var counts = entries.get(jarInformation);
+    out.writeBoolean(null != counts);
+    if (null != counts) {
+      out.writeInt((int) Arrays.stream(counts).filter(count -> count != 0).count());
+      for (final var version : VERSIONS) {
+        if (counts[version.ordinal()] != 0) {
+          ScanCache.writeString(out, version.name());
+          out.writeInt(counts[version.ordinal()]);
+        }
+      }
+    }
   }
 
-  private Function<JarEntry, Map.Entry<String, JavaVersion>> javaVersionDetector(final ProcessorContext context,
-      final JarFile jarFile) {
-    return entry -> {
-      try (var dis = new DataInputStream(jarFile.getInputStream(entry))) {
-        if (JAVA_CLASS_MAGIC == dis.readInt()) {
-          final var minorVersion = dis.readUnsignedShort();
-          final var majorVersion = dis.readUnsignedShort();
-          return Map.entry(entry.getName(), JavaVersion.match(majorVersion, minorVersion));
+  @Override
+  public void readCache(final JARInformation jarInformation, final DataInput in) throws IOException {
+    if (in.readBoolean()) {
+      final var counts = new int[VERSIONS.length];
+      for (var n = in.readInt(); n > 0; --n) {
+        final var name = ScanCache.readString(in);
+        try {
+          counts[JavaVersion.valueOf(name).ordinal()] = in.readInt();
+        } catch (final IllegalArgumentException e) {
+          throw new IOException("invalid Java version: " + name, e);
         }
-      } catch (final IOException | java.lang.SecurityException e) {
-        context.addError("Unable to parse JarEntry: " + entry.getName() + ": " + e.getMessage());
       }
-      return Map.entry(entry.getName(), JavaVersion.ERROR);
-    };
+      entries.put(jarInformation, counts);
+    }
   }
 
   @Override
-  protected void finish(final CSVPrinter printer) throws IOException {
+  protected void printHeader(final CSVPrinter printer) throws IOException {
     printer.printRecord("JAR", "Maven GAV", "Java Version", "Files in JAR");
-    for (final var entry : entries.entrySet()) {
+  }
+
+  @Override
+  protected void printRows(final CSVPrinter printer, final JARInformation file) throws IOException {
+    final var jars = entries.subMap(file, true, lastVersion(file), true);
+    for (final var entry : jars.entrySet()) {
       final var jarInfo = entry.getKey();
       final var gav = mavenArtifactsJARProcessor.map(p -> p.getGAVAsString(jarInfo)).orElse("");
-      final var versions = entry.getValue();
+      final var counts = entry.getValue();
 
-      for (final var versionEntry : versions.entrySet()) {
-        printer.printRecord(jarInfo, gav, versionEntry.getKey(), versionEntry.getValue());
+      for (final var version : VERSIONS) {
+        if (counts[version.ordinal()] != 0) {
+          printer.printRecord(jarInfo, gav, version, counts[version.ordinal()]);
+        }
       }
     }
+    jars.clear();
   }
 
   public enum JavaVersion {
@@ -127,6 +260,22 @@ public class JavaVersionJARProcessor extends ReportFileJARProcessor {
 
     ;
 
+    private static final int FIRST_MAJOR = 45;
+    /**
+     * First version of each major version, indexed by <code>major - FIRST_MAJOR</code>.
+     */
+    private static final JavaVersion[] BY_MAJOR;
+
+    static {
+      final var last = Arrays.stream(values()).mapToInt(version -> version.major).max().orElseThrow();
+      BY_MAJOR = new JavaVersion[last - FIRST_MAJOR + 1];
+      for (final var version : values()) {
+        if (version.major >= FIRST_MAJOR && null == BY_MAJOR[version.major - FIRST_MAJOR]) {
+          BY_MAJOR[version.major - FIRST_MAJOR] = version;
+        }
+      }
+    }
+
     private final int minor;
     private final int major;
     private final String name;
@@ -143,12 +292,12 @@ public class JavaVersionJARProcessor extends ReportFileJARProcessor {
     }
 
     public static JavaVersion match(final int major, final int minor) {
-      for (final JavaVersion version : JavaVersion.values()) {
-        if (version.major == major && version.minor == minor) {
-          return version;
-        }
+      final var index = major - FIRST_MAJOR;
+      if (index < 0 || index >= BY_MAJOR.length) {
+        return UNKNOWN;
       }
-      return UNKNOWN;
+      final var version = BY_MAJOR[index];
+      return null != version && version.minor == minor ? version : UNKNOWN;
     }
   }
 }
@@ -2,21 +2,151 @@ package com.github.glhez.jtools.jar.internal;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.jar.JarFile;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
 
+/**
+ * Run several processors on each JAR.
+ * <p>
+ * Processors are run in the order given, which must follow their dependencies (see {@link #schedule(List)}).
+ * <p>
+ * The entries of each JAR are enumerated once, and each entry is given to the processors which selected it using
+ * {@link JARProcessor#getEntrySelectors()}.
+ * <p>
+ * If some {@link ProcessorMetrics} are given, the time spent in each processor is measured; otherwise, processors are
+ * called directly.
+ * <p>
+ * The entries of a JAR having more entries than some threshold are split in ranges, each visited by its own thread.
+ * Only visitors supporting it (see {@link RangeJAREntryVisitor}) are split: the others visit all entries in the thread
+ * processing the JAR. Results and errors of each range are merged in entry order, so the result does not depend on the
+ * number of ranges.
+ * <p>
+ * Processors are finished by a pool of threads, so that their reports are written in parallel.
+ */
 @SuppressWarnings("java:S106")
 public class ListJARProcessor implements JARProcessor {
   private final List<JARProcessor> processors;
+  private final List<List<EntrySelector>> selectors;
+  private final Optional<ProcessorMetrics> metrics;
+  private final int splitEntries;
+  private final int rangeThreads;
+  private ExecutorService rangeExecutor;
 
   public ListJARProcessor(final List<JARProcessor> processors) {
+    this(processors, Optional.empty());
+  }
+
+  public ListJARProcessor(final List<JARProcessor> processors, final Optional<ProcessorMetrics> metrics) {
+    this(processors, metrics, 0, 1);
+  }
+
+  /**
+   * Create a processor splitting the entries of big JARs.
+   *
+   * @param processors
+   *          processors to run.
+   * @param metrics
+   *          optional metrics.
+   * @param splitEntries
+   *          JARs having more entries are split in ranges of about this size; 0 to never split.
+   * @param rangeThreads
+   *          maximum number of ranges per JAR, visited in parallel.
+   */
+  public ListJARProcessor(final List<JARProcessor> processors, final Optional<ProcessorMetrics> metrics,
+      final int splitEntries, final int rangeThreads) {
     this.processors = new ArrayList<>(requireNonNull(processors, "processors"));
+    this.selectors = new ArrayList<>();
+    this.metrics = requireNonNull(metrics, "metrics");
+    if (splitEntries < 0) {
+      throw new IllegalArgumentException("invalid number of entries: " + splitEntries);
+    }
+    if (rangeThreads < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + rangeThreads);
+    }
+    this.splitEntries = splitEntries;
+    this.rangeThreads = rangeThreads;
+  }
+
+  /**
+   * Order processors so that each processor is run after its dependencies (see
+   * {@link JARProcessor#getDependencies()}), and drop processors which are not needed: those having no output, on which
+   * no other processor depends.
+   * <p>
+   * Dependencies which were not given are added before the first processor depending on them; otherwise, processors
+   * keep their order.
+   *
+   * @param processors
+   *          processors to run.
+   * @return processors to run, in order.
+   * @throws IllegalArgumentException
+   *           if some processors depend on each other.
+   */
+  public static List<JARProcessor> schedule(final List<JARProcessor> processors) {
+    final Set<JARProcessor> needed = new HashSet<>();
+    processors.stream().filter(JARProcessor::hasOutput).forEach(processor -> addNeeded(processor, needed));
+    final Set<JARProcessor> scheduled = new LinkedHashSet<>();
+    final Set<JARProcessor> visiting = new HashSet<>();
+    processors.stream().filter(needed::contains).forEach(processor -> schedule(processor, scheduled, visiting));
+    return List.copyOf(scheduled);
+  }
+
+  private static void addNeeded(final JARProcessor processor, final Set<JARProcessor> needed) {
+    if (needed.add(processor)) {
+      processor.getDependencies().forEach(dependency -> addNeeded(requireNonNull(dependency, "dependency"), needed));
+    }
+  }
+
+  /**
+   * Add a processor after its dependencies, depth first.
+   */
+  private static void schedule(final JARProcessor processor, final Set<JARProcessor> scheduled,
+      final Set<JARProcessor> visiting) {
+    if (scheduled.contains(processor)) {
+      return;
+    }
+    if (!visiting.add(processor)) {
+      throw new IllegalArgumentException("cyclic dependency on processor " + processor);
+    }
+    processor.getDependencies().forEach(dependency -> schedule(dependency, scheduled, visiting));
+    visiting.remove(processor);
+    scheduled.add(processor);
+  }
+
+  /**
+   * Processors run by this processor.
+   *
+   * @return an unmodifiable list.
+   */
+  public List<JARProcessor> getProcessors() {
+    return Collections.unmodifiableList(processors);
   }
 
   @Override
   public void init() {
     processors.forEach(this::init);
+    selectors.clear();
+    processors.forEach(processor -> selectors.add(List.copyOf(processor.getEntrySelectors())));
+    if (null == rangeExecutor && splitEntries > 0 && rangeThreads > 1) {
+      rangeExecutor = Executors.newFixedThreadPool(rangeThreads - 1, runnable -> {
+        final var thread = new Thread(runnable, "jtools-jar-range");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
   }
 
   private void init(final JARProcessor processor) {
@@ -25,13 +155,294 @@ public class ListJARProcessor implements JARProcessor {
   }
 
   @Override
-  public void process(final ProcessorContext context, final JarFile jarFile) {
-    processors.forEach(processor -> processor.process(context, jarFile));
+  public void found(final Collection<JARInformation> files) {
+    processors.forEach(processor -> processor.found(files));
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return processors.stream().anyMatch(JARProcessor::isStreaming);
   }
 
+  @Override
+  public void process(final ProcessorContext context, final JARArchive archive) {
+    final var recorder = newRecorder(context);
+    final var n = processors.size();
+    final var contexts = new ProcessorContext[n];
+    for (var i = 0; i < n; ++i) {
+      contexts[i] = forProcessor(recorder, i, context);
+    }
+
+    for (var i = 0; i < n; ++i) {
+      final var processor = processors.get(i);
+      final var ctx = contexts[i];
+      measure(recorder, i, () -> processor.process(ctx, archive));
+    }
+
+    final var visitors = new JAREntryVisitor[n];
+    var visitEntries = false;
+    for (var i = 0; i < n; ++i) {
+      final var processor = processors.get(i);
+      final var ctx = contexts[i];
+      final var index = i;
+      measure(recorder, i, () -> visitors[index] = processor.newEntryVisitor(ctx, archive));
+      visitEntries |= null != visitors[i] && !selectors.get(i).isEmpty();
+    }
+
+    if (visitEntries) {
+      if (null == rangeExecutor) {
+        try (final var ss = archive.streamInDataOrder()) {
+          ss.forEach(entry -> visitEntry(archive, entry, visitors, recorder));
+        }
+      } else {
+        final List<JarEntry> entries;
+        try (final var ss = archive.streamInDataOrder()) {
+          entries = ss.toList();
+        }
+        visitEntries(context, archive, entries, visitors, contexts, recorder);
+      }
+    }
+
+    for (var i = 0; i < n; ++i) {
+      final var visitor = visitors[i];
+      if (null != visitor) {
+        measure(recorder, i, visitor::visitEnd);
+      }
+    }
+    save(recorder);
+  }
+
+  /**
+   * Visit the entries of a JAR, split in ranges if there are enough entries.
+   * <p>
+   * The visitors given visit the first range; they visit all entries if they can not be split. Each other range is
+   * visited by a range visitor, whose errors are kept until it is merged.
+   */
+  private void visitEntries(final ProcessorContext context, final JARArchive archive, final List<JarEntry> entries,
+      final JAREntryVisitor[] visitors, final ProcessorContext[] contexts, final ProcessorMetrics.Recorder recorder) {
+    final var n = visitors.length;
+    final var rangeCount = Math.min(rangeThreads, (entries.size() + splitEntries - 1) / splitEntries);
+    final var sequentialVisitors = visitors.clone();
+    final var rangeVisitors = new RangeJAREntryVisitor[rangeCount][n];
+    final var rangeErrors = new ErrorBuffer[rangeCount][n];
+    var split = false;
+    for (var i = 0; rangeCount > 1 && i < n; ++i) {
+      if (!(visitors[i] instanceof final RangeJAREntryVisitor visitor)) {
+        continue;
+      }
+      for (var r = 1; r < rangeCount; ++r) {
+        final var errors = new ErrorBuffer(contexts[i]);
+        final var index = i;
+        final var range = r;
+        rangeErrors[r][i] = errors;
+        measure(recorder, i, () -> rangeVisitors[range][index] = visitor.newRangeVisitor(errors));
+      }
+      if (null != rangeVisitors[1][i]) {
+        sequentialVisitors[i] = null;
+        split = true;
+      }
+    }
+    if (!split) {
+      entries.forEach(entry -> visitEntry(archive, entry, visitors, recorder));
+      return;
+    }
+
+    final List<CompletableFuture<Void>> futures = new ArrayList<>();
+    try {
+      for (var r = 1; r < rangeCount; ++r) {
+        final var range = entries.subList(bound(entries, r, rangeCount), bound(entries, r + 1, rangeCount));
+        final var visitorsOfRange = rangeVisitors[r];
+        futures.add(CompletableFuture.runAsync(() -> {
+          final var rangeRecorder = newRecorder(context);
+          range.forEach(entry -> visitEntry(archive, entry, visitorsOfRange, rangeRecorder));
+          save(rangeRecorder);
+        }, rangeExecutor));
+      }
+      entries.subList(0, bound(entries, 1, rangeCount))
+             .forEach(entry -> visitEntry(archive, entry, visitors, recorder));
+      entries.subList(bound(entries, 1, rangeCount), entries.size())
+             .forEach(entry -> visitEntry(archive, entry, sequentialVisitors, recorder));
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof final RuntimeException re) {
+        throw re;
+      }
+      throw e;
+    } finally {
+      // the archive is closed once processed: wait for the other ranges, even on failure.
+      futures.forEach(future -> future.exceptionally(failure -> null).join());
+    }
+
+    for (var r = 1; r < rangeCount; ++r) {
+      for (var i = 0; i < n; ++i) {
+        if (null == sequentialVisitors[i] && null != visitors[i]) {
+          final var index = i;
+          final var range = r;
+          measure(recorder, i, () -> ((RangeJAREntryVisitor) visitors[index]).merge(rangeVisitors[range][index]));
+          rangeErrors[r][i].flush();
+        }
+      }
+    }
+  }
+
+  /**
+   * First entry of some range.
+   */
+  private static int bound(final List<JarEntry> entries, final int range, final int rangeCount) {
+    return (int) ((long) entries.size() * range / rangeCount);
+  }
+
+  private void visitEntry(final JARArchive archive, final JarEntry entry, final JAREntryVisitor[] visitors,
+      final ProcessorMetrics.Recorder recorder) {
+    final var name = entry.getName();
+    JAREntryContent content = null;
+    try {
+      for (var i = 0; i < visitors.length; ++i) {
+        if (null != visitors[i] && matches(selectors.get(i), name)) {
+          if (null == content) {
+            content = new JAREntryContent(archive, entry);
+          }
+          if (null == recorder) {
+            visitors[i].visitEntry(content);
+          } else {
+            final var bytesRead = content.getBytesRead();
+            recorder.start();
+            visitors[i].visitEntry(content);
+            recorder.stop(i);
+            recorder.addEntry(i, content.getBytesRead() - (long) bytesRead);
+          }
+        }
+      }
+    } finally {
+      close(content);
+    }
+  }
+
+  private ProcessorMetrics.Recorder newRecorder(final ProcessorContext context) {
+    return metrics.isPresent() ? metrics.get().newRecorder(context.getJARInformation()) : null;
+  }
+
+  private ProcessorContext forProcessor(final ProcessorMetrics.Recorder recorder, final int index,
+      final ProcessorContext context) {
+    final var ctx = context.forProcessor(processors.get(index));
+    return null == recorder ? ctx : recorder.countErrors(index, ctx);
+  }
+
+  private static void measure(final ProcessorMetrics.Recorder recorder, final int index, final Runnable action) {
+    if (null == recorder) {
+      action.run();
+    } else {
+      recorder.start();
+      try {
+        action.run();
+      } finally {
+        recorder.stop(index);
+      }
+    }
+  }
+
+  private static void save(final ProcessorMetrics.Recorder recorder) {
+    if (null != recorder) {
+      recorder.save();
+    }
+  }
+
+  private static boolean matches(final List<EntrySelector> selectors, final String name) {
+    for (final var selector : selectors) {
+      if (selector.test(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void close(final JAREntryContent content) {
+    if (null != content) {
+      try {
+        content.close();
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  @Override
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    final var recorder = newRecorder(context);
+    for (var i = 0; i < processors.size(); ++i) {
+      final var processor = processors.get(i);
+      final var ctx = forProcessor(recorder, i, context);
+      measure(recorder, i, () -> processor.processVersion(ctx, version));
+    }
+    save(recorder);
+  }
+
+  @Override
+  public void processed(final JARInformation file) {
+    processors.forEach(processor -> processor.processed(file));
+  }
+
+  /**
+   * Finish all processors, writing their reports concurrently, then print the reports that were written.
+   */
   @Override
   public void finish() {
-    processors.forEach(JARProcessor::finish);
+    final var start = System.nanoTime();
+    final var executor = Executors.newFixedThreadPool(Math.max(1, Math.min(processors.size(),
+                                                                           Runtime.getRuntime().availableProcessors())));
+    try {
+      final List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (final var processor : processors) {
+        futures.add(CompletableFuture.runAsync(processor::finish, executor));
+      }
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof final RuntimeException re) {
+        throw re;
+      }
+      throw e;
+    } finally {
+      executor.shutdownNow();
+      if (null != rangeExecutor) {
+        rangeExecutor.shutdownNow();
+        rangeExecutor = null;
+      }
+    }
+
+    final var reports = processors.stream().map(JARProcessor::getReport).flatMap(Optional::stream).toList();
+    if (!reports.isEmpty()) {
+      System.out.printf("Wrote %d reports in %d ms:%n", reports.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      reports.forEach(report -> System.out.println("  " + report));
+    }
+  }
+
+  /**
+   * Keep the errors of a range until the range is merged, so that they are added in entry order.
+   */
+  private static class ErrorBuffer implements ProcessorContext {
+    private final ProcessorContext context;
+    private final List<String> errors;
+
+    ErrorBuffer(final ProcessorContext context) {
+      this.context = context;
+      this.errors = new ArrayList<>();
+    }
+
+    @Override
+    public JARInformation getJARInformation() {
+      return context.getJARInformation();
+    }
+
+    @Override
+    public void addError(final String message) {
+      errors.add(requireNonNull(message, "message"));
+    }
+
+    void flush() {
+      errors.forEach(context::addError);
+      errors.clear();
+    }
   }
 
 }
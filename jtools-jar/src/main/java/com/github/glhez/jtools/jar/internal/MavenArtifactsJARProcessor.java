@@ -4,9 +4,11 @@ import static java.util.stream.Collectors.counting;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toSet;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.LinkedHashMap;
+import java.nio.file.Path;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -14,26 +16,52 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.function.Function;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 import org.apache.commons.csv.CSVPrinter;
 
 @SuppressWarnings("java:S106")
-public class MavenArtifactsJARProcessor implements JARProcessor {
+public class MavenArtifactsJARProcessor implements CacheableJARProcessor {
+  private static final int CACHE_VERSION = 2;
+  private static final byte CACHED_NOTHING = 0;
+  private static final byte CACHED_GAV = 1;
+  private static final byte CACHED_SHA1 = 2;
+  private static final byte CACHED_NO_SHA1 = 3;
   private static final String MAVEN_DIRECTORY = "META-INF/maven/";
   private static final String MAVEN_PROPERTY = "/pom.properties";
+  private final ReportFile reportFile;
   private final ExportMode kind;
+  private final Optional<Repository> repository;
   private final Map<JARInformation, GAV> mavenArtifacts;
+  /**
+   * SHA-1 of JARs without pom.properties, when a repository is used.
+   */
+  private final Map<JARInformation, String> sha1s;
+  /**
+   * JARs without pom.properties, whose SHA-1 was not computed because no repository was used.
+   */
+  private final Set<JARInformation> unhashed;
+  private Optional<MavenRepositoryIndex> index;
   private final CSVMavenArtifactsJARProcessor csvProcessor;
 
-  private MavenArtifactsJARProcessor(final ReportFile reportFile, final ExportMode kind) {
+  private MavenArtifactsJARProcessor(final ReportFile reportFile, final ExportMode kind,
+      final Optional<Repository> repository) {
+    this.reportFile = reportFile;
     this.kind = kind;
-    this.mavenArtifacts = new LinkedHashMap<>();
+    this.repository = repository;
+    this.mavenArtifacts = new ConcurrentSkipListMap<>();
+    this.sha1s = new ConcurrentSkipListMap<>();
+    this.unhashed = new ConcurrentSkipListSet<>();
+    this.index = Optional.empty();
     this.csvProcessor = this.kind == ExportMode.CSV ? new CSVMavenArtifactsJARProcessor(reportFile) : null;
   }
 
+  private MavenArtifactsJARProcessor(final ReportFile reportFile, final ExportMode kind) {
+    this(reportFile, kind, Optional.empty());
+  }
+
   public static MavenArtifactsJARProcessor newShellScriptMavenArtifactsJARProcessor() {
     return new MavenArtifactsJARProcessor(null, ExportMode.BASH);
   }
@@ -46,9 +74,60 @@ public class MavenArtifactsJARProcessor implements JARProcessor {
     return new MavenArtifactsJARProcessor(null, ExportMode.NONE);
   }
 
+  /**
+   * Copy this processor to also find the GAV of JARs without <code>pom.properties</code> in a Maven repository, using
+   * the SHA-1 of the JAR.
+   * <p>
+   * The repository is indexed by {@link #init()}, so only if the processor is used.
+   *
+   * @param path
+   *          root of the repository.
+   * @param indexFile
+   *          file where the index of the repository is kept (see {@link MavenRepositoryIndex}).
+   * @param threads
+   *          number of threads used to index the repository.
+   * @param opener
+   *          used to read the JAR.
+   * @return a new processor.
+   */
+  public MavenArtifactsJARProcessor withRepository(final Path path, final Path indexFile, final int threads,
+      final JARArchiveOpener opener) {
+    final var repository = new Repository(Objects.requireNonNull(path, "path"),
+        Objects.requireNonNull(indexFile, "indexFile"), threads, Objects.requireNonNull(opener, "opener"));
+    return new MavenArtifactsJARProcessor(reportFile, kind, Optional.of(repository));
+  }
+
   @Override
   public void init() {
     mavenArtifacts.clear();
+    sha1s.clear();
+    unhashed.clear();
+    index = repository.flatMap(MavenArtifactsJARProcessor::openIndex);
+  }
+
+  private static Optional<MavenRepositoryIndex> openIndex(final Repository repository) {
+    final MavenRepositoryIndex index;
+    try {
+      index = MavenRepositoryIndex.open(repository.path(), repository.indexFile(), repository.threads());
+    } catch (final IOException e) {
+      System.err.println("Could not index Maven repository [" + repository.path() + "]: " + e.getMessage());
+      return Optional.empty();
+    }
+    if (!index.getErrors().isEmpty()) {
+      System.err.println("Some artifacts of the Maven repository could not be read:");
+      index.getErrors().forEach(System.err::println);
+    }
+    System.out.printf("Maven repository: %d artifacts indexed, %d read%n", index.getIndexedCount(),
+                      index.getReadCount());
+    return Optional.of(index);
+  }
+
+  /**
+   * Find the GAV of a JAR without pom.properties in the repository.
+   */
+  private void resolve(final JARInformation jar, final String sha1) {
+    sha1s.put(jar, sha1);
+    index.flatMap(i -> i.find(sha1)).ifPresent(gav -> mavenArtifacts.put(jar, gav));
   }
 
   private Optional<GAV> getGAV(final JARInformation information) {
@@ -60,23 +139,50 @@ public class MavenArtifactsJARProcessor implements JARProcessor {
   }
 
   @Override
-  public void process(final ProcessorContext context, final JarFile jarFile) {
-    final var properties = getCandidateProperties(jarFile);
+  public void process(final ProcessorContext context, final JARArchive archive) {
+    // entries are visited
+  }
+
+  @Override
+  public List<EntrySelector> getEntrySelectors() {
+    return List.of(EntrySelector.prefixAndSuffix(MAVEN_DIRECTORY, MAVEN_PROPERTY));
+  }
+
+  @Override
+  public JAREntryVisitor newEntryVisitor(final ProcessorContext context, final JARArchive archive) {
+    return new GAVEntryVisitor(context);
+  }
+
+  private class GAVEntryVisitor implements JAREntryVisitor {
+    private final ProcessorContext context;
+    private boolean done;
 
-    if (properties.isEmpty()) {
-      return;
+    GAVEntryVisitor(final ProcessorContext context) {
+      this.context = context;
+    }
+
+    @Override
+    public void visitEntry(final JAREntryContent entry) {
+      if (!done) {
+        done = !process(entry);
+      }
     }
 
-    for (final JarEntry jarEntry : properties) {
+    /**
+     * Process one pom.properties.
+     *
+     * @return <code>false</code> if other entries should be ignored.
+     */
+    private boolean process(final JAREntryContent jarEntry) {
       final Set<GAV> gavs = new LinkedHashSet<>();
-      try (var is = jarFile.getInputStream(jarEntry)) {
+      try (var is = jarEntry.newInputStream()) {
         gavs.add(GAV.parse(is));
       } catch (final IOException | java.lang.SecurityException e) {
         context.addError("Failed to read GAV definition: " + e.getMessage());
       }
 
       if (gavs.isEmpty()) {
-        return; // this would have been a GAV read error.
+        return false; // this would have been a GAV read error.
       } else if (gavs.size() == 1) {
         mavenArtifacts.put(context.getJARInformation(), gavs.iterator().next());
       } else {
@@ -84,7 +190,7 @@ public class MavenArtifactsJARProcessor implements JARProcessor {
         final var name = context.getJARInformation().getFileName().toString();
         final Set<GAV> newGavs = gavs.stream().filter(gav -> name.contains(gav.getFileNamePrefix())).collect(toSet());
         if (newGavs.isEmpty()) {
-          return; // this would have been a GAV read error.
+          return false; // this would have been a GAV read error.
         } else if (newGavs.size() == 1) {
           mavenArtifacts.put(context.getJARInformation(), newGavs.iterator().next());
         } else {
@@ -92,12 +198,104 @@ public class MavenArtifactsJARProcessor implements JARProcessor {
               + " found. Could not determine a GAV with filename either.");
         }
       }
+      return true;
+    }
+
+    /**
+     * Find a JAR without pom.properties in the repository.
+     */
+    @Override
+    public void visitEnd() {
+      final var jar = context.getJARInformation();
+      if (mavenArtifacts.containsKey(jar)) {
+        return;
+      }
+      if (repository.isEmpty()) {
+        unhashed.add(jar);
+        return;
+      }
+      try (var is = repository.get().opener().newInputStream(jar)) {
+        resolve(jar, MavenRepositoryIndex.sha1(is));
+      } catch (final IOException e) {
+        context.addError("Failed to compute SHA-1: " + e.getMessage());
+      }
     }
   }
 
-  private List<JarEntry> getCandidateProperties(final JarFile jarFile) {
-    try (final var ss = jarFile.stream()) {
-      return ss.filter(MavenArtifactsJARProcessor::isCandidateForMaven).toList();
+  @Override
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    final var gav = mavenArtifacts.get(version.getBase());
+    if (null != gav) {
+      mavenArtifacts.put(context.getJARInformation(), gav);
+    }
+    final var sha1 = sha1s.get(version.getBase());
+    if (null != sha1) {
+      sha1s.put(context.getJARInformation(), sha1);
+    }
+  }
+
+  @Override
+  public String getCacheName() {
+    return "maven";
+  }
+
+  @Override
+  public int getCacheVersion() {
+    return CACHE_VERSION;
+  }
+
+  /**
+   * Write the GAV read from pom.properties or, since the repository may change, the SHA-1 of the JAR.
+   */
+  @Override
+  public void writeCache(final JARInformation jarInformation, final DataOutput out) throws IOException {
+    final var sha1 = sha1s.get(jarInformation);
+    final var gav = mavenArtifacts.get(jarInformation);
+    if (null != sha1) {
+      out.writeByte(CACHED_SHA1);
+      ScanCache.writeString(out, sha1);
+    } else if (unhashed.contains(jarInformation)) {
+      out.writeByte(CACHED_NO_SHA1);
+    } else if (null == gav) {
+      out.writeByte(CACHED_NOTHING);
+    } else {
+      out.writeByte(CACHED_GAV);
+      ScanCache.writeString(out, gav.groupId);
+      ScanCache.writeString(out, gav.artifactId);
+      out.writeBoolean(gav.version.isPresent());
+      if (gav.version.isPresent()) {
+        ScanCache.writeString(out, gav.version.get());
+      }
+    }
+  }
+
+  /**
+   * Read the result of {@link #writeCache(JARInformation, DataOutput)}, and find a cached SHA-1 in the current
+   * repository.
+   * <p>
+   * A JAR without pom.properties cached without SHA-1 (because no repository was used) is processed again if a
+   * repository is now used.
+   */
+  @Override
+  public void readCache(final JARInformation jarInformation, final DataInput in) throws IOException {
+    switch (in.readByte()) {
+      case CACHED_NOTHING -> {
+        // not a Maven artifact
+      }
+      case CACHED_GAV -> {
+        final var groupId = ScanCache.readString(in);
+        final var artifactId = ScanCache.readString(in);
+        final var version = in.readBoolean() ? Optional.of(ScanCache.readString(in)) : Optional.<String>empty();
+        mavenArtifacts.put(jarInformation, new GAV(groupId, artifactId, version));
+      }
+      case CACHED_SHA1 -> resolve(jarInformation, ScanCache.readString(in));
+      case CACHED_NO_SHA1 -> {
+        if (repository.isPresent()) {
+          throw new IOException("no SHA-1 to search in the Maven repository");
+        }
+        unhashed.add(jarInformation);
+      }
+      default -> throw new IOException("invalid cached GAV");
     }
   }
 
@@ -133,12 +331,14 @@ public class MavenArtifactsJARProcessor implements JARProcessor {
     }
   }
 
-  private static boolean isCandidateForMaven(final JarEntry jarEntry) {
-    return isCandidateForMaven(jarEntry.getName());
+  @Override
+  public Optional<String> getReport() {
+    return kind == ExportMode.CSV ? csvProcessor.getReport() : Optional.empty();
   }
 
-  private static boolean isCandidateForMaven(final String jarEntryName) {
-    return jarEntryName.startsWith(MAVEN_DIRECTORY) && jarEntryName.endsWith(MAVEN_PROPERTY);
+  @Override
+  public boolean hasOutput() {
+    return kind != ExportMode.NONE;
   }
 
   static class GAV {
@@ -152,6 +352,10 @@ public class MavenArtifactsJARProcessor implements JARProcessor {
       this.version = version;
     }
 
+    static GAV of(final String groupId, final String artifactId, final String version) {
+      return new GAV(groupId, artifactId, Optional.of(version));
+    }
+
     public static GAV parse(final InputStream is) throws IOException {
       final var propz = new Properties();
       propz.load(is);
@@ -163,7 +367,7 @@ public class MavenArtifactsJARProcessor implements JARProcessor {
         throw new IOException("Missing fields: groupId % artifactId % version");
       }
 
-      return new GAV(groupId, artifactId, Optional.of(version));
+      return of(groupId, artifactId, version);
     }
 
     private String prefixVersion(final String prefix) {
@@ -215,6 +419,9 @@ public class MavenArtifactsJARProcessor implements JARProcessor {
 
   }
 
+  private record Repository(Path path, Path indexFile, int threads, JARArchiveOpener opener) {
+  }
+
   private enum ExportMode {
     NONE,
     BASH,
@@ -233,7 +440,12 @@ public class MavenArtifactsJARProcessor implements JARProcessor {
     }
 
     @Override
-    public void process(final ProcessorContext context, final JarFile jarFile) {
+    public void process(final ProcessorContext context, final JARArchive archive) {
+      // NOPE
+    }
+
+    @Override
+    public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
       // NOPE
     }
 
@@ -0,0 +1,307 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * An index of the JARs of a local Maven repository (eg: <code>~/.m2/repository</code> or a mirror) by SHA-1, used to
+ * find the GAV of JARs without <code>pom.properties</code>.
+ * <p>
+ * Only the main artifact of each version is indexed: <code>group/path/artifactId/version/artifactId-version.jar</code>.
+ * Its SHA-1 is read from the <code>.jar.sha1</code> file downloaded along with it, or computed if there is none.
+ * <p>
+ * The index is kept in a file: when the repository is indexed again, only JARs whose size or modification time changed
+ * are read, and JARs removed from the repository are dropped.
+ *
+ * @author gael.lhez
+ */
+public class MavenRepositoryIndex {
+  private static final int MAGIC = 0x4A544A4D;
+  private static final int FORMAT_VERSION = 1;
+  private static final String JAR_EXTENSION = ".jar";
+  private static final String SHA1_EXTENSION = ".sha1";
+  private static final Pattern SHA1 = Pattern.compile("[0-9a-fA-F]{40}");
+
+  private final Map<String, MavenArtifactsJARProcessor.GAV> artifacts;
+  private final int indexed;
+  private final int read;
+  private final FileErrors errors;
+
+  private MavenRepositoryIndex(final Map<String, MavenArtifactsJARProcessor.GAV> artifacts, final int indexed,
+      final int read, final FileErrors errors) {
+    this.artifacts = artifacts;
+    this.indexed = indexed;
+    this.read = read;
+    this.errors = errors;
+  }
+
+  /**
+   * Index a repository, reusing the content of the index file if it exists, then update the index file.
+   * <p>
+   * An index file which could not be read (or which was written for another repository) is ignored: the whole
+   * repository is indexed again.
+   *
+   * @param repository
+   *          root of the repository.
+   * @param indexFile
+   *          file where the index is kept.
+   * @param threads
+   *          number of threads used to compute the SHA-1 of JARs.
+   * @return an index.
+   * @throws IOException
+   *           if the repository could not be listed or the index file could not be written.
+   */
+  public static MavenRepositoryIndex open(final Path repository, final Path indexFile, final int threads)
+      throws IOException {
+    Objects.requireNonNull(repository, "repository");
+    Objects.requireNonNull(indexFile, "indexFile");
+    final var root = repository.toAbsolutePath().normalize();
+    final var previous = readIndex(indexFile, root);
+    final var errors = new FileErrors();
+
+    final List<String> paths;
+    try (var files = Files.walk(root)) {
+      paths = files.filter(file -> isMainArtifact(root, file))
+                   .map(file -> toRelativePath(root, file))
+                   .sorted()
+                   .toList();
+    }
+
+    final Map<String, CompletableFuture<Optional<Artifact>>> updated = new TreeMap<>();
+    final var executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    try {
+      for (final var path : paths) {
+        final var file = root.resolve(path);
+        final var artifact = previous.get(path);
+        if (null != artifact && artifact.isUpToDate(file)) {
+          updated.put(path, CompletableFuture.completedFuture(Optional.of(artifact)));
+        } else {
+          updated.put(path, CompletableFuture.supplyAsync(() -> newArtifact(path, file, errors), executor));
+        }
+      }
+      CompletableFuture.allOf(updated.values().toArray(CompletableFuture[]::new)).join();
+    } finally {
+      executor.shutdown();
+    }
+
+    final List<Artifact> current = updated.values().stream().flatMap(future -> future.join().stream()).toList();
+    final var read = (int) current.stream().filter(artifact -> !artifact.equals(previous.get(artifact.path()))).count();
+    if (read != 0 || current.size() != previous.size()) {
+      writeIndex(indexFile, root, current);
+    }
+
+    final Map<String, MavenArtifactsJARProcessor.GAV> artifacts = new HashMap<>();
+    for (final var artifact : current) {
+      artifacts.putIfAbsent(artifact.sha1(), toGAV(artifact.path()));
+    }
+    return new MavenRepositoryIndex(artifacts, current.size(), read, errors);
+  }
+
+  /**
+   * Find the artifact having some content.
+   *
+   * @param sha1
+   *          SHA-1 of the content, in hexadecimal.
+   * @return a GAV, or nothing if the content is not in the repository.
+   */
+  public Optional<MavenArtifactsJARProcessor.GAV> find(final String sha1) {
+    return Optional.ofNullable(artifacts.get(sha1.toLowerCase()));
+  }
+
+  /**
+   * Number of indexed artifacts.
+   */
+  public int getIndexedCount() {
+    return indexed;
+  }
+
+  /**
+   * Number of artifacts which were not found in the index file, or had changed since.
+   */
+  public int getReadCount() {
+    return read;
+  }
+
+  /**
+   * Errors on artifacts which could not be read: they are not indexed, and will be read again by the next run.
+   */
+  public FileErrors getErrors() {
+    return errors;
+  }
+
+  /**
+   * Compute the SHA-1 of some content.
+   *
+   * @param is
+   *          content to read.
+   * @return the SHA-1, in lower case hexadecimal.
+   * @throws IOException
+   *           if the content could not be read.
+   */
+  public static String sha1(final InputStream is) throws IOException {
+    final var digest = newDigest();
+    final var buffer = new byte[64 * 1024];
+    for (var n = 0; -1 != (n = is.read(buffer, 0, buffer.length));) {
+      digest.update(buffer, 0, n);
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("missing SHA-1 algo", e);
+    }
+  }
+
+  /**
+   * Match <code>artifactId/version/artifactId-version.jar</code>, with at least one directory for the groupId.
+   * <p>
+   * Classifiers (eg: <code>-sources.jar</code>) and timestamped snapshots do not match.
+   */
+  private static boolean isMainArtifact(final Path root, final Path file) {
+    if (root.relativize(file).getNameCount() < 4 || !Files.isRegularFile(file)) {
+      return false;
+    }
+    final var version = file.getParent().getFileName().toString();
+    final var artifactId = file.getParent().getParent().getFileName().toString();
+    return file.getFileName().toString().equals(artifactId + "-" + version + JAR_EXTENSION);
+  }
+
+  private static String toRelativePath(final Path root, final Path file) {
+    final var relative = root.relativize(file);
+    final List<String> names = new ArrayList<>(relative.getNameCount());
+    relative.forEach(name -> names.add(name.toString()));
+    return String.join("/", names);
+  }
+
+  /**
+   * The GAV of a path accepted by {@link #isMainArtifact(Path, Path)}.
+   */
+  private static MavenArtifactsJARProcessor.GAV toGAV(final String path) {
+    final var names = path.split("/");
+    final var n = names.length;
+    final var groupId = String.join(".", List.of(names).subList(0, n - 3));
+    return MavenArtifactsJARProcessor.GAV.of(groupId, names[n - 3], names[n - 2]);
+  }
+
+  private static Optional<Artifact> newArtifact(final String path, final Path file, final FileErrors errors) {
+    try {
+      final var size = Files.size(file);
+      final var lastModified = Files.getLastModifiedTime(file).toMillis();
+      return Optional.of(new Artifact(path, size, lastModified, readSHA1(file)));
+    } catch (final IOException | UncheckedIOException e) {
+      synchronized (errors) {
+        errors.addError(file, e);
+      }
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Use the <code>.sha1</code> file written by Maven, whose content may be followed by the file name, or compute it.
+   */
+  private static String readSHA1(final Path file) throws IOException {
+    final var sha1File = file.resolveSibling(file.getFileName() + SHA1_EXTENSION);
+    try {
+      final var content = Files.readString(sha1File, StandardCharsets.US_ASCII).strip();
+      final var sha1 = content.split("\\s+", 2)[0];
+      if (SHA1.matcher(sha1).matches()) {
+        return sha1.toLowerCase();
+      }
+    } catch (@SuppressWarnings("unused") final NoSuchFileException e) {
+      // compute it
+    }
+    try (var is = Files.newInputStream(file)) {
+      return sha1(is);
+    }
+  }
+
+  private static Map<String, Artifact> readIndex(final Path indexFile, final Path root) {
+    try (var is = Files.newInputStream(indexFile); var in = new DataInputStream(new BufferedInputStream(is))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !root.toString().equals(in.readUTF())) {
+        return Map.of();
+      }
+      final Map<String, Artifact> artifacts = new HashMap<>();
+      for (var n = in.readInt(); n > 0; --n) {
+        final var artifact = Artifact.read(in);
+        artifacts.put(artifact.path(), artifact);
+      }
+      return artifacts;
+    } catch (@SuppressWarnings("unused") final IOException e) {
+      return Map.of(); // missing or invalid: index it again
+    }
+  }
+
+  private static void writeIndex(final Path indexFile, final Path root, final List<Artifact> artifacts)
+      throws IOException {
+    final var parent = indexFile.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    final var temp = Files.createTempFile(parent, indexFile.getFileName().toString(), ".tmp");
+    try {
+      try (var os = Files.newOutputStream(temp); var out = new DataOutputStream(new BufferedOutputStream(os))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(root.toString());
+        out.writeInt(artifacts.size());
+        for (final var artifact : artifacts) {
+          artifact.write(out);
+        }
+      }
+      Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * An indexed JAR, with the size and modification time it had when its SHA-1 was read.
+   */
+  private record Artifact(String path, long size, long lastModified, String sha1) {
+
+    boolean isUpToDate(final Path file) {
+      try {
+        return size == Files.size(file) && lastModified == Files.getLastModifiedTime(file).toMillis();
+      } catch (@SuppressWarnings("unused") final IOException e) {
+        return false;
+      }
+    }
+
+    static Artifact read(final DataInput in) throws IOException {
+      return new Artifact(ScanCache.readString(in), in.readLong(), in.readLong(), ScanCache.readString(in));
+    }
+
+    void write(final DataOutput out) throws IOException {
+      ScanCache.writeString(out, path);
+      out.writeLong(size);
+      out.writeLong(lastModified);
+      ScanCache.writeString(out, sha1);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.module.ModuleFinder;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.commons.csv.CSVPrinter;
+
+/**
+ * Find classes referenced by the classes of a JAR, but found neither in the JARs nor in the modules of the JDK running
+ * this tool.
+ * <p>
+ * References are collected by {@link ClassReferenceJARProcessor}: this processor has no result per JAR, and nothing to
+ * cache.
+ *
+ * @author gael.lhez
+ */
+public class MissingClassJARProcessor extends ReportFileJARProcessor implements CacheableJARProcessor {
+  private static final int CACHE_VERSION = 1;
+  private static final String CLASS_EXTENSION = ".class";
+
+  private final ClassReferenceJARProcessor classReferenceJARProcessor;
+  private final Optional<MavenArtifactsJARProcessor> mavenArtifactsJARProcessor;
+
+  public MissingClassJARProcessor(final ReportFile reportFile,
+      final ClassReferenceJARProcessor classReferenceJARProcessor,
+      final MavenArtifactsJARProcessor mavenArtifactsJARProcessor) {
+    super("Missing class", reportFile);
+    this.classReferenceJARProcessor = Objects.requireNonNull(classReferenceJARProcessor, "classReferenceJARProcessor");
+    this.mavenArtifactsJARProcessor = Optional.ofNullable(mavenArtifactsJARProcessor); // optional
+  }
+
+  @Override
+  public List<JARProcessor> getDependencies() {
+    return Stream.<JARProcessor>concat(Stream.of(classReferenceJARProcessor), mavenArtifactsJARProcessor.stream())
+                 .toList();
+  }
+
+  @Override
+  public void init() {
+    // references are collected by ClassReferenceJARProcessor
+  }
+
+  @Override
+  public void process(final ProcessorContext context, final JARArchive archive) {
+    // references are collected by ClassReferenceJARProcessor
+  }
+
+  @Override
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    // references are collected by ClassReferenceJARProcessor
+  }
+
+  @Override
+  public String getCacheName() {
+    return "missing-class";
+  }
+
+  @Override
+  public int getCacheVersion() {
+    return CACHE_VERSION;
+  }
+
+  @Override
+  public void writeCache(final JARInformation jarInformation, final DataOutput out) {
+    // nothing to write
+  }
+
+  @Override
+  public void readCache(final JARInformation jarInformation, final DataInput in) {
+    // nothing to read
+  }
+
+  /**
+   * Resolve each distinct reference once: against the classes of all JARs, then against the modules of the JDK.
+   */
+  @Override
+  protected void finish(final CSVPrinter printer) throws IOException {
+    final var referencesPerJAR = classReferenceJARProcessor.getReferences();
+    final var n = classReferenceJARProcessor.getClassCount();
+    final var defined = new BitSet(n);
+    for (final var references : referencesPerJAR.values()) {
+      for (final var id : references.classes()) {
+        defined.set(id);
+      }
+    }
+    final var jdkClasses = listJDKClasses();
+    final var missing = new BitSet(n);
+    for (var id = defined.nextClearBit(0); id < n; id = defined.nextClearBit(id + 1)) {
+      if (!jdkClasses.contains(classReferenceJARProcessor.getClassName(id))) {
+        missing.set(id);
+      }
+    }
+
+    printer.printRecord("JAR", "GAV", "Class", "Missing class");
+    for (final var entry : referencesPerJAR.entrySet()) {
+      final var jar = entry.getKey();
+      final var references = entry.getValue();
+      final var gav = mavenArtifactsJARProcessor.map(p -> p.getGAVAsString(jar)).orElse("");
+      for (var i = 0; i < references.classes().length; ++i) {
+        final var className = toClassName(classReferenceJARProcessor.getClassName(references.classes()[i]));
+        for (var k = references.offsets()[i]; k < references.offsets()[i + 1]; ++k) {
+          final var id = references.references()[k];
+          if (missing.get(id)) {
+            printer.printRecord(jar, gav, className, toClassName(classReferenceJARProcessor.getClassName(id)));
+          }
+        }
+      }
+    }
+  }
+
+  private static String toClassName(final String internalName) {
+    return internalName.replace('/', '.');
+  }
+
+  /**
+   * Classes of the modules of the running JDK, in internal form.
+   */
+  private static Set<String> listJDKClasses() {
+    final Set<String> classes = new HashSet<>();
+    for (final var module : ModuleFinder.ofSystem().findAll()) {
+      try (var reader = module.open(); var resources = reader.list()) {
+        resources.filter(name -> name.endsWith(CLASS_EXTENSION))
+                 .forEach(name -> classes.add(name.substring(0, name.length() - CLASS_EXTENSION.length())));
+      } catch (final IOException e) {
+        throw new UncheckedIOException("Could not list classes of module " + module.descriptor().name(), e);
+      }
+    }
+    return classes;
+  }
+}
@@ -1,44 +1,72 @@
 package com.github.glhez.jtools.jar.internal;
 
-import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.lang.module.ModuleDescriptor;
-import java.util.LinkedHashMap;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.jar.JarFile;
-import java.util.jar.Manifest;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.zip.ZipEntry;
 
 import org.apache.commons.csv.CSVPrinter;
 
-public class ModuleJARProcessor extends ReportFileJARProcessor {
+public class ModuleJARProcessor extends StreamingReportFileJARProcessor implements CacheableJARProcessor {
+  private static final int CACHE_VERSION = 1;
+  private static final String MODULE_INFO = "module-info.class";
+
   private final MavenArtifactsJARProcessor mavenArtifactsProcessor;
-  private final Map<JARInformation, ModuleDescriptor> moduleDescriptors;
+  private final ConcurrentNavigableMap<JARInformation, ModuleDescriptor> moduleDescriptors;
+  /**
+   * Content of <code>module-info.class</code>, kept for {@link #writeCache(JARInformation, DataOutput)}.
+   */
+  private final Map<JARInformation, byte[]> moduleInfos;
 
   public ModuleJARProcessor(final Optional<ReportFile> reportFile,
       final MavenArtifactsJARProcessor mavenArtifactsProcessor) {
     super("Java Module", reportFile);
-    this.mavenArtifactsProcessor = mavenArtifactsProcessor;
-    this.moduleDescriptors = new LinkedHashMap<>();
+    this.mavenArtifactsProcessor = Objects.requireNonNull(mavenArtifactsProcessor, "mavenArtifactsProcessor");
+    this.moduleDescriptors = new ConcurrentSkipListMap<>();
+    this.moduleInfos = new ConcurrentSkipListMap<>();
+  }
+
+  @Override
+  public List<JARProcessor> getDependencies() {
+    return List.of(mavenArtifactsProcessor);
   }
 
   @Override
-  public void init() {
+  protected void reset() {
     moduleDescriptors.clear();
+    moduleInfos.clear();
+  }
+
+  @Override
+  public void process(final ProcessorContext context, final JARArchive archive) {
+    process(context, archive, archive.getJarEntry(MODULE_INFO));
   }
 
+  /**
+   * Resolve <code>module-info.class</code> for this version, which may be the one of the base version.
+   */
   @Override
-  public void process(final ProcessorContext context, final JarFile jarFile) {
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    process(context, version.getArchive(), version.getEntry(MODULE_INFO));
+  }
+
+  private void process(final ProcessorContext context, final JARArchive archive, final ZipEntry moduleInfo) {
     try {
-      final var moduleInfo = jarFile.getEntry("module-info.class");
 
       if (null != moduleInfo) {
-        handleModuleDescriptor(context, jarFile, moduleInfo);
+        handleModuleDescriptor(context, archive, moduleInfo);
         return;
       }
 
-      Optional.ofNullable(jarFile.getManifest()).map(Manifest::getMainAttributes).map(attr -> attr.getValue("Automatic-Module-Name"))
+      Optional.ofNullable(archive.getManifest()).map(JARManifest::getMainAttributes).map(attr -> attr.getValue("Automatic-Module-Name"))
               .ifPresent(name -> this.moduleDescriptors.put(context.getJARInformation(), ModuleDescriptor.newAutomaticModule(name).build()));
 
     } catch (final IOException | java.lang.module.InvalidModuleDescriptorException
@@ -48,20 +76,78 @@ public class ModuleJARProcessor extends ReportFileJARProcessor {
     }
   }
 
-  private void handleModuleDescriptor(final ProcessorContext context, final JarFile jarFile,
+  private void handleModuleDescriptor(final ProcessorContext context, final JARArchive archive,
       final ZipEntry moduleInfo) {
-    try (var is = jarFile.getInputStream(moduleInfo); var bis = new BufferedInputStream(is)) {
-      final var module = java.lang.module.ModuleDescriptor.read(bis);
+    try (var is = archive.getInputStream(moduleInfo)) {
+      final var content = is.readAllBytes();
+      final var module = java.lang.module.ModuleDescriptor.read(ByteBuffer.wrap(content));
       this.moduleDescriptors.put(context.getJARInformation(), module);
+      this.moduleInfos.put(context.getJARInformation(), content);
     } catch (final IOException | java.lang.SecurityException e) {
       context.addError("Failed to read module-info definition: " + e.getMessage());
     }
   }
 
   @Override
-  protected void finish(final CSVPrinter printer) throws IOException {
+  public String getCacheName() {
+    return "module";
+  }
+
+  @Override
+  public int getCacheVersion() {
+    return CACHE_VERSION;
+  }
+
+  /**
+   * Write 0 if there is no module, 1 followed by the name of an automatic module, or 2 followed by the content of
+   * <code>module-info.class</code>.
+   */
+  @Override
+  public void writeCache(final JARInformation jarInformation, final DataOutput out) throws IOException {
+    final var descriptor = moduleDescriptors.get(jarInformation);
+    final var content = moduleInfos.get(jarInformation);
+    if (null == descriptor) {
+      out.writeByte(0);
+    } else if (null == content) {
+      out.writeByte(1);
+      ScanCache.writeString(out, descriptor.name());
+    } else {
+      out.writeByte(2);
+      out.writeInt(content.length);
+      out.write(content);
+    }
+  }
+
+  @Override
+  public void readCache(final JARInformation jarInformation, final DataInput in) throws IOException {
+    final var kind = in.readByte();
+    switch (kind) {
+      case 0 -> {
+        // no module
+      }
+      case 1 -> moduleDescriptors.put(jarInformation,
+                                      ModuleDescriptor.newAutomaticModule(ScanCache.readString(in)).build());
+      case 2 -> {
+        final var content = new byte[in.readInt()];
+        in.readFully(content);
+        moduleDescriptors.put(jarInformation, ModuleDescriptor.read(ByteBuffer.wrap(content)));
+        moduleInfos.put(jarInformation, content);
+      }
+      default -> throw new IOException("invalid module: " + kind);
+    }
+  }
+
+  @Override
+  protected void printHeader(final CSVPrinter printer) throws IOException {
     printer.printRecord("Module and Version", "Automatic", "Maven GAV", "File");
-    for (final var entry : moduleDescriptors.entrySet()) {
+  }
+
+  /**
+   * Print the rows of a file; the descriptors are kept for other processors.
+   */
+  @Override
+  protected void printRows(final CSVPrinter printer, final JARInformation file) throws IOException {
+    for (final var entry : moduleDescriptors.subMap(file, true, lastVersion(file), true).entrySet()) {
       final var jarInformation = entry.getKey();
       final var module = entry.getValue();
       final var gav = mavenArtifactsProcessor.getGAVAsString(jarInformation);
@@ -0,0 +1,135 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * A version of a Multi-Release JAR, as an overlay of the base version.
+ * <p>
+ * The JAR is opened once: entries of this version are resolved the same way a
+ * {@link JarFile} opened with this version would (the highest <code>META-INF/versions/N/</code> not greater than
+ * this version wins), but the other entries are shared with the base version.
+ *
+ * @author gael.lhez
+ */
+public final class MultiReleaseVersion {
+  private static final String VERSIONS_DIRECTORY = "META-INF/versions/";
+  private static final int BASE_FEATURE = JarFile.baseVersion().feature();
+
+  private final JARInformation base;
+  private final JARInformation jarInformation;
+  private final JARArchive archive;
+  private final int[] versions;
+
+  private MultiReleaseVersion(final JARInformation base, final JARArchive archive, final int feature,
+      final int[] versions) {
+    this.base = Objects.requireNonNull(base, "base");
+    this.jarInformation = base.asMultiReleaseVersion(feature);
+    this.archive = Objects.requireNonNull(archive, "archive");
+    this.versions = versions;
+  }
+
+  /**
+   * Find the versions of a Multi-Release JAR.
+   * <p>
+   * Like {@link JarFile}, any entry in <code>META-INF/versions/N/</code> may be used to resolve an entry, but only
+   * versions having a <code>META-INF/versions/N/</code> directory entry are returned.
+   *
+   * @param base
+   *          the base version.
+   * @param archive
+   *          the JAR.
+   * @return versions, in order of appearance in the JAR.
+   */
+  public static List<MultiReleaseVersion> of(final JARInformation base, final JARArchive archive) {
+    final List<Integer> features = new ArrayList<>();
+    final var versions = new TreeSet<Integer>();
+    try (var ss = archive.stream()) {
+      ss.map(JarEntry::getName).filter(name -> name.startsWith(VERSIONS_DIRECTORY)).forEach(name -> {
+        final var n = name.indexOf('/', VERSIONS_DIRECTORY.length());
+        if (n == -1) {
+          return;
+        }
+        final var feature = parseFeature(name.substring(VERSIONS_DIRECTORY.length(), n));
+        if (feature > BASE_FEATURE) {
+          versions.add(feature);
+        }
+        if (feature >= 0 && n == name.length() - 1) {
+          features.add(feature);
+        }
+      });
+    }
+    final var descendingVersions = versions.descendingSet().stream().mapToInt(Integer::intValue).toArray();
+    return features.stream().map(feature -> new MultiReleaseVersion(base, archive, feature, descendingVersions))
+                   .toList();
+  }
+
+  private static int parseFeature(final String value) {
+    if (value.isEmpty() || !value.chars().allMatch(c -> c >= '0' && c <= '9')) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (@SuppressWarnings("unused") final NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * The base version of the JAR.
+   *
+   * @return the {@link JARInformation} of the base version.
+   */
+  public JARInformation getBase() {
+    return base;
+  }
+
+  /**
+   * This version of the JAR.
+   *
+   * @return the {@link JARInformation} of this version.
+   */
+  public JARInformation getJARInformation() {
+    return jarInformation;
+  }
+
+  /**
+   * The JAR, which is not versioned.
+   *
+   * @return the JAR.
+   */
+  public JARArchive getArchive() {
+    return archive;
+  }
+
+  /**
+   * Find an entry, as seen by this version.
+   *
+   * @param name
+   *          name of the entry (eg: <code>module-info.class</code>).
+   * @return the versioned entry, the entry of the base version or <code>null</code>.
+   */
+  public JarEntry getEntry(final String name) {
+    if (!name.startsWith("META-INF/")) {
+      for (final int version : versions) {
+        if (version <= jarInformation.feature) {
+          final var entry = archive.getJarEntry(VERSIONS_DIRECTORY + version + "/" + name);
+          if (null != entry && !entry.isDirectory()) {
+            return entry;
+          }
+        }
+      }
+    }
+    return archive.getJarEntry(name);
+  }
+
+  @Override
+  public String toString() {
+    return jarInformation.toString();
+  }
+
+}
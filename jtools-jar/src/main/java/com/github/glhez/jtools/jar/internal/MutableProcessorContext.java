@@ -3,36 +3,63 @@ package com.github.glhez.jtools.jar.internal;
 import static java.util.Objects.requireNonNull;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
-public class MutableProcessorContext implements ProcessorContext {
-  private JARInformation jarInformation;
-  private final Map<JARInformation, List<String>> errors;
+/**
+ * Collect errors for all processed JAR.
+ * <p>
+ * This class is thread safe: each worker should use its own {@link ProcessorContext} obtained using
+ * {@link #withSource(JARInformation)}. Errors are sorted by {@link JARInformation}, which is the order in which a
+ * sequential run would have added them.
+ */
+public class MutableProcessorContext {
+  private final ConcurrentMap<JARInformation, List<String>> errors;
 
   public MutableProcessorContext() {
-    this.errors = new LinkedHashMap<>();
+    this.errors = new ConcurrentSkipListMap<>();
   }
 
-  public void setSource(final JARInformation information) {
-    this.jarInformation = Objects.requireNonNull(information, "jarInformation");
+  /**
+   * Create a context for some source.
+   *
+   * @param information
+   *          the source being processed.
+   * @return a context adding errors to this context.
+   */
+  public ProcessorContext withSource(final JARInformation information) {
+    return new SourceProcessorContext(Objects.requireNonNull(information, "jarInformation"));
   }
 
   public Map<JARInformation, List<String>> getErrors() {
     return errors;
   }
 
-  @Override
-  public JARInformation getJARInformation() {
-    return jarInformation;
+  private void addError(final JARInformation jarInformation, final String message) {
+    requireNonNull(message, "message");
+    errors.computeIfAbsent(jarInformation, key -> Collections.synchronizedList(new ArrayList<>())).add(message);
   }
 
-  @Override
-  public void addError(final String message) {
-    requireNonNull(message, "message");
-    errors.computeIfAbsent(jarInformation, key -> new ArrayList<>()).add(message);
+  private class SourceProcessorContext implements ProcessorContext {
+    private final JARInformation jarInformation;
+
+    SourceProcessorContext(final JARInformation jarInformation) {
+      this.jarInformation = jarInformation;
+    }
+
+    @Override
+    public JARInformation getJARInformation() {
+      return jarInformation;
+    }
+
+    @Override
+    public void addError(final String message) {
+      MutableProcessorContext.this.addError(jarInformation, message);
+    }
   }
 
 }
@@ -33,4 +33,17 @@ public interface ProcessorContext {
       addError(message);
     }
   }
+
+  /**
+   * Context to use for some processor.
+   * <p>
+   * This allows a context to know which processor reported an error (see {@link ScanCache}).
+   *
+   * @param processor
+   *          the processor.
+   * @return a context (this context by default).
+   */
+  default ProcessorContext forProcessor(final JARProcessor processor) {
+    return this;
+  }
 }
@@ -0,0 +1,218 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Wall time, CPU time, entries visited, bytes inflated and errors of each processor, for each JAR.
+ * <p>
+ * Values are collected by a {@link Recorder}, used by a single thread while a JAR is processed, and published once the
+ * JAR is processed. The CPU time is the time of the current thread, if supported by the JVM.
+ *
+ * @author gael.lhez
+ */
+public class ProcessorMetrics {
+  private static final int WALL_TIME = 0;
+  private static final int CPU_TIME = 1;
+  private static final int ENTRIES = 2;
+  private static final int BYTES = 3;
+  private static final int ERRORS = 4;
+  private static final int FIELDS = 5;
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private final List<String> names;
+  private final ConcurrentNavigableMap<JARInformation, long[]> metrics;
+  private final ThreadMXBean threadMXBean;
+  private final boolean cpuTime;
+
+  public ProcessorMetrics(final List<JARProcessor> processors) {
+    this.names = processors.stream().map(ProcessorMetrics::getName).toList();
+    this.metrics = new ConcurrentSkipListMap<>();
+    this.threadMXBean = ManagementFactory.getThreadMXBean();
+    this.cpuTime = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+  }
+
+  /**
+   * Name of a processor in reports: the name of its class, without the <code>JARProcessor</code> suffix.
+   */
+  private static String getName(final JARProcessor processor) {
+    final var name = processor.getClass().getSimpleName();
+    return name.endsWith("JARProcessor") ? name.substring(0, name.length() - "JARProcessor".length()) : name;
+  }
+
+  /**
+   * Create a recorder for a JAR.
+   *
+   * @param file
+   *          the JAR.
+   * @return a recorder, to be used by the current thread.
+   */
+  public Recorder newRecorder(final JARInformation file) {
+    return new Recorder(Objects.requireNonNull(file, "file"), new long[FIELDS * names.size()]);
+  }
+
+  /**
+   * Write a row per JAR and processor.
+   *
+   * @param reportFile
+   *          the report.
+   * @throws IOException
+   *           if the report could not be written.
+   */
+  public void write(final ReportFile reportFile) throws IOException {
+    try (var printer = reportFile.toCsvPrinter()) {
+      printer.printRecord("JAR", "Processor", "Wall time (ms)", "CPU time (ms)", "Entries", "Bytes inflated",
+                          "Errors");
+      for (final var entry : metrics.entrySet()) {
+        final var values = entry.getValue();
+        for (var i = 0; i < names.size(); ++i) {
+          final var offset = i * FIELDS;
+          printer.printRecord(entry.getKey(), names.get(i), millis(values[offset + WALL_TIME]),
+                              cpuTime ? millis(values[offset + CPU_TIME]) : "", values[offset + ENTRIES],
+                              values[offset + BYTES], values[offset + ERRORS]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Print the slowest JARs, and the total of each processor.
+   *
+   * @param out
+   *          where to print.
+   * @param limit
+   *          number of JARs to print.
+   */
+  public void printSummary(final PrintStream out, final int limit) {
+    final List<Map.Entry<JARInformation, Long>> jars = new ArrayList<>();
+    final var totals = new long[FIELDS * names.size()];
+    for (final var entry : metrics.entrySet()) {
+      final var values = entry.getValue();
+      var wallTime = 0L;
+      for (var i = 0; i < values.length; ++i) {
+        totals[i] += values[i];
+        if (i % FIELDS == WALL_TIME) {
+          wallTime += values[i];
+        }
+      }
+      jars.add(Map.entry(entry.getKey(), wallTime));
+    }
+    jars.sort(Map.Entry.<JARInformation, Long>comparingByValue().reversed());
+
+    out.println("-------------------------------");
+    out.printf("Slowest JARs (%d processed):%n", jars.size());
+    jars.stream()
+        .limit(limit)
+        .forEach(entry -> out.printf("  %10s ms  %s%n", millis(entry.getValue()), entry.getKey()));
+
+    out.println("Processors:");
+    final List<Integer> processors = new ArrayList<>();
+    for (var i = 0; i < names.size(); ++i) {
+      processors.add(i);
+    }
+    processors.sort(Comparator.comparingLong((final Integer i) -> totals[i * FIELDS + WALL_TIME]).reversed());
+    for (final var i : processors) {
+      final var offset = i * FIELDS;
+      out.printf("  %10s ms  %-16s cpu: %s ms, entries: %d, bytes inflated: %d, errors: %d%n",
+                 millis(totals[offset + WALL_TIME]), names.get(i),
+                 cpuTime ? millis(totals[offset + CPU_TIME]) : "n/a", totals[offset + ENTRIES], totals[offset + BYTES],
+                 totals[offset + ERRORS]);
+    }
+  }
+
+  private static String millis(final long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+  }
+
+  /**
+   * Collect the metrics of a JAR.
+   * <p>
+   * A call to {@link #start()} must be followed by a call to {@link #stop(int)}, which accounts the time in between to
+   * a processor.
+   */
+  public final class Recorder {
+    private final JARInformation file;
+    private final long[] values;
+    private long wallTime;
+    private long threadCpuTime;
+
+    private Recorder(final JARInformation file, final long[] values) {
+      this.file = file;
+      this.values = values;
+    }
+
+    public void start() {
+      wallTime = System.nanoTime();
+      threadCpuTime = cpuTime ? threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    public void stop(final int processor) {
+      final var offset = processor * FIELDS;
+      values[offset + WALL_TIME] += System.nanoTime() - wallTime;
+      if (cpuTime) {
+        values[offset + CPU_TIME] += threadMXBean.getCurrentThreadCpuTime() - threadCpuTime;
+      }
+    }
+
+    /**
+     * Account an entry visited by a processor.
+     *
+     * @param processor
+     *          index of the processor.
+     * @param bytes
+     *          number of bytes inflated by the processor.
+     */
+    public void addEntry(final int processor, final long bytes) {
+      final var offset = processor * FIELDS;
+      ++values[offset + ENTRIES];
+      values[offset + BYTES] += bytes;
+    }
+
+    /**
+     * Count the errors of a processor.
+     *
+     * @param processor
+     *          index of the processor.
+     * @param context
+     *          the context of the processor.
+     * @return a context.
+     */
+    public ProcessorContext countErrors(final int processor, final ProcessorContext context) {
+      return new ProcessorContext() {
+        @Override
+        public JARInformation getJARInformation() {
+          return context.getJARInformation();
+        }
+
+        @Override
+        public void addError(final String message) {
+          ++values[processor * FIELDS + ERRORS];
+          context.addError(message);
+        }
+      };
+    }
+
+    /**
+     * Publish the metrics.
+     */
+    public void save() {
+      metrics.merge(file, values, (a, b) -> {
+        final var sum = a.clone();
+        for (var i = 0; i < sum.length; ++i) {
+          sum[i] += b[i];
+        }
+        return sum;
+      });
+    }
+  }
+}
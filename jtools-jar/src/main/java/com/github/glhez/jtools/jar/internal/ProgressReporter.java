@@ -0,0 +1,214 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Report the progress of a scan.
+ * <p>
+ * Progress is printed once per interval by a timer, whatever the number of workers: the number of JAR processed, the
+ * throughput in JAR and MiB per second, the estimated remaining time and the file being processed for the longest time,
+ * which is then reported while it is being processed. Each file is only logged in verbose mode.
+ * <p>
+ * When files are processed while they are found, the number of files is only known once they were all found: there is
+ * no estimated remaining time until then.
+ *
+ * @author gael.lhez
+ */
+public class ProgressReporter {
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final double BYTES_PER_MIB = 1024.0 * 1024.0;
+  private static final long MIN_INTERVAL = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final PrintStream out;
+  private final long interval;
+  private final Optional<PrintStream> log;
+  private final Map<JARInformation, Long> running;
+  private final AtomicInteger processed;
+  private final LongAdder bytes;
+  private final AtomicReference<ScheduledExecutorService> timer;
+  private final AtomicInteger fileCount;
+  private volatile boolean discovering;
+  private volatile long startTime;
+
+  /**
+   * Create a new reporter.
+   *
+   * @param out
+   *          where to print the progress.
+   * @param interval
+   *          time between two progress reports, at least a millisecond.
+   * @param log
+   *          where to log each file, in verbose mode.
+   */
+  public ProgressReporter(final PrintStream out, final Duration interval, final Optional<PrintStream> log) {
+    this.out = Objects.requireNonNull(out, "out");
+    this.interval = Math.max(MIN_INTERVAL, Objects.requireNonNull(interval, "interval").toNanos());
+    this.log = Objects.requireNonNull(log, "log");
+    this.running = new ConcurrentHashMap<>();
+    this.processed = new AtomicInteger();
+    this.fileCount = new AtomicInteger();
+    this.bytes = new LongAdder();
+    this.timer = new AtomicReference<>();
+  }
+
+  /**
+   * Start a scan, and the timer printing its progress.
+   *
+   * @param fileCount
+   *          number of files to process.
+   */
+  public void start(final int fileCount) {
+    this.fileCount.set(fileCount);
+    this.discovering = false;
+    this.startTime = System.nanoTime();
+    final var executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final var thread = new Thread(runnable, "jtools-jar-progress");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleAtFixedRate(() -> report(System.nanoTime()), interval, interval, TimeUnit.NANOSECONDS);
+    stop(timer.getAndSet(executor));
+  }
+
+  /**
+   * Start a scan whose files are not known yet.
+   */
+  public void startDiscovery() {
+    start(0);
+    this.discovering = true;
+  }
+
+  /**
+   * Some files were found.
+   *
+   * @param count
+   *          number of files found.
+   */
+  public void found(final int count) {
+    fileCount.addAndGet(count);
+  }
+
+  /**
+   * All files were found.
+   */
+  public void discovered() {
+    this.discovering = false;
+    log("Found " + fileCount.get() + " files");
+  }
+
+  /**
+   * A file is being processed.
+   *
+   * @param file
+   *          the file.
+   */
+  public void started(final JARInformation file) {
+    running.put(file, System.nanoTime());
+    if (log.isPresent()) {
+      log.get().printf(Locale.ROOT, "Processing file: [%6.2f%%] %s%n", percent(processed.get()), file.archivePath);
+    }
+  }
+
+  /**
+   * A file was processed, restored from the cache or copied from an identical file.
+   *
+   * @param file
+   *          the file.
+   * @param size
+   *          number of bytes of the file which were read.
+   */
+  public void done(final JARInformation file, final long size) {
+    running.remove(file);
+    bytes.add(size);
+    processed.incrementAndGet();
+  }
+
+  /**
+   * Log a message, in verbose mode.
+   *
+   * @param message
+   *          the message.
+   */
+  public void log(final String message) {
+    if (log.isPresent()) {
+      log.get().println(message);
+    }
+  }
+
+  /**
+   * Stop the timer, and print the final progress.
+   * <p>
+   * Only the first call after {@link #start(int)} prints something: this may be called again if the scan failed.
+   */
+  public void finish() {
+    final var executor = timer.getAndSet(null);
+    if (null != executor) {
+      stop(executor);
+      report(System.nanoTime());
+    }
+  }
+
+  /**
+   * Stop a timer, waiting for the progress it may be printing.
+   */
+  private static void stop(final ScheduledExecutorService executor) {
+    if (null == executor) {
+      return;
+    }
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (@SuppressWarnings("unused") final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void report(final long now) {
+    final var count = processed.get();
+    final var total = fileCount.get();
+    final var elapsed = Math.max(1, now - startTime) / NANOS_PER_SECOND;
+    final var rate = count / elapsed;
+    final var message = new StringBuilder();
+    if (discovering) {
+      message.append(String.format(Locale.ROOT, "Processed %d/%d+ JAR (discovering) - %.1f JAR/s, %.1f MiB/s", count,
+                                   total, rate, bytes.sum() / BYTES_PER_MIB / elapsed));
+    } else {
+      message.append(String.format(Locale.ROOT, "Processed %d/%d JAR [%6.2f%%] - %.1f JAR/s, %.1f MiB/s", count,
+                                   total, percent(count), rate, bytes.sum() / BYTES_PER_MIB / elapsed));
+      if (count < total && count > 0) {
+        message.append(", ETA ").append(format(Duration.ofSeconds((long) ((total - count) / rate))));
+      } else if (count == total) {
+        message.append(", elapsed ").append(format(Duration.ofNanos(now - startTime)));
+      }
+    }
+    running.entrySet()
+           .stream()
+           .min(Map.Entry.comparingByValue(Comparator.naturalOrder()))
+           .ifPresent(e -> message.append(String.format(Locale.ROOT, " - slowest: %s (%.1f s)", e.getKey(),
+                                                        (now - e.getValue()) / NANOS_PER_SECOND)));
+    out.println(message);
+  }
+
+  private double percent(final int count) {
+    final var total = fileCount.get();
+    return total == 0 ? 100 : 100 * (count / (double) total);
+  }
+
+  private static String format(final Duration duration) {
+    return String.format(Locale.ROOT, "%d:%02d:%02d", duration.toHours(), duration.toMinutesPart(),
+                         duration.toSecondsPart());
+  }
+}
@@ -0,0 +1,30 @@
+package com.github.glhez.jtools.jar.internal;
+
+/**
+ * A {@link JAREntryVisitor} whose entries may be split in ranges, each visited by its own thread.
+ *
+ * @author gael.lhez
+ */
+public interface RangeJAREntryVisitor extends JAREntryVisitor {
+  /**
+   * Create a visitor for a range of the entries of the same JAR, used by another thread.
+   * <p>
+   * This visitor visits the first range of entries; once all ranges were visited, the visitor of each other range is
+   * given to {@link #merge(RangeJAREntryVisitor)} in entry order, then {@link #visitEnd()} is only invoked on this
+   * visitor. The result must be the same as if this visitor visited all entries.
+   *
+   * @param context
+   *          the context receiving the errors of the range.
+   * @return a visitor, or <code>null</code> if this visitor must visit all entries of this JAR.
+   */
+  RangeJAREntryVisitor newRangeVisitor(ProcessorContext context);
+
+  /**
+   * Merge the result of a visitor returned by {@link #newRangeVisitor(ProcessorContext)}, whose entries follow the
+   * entries visited or merged so far.
+   *
+   * @param range
+   *          a visitor created by this visitor.
+   */
+  void merge(RangeJAREntryVisitor range);
+}
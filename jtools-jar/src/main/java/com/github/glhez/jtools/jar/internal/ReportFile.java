@@ -1,41 +1,67 @@
 package com.github.glhez.jtools.jar.internal;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 
+/**
+ * A CSV report.
+ * <p>
+ * Reports are written through a large buffer, so that the file is written in a few large chunks. They may be
+ * compressed, on a dedicated thread, and split in numbered shards (<code>class-00001.csv</code>,
+ * <code>class-00002.csv</code>, ...) each starting with the header.
+ *
+ * @author gael.lhez
+ */
 public class ReportFile {
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  private static final String EXTENSION = ".csv";
+
   private final CSVFormat format;
   private final Path path;
+  private final Options options;
 
-  private ReportFile(final CSVFormat format, final Path path) {
+  private ReportFile(final CSVFormat format, final Path path, final Options options) {
     this.format = format;
     this.path = path;
+    this.options = options;
   }
 
   public static ReportFile newReportFile(final CSVFormat format, final Path outputDirectory, final String filename) {
+    return newReportFile(format, outputDirectory, filename, Options.DEFAULT);
+  }
+
+  public static ReportFile newReportFile(final CSVFormat format, final Path outputDirectory, final String filename,
+      final Options options) {
     Objects.requireNonNull(format, "format");
     Objects.requireNonNull(outputDirectory, "outputDirectory");
     Objects.requireNonNull(filename, "filename");
-    final var fn = !filename.toLowerCase().endsWith(".csv") ? filename + ".csv" : filename;
-    return new ReportFile(format, outputDirectory.resolve(fn));
+    Objects.requireNonNull(options, "options");
+    final var fn = !filename.toLowerCase().endsWith(EXTENSION) ? filename + EXTENSION : filename;
+    return new ReportFile(format, outputDirectory.resolve(fn), options);
   }
 
   public CSVPrinter toCsvPrinter() throws IOException {
-    createParentIfNeeded();
-    return format.print(path, StandardCharsets.UTF_8);
+    return new CSVPrinter(newWriter(), format);
   }
 
   @Deprecated
   public CSVPrinter toCsvPrinter(final String... headers) throws IOException {
-    createParentIfNeeded();
-    return format.withHeader(headers).print(path, StandardCharsets.UTF_8);
+    return new CSVPrinter(newWriter(), format.withHeader(headers));
   }
 
   @Deprecated
@@ -43,6 +69,35 @@ public class ReportFile {
     return toCsvPrinter(headers.toArray(String[]::new));
   }
 
+  private Writer newWriter() throws IOException {
+    createParentIfNeeded();
+    if (!options.isSharded()) {
+      return newWriter(options.compression.getPath(path));
+    }
+    final var quote = format.getQuoteCharacter();
+    return new ShardedWriter(shard -> newWriter(getShardPath(shard)), null == quote ? '\0' : quote.charValue(),
+                             Objects.requireNonNullElse(format.getRecordSeparator(), "\n"), options.shardRows,
+                             options.shardBytes);
+  }
+
+  private Writer newWriter(final Path file) throws IOException {
+    final var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                         StandardOpenOption.WRITE);
+    OutputStream os = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+    if (options.compression == Compression.GZIP) {
+      os = new BackgroundOutputStream(new GZIPOutputStream(os, BUFFER_SIZE), BUFFER_SIZE,
+                                      "report-compression " + file.getFileName());
+    }
+    return new OutputStreamWriter(os, StandardCharsets.UTF_8);
+  }
+
+  private Path getShardPath(final Object shard) {
+    final var fn = path.getFileName().toString();
+    final var name = fn.substring(0, fn.length() - EXTENSION.length());
+    final var suffix = shard instanceof final Integer n ? String.format("%05d", n) : shard;
+    return options.compression.getPath(path.resolveSibling(name + "-" + suffix + EXTENSION));
+  }
+
   private void createParentIfNeeded() throws IOException {
     final var parent = this.path.getParent();
     if (null != parent) {
@@ -52,7 +107,50 @@ public class ReportFile {
 
   @Override
   public String toString() {
-    return path.toString();
+    return (options.isSharded() ? getShardPath("*") : options.compression.getPath(path)).toString();
+  }
+
+  /**
+   * Compression of reports.
+   */
+  public enum Compression {
+    NONE(""),
+    GZIP(".gz");
+
+    private final String extension;
+
+    Compression(final String extension) {
+      this.extension = extension;
+    }
+
+    Path getPath(final Path path) {
+      return extension.isEmpty() ? path : path.resolveSibling(path.getFileName() + extension);
+    }
+  }
+
+  /**
+   * How reports are written.
+   *
+   * @param compression
+   *          the compression.
+   * @param shardRows
+   *          maximum number of rows per shard, excluding the header (0 for no limit).
+   * @param shardBytes
+   *          maximum number of bytes per shard, before compression (0 for no limit).
+   */
+  public record Options(Compression compression, long shardRows, long shardBytes) {
+    public static final Options DEFAULT = new Options(Compression.NONE, 0, 0);
+
+    public Options {
+      Objects.requireNonNull(compression, "compression");
+      if (shardRows < 0 || shardBytes < 0) {
+        throw new IllegalArgumentException("invalid shard limit: rows=" + shardRows + ", bytes=" + shardBytes);
+      }
+    }
+
+    boolean isSharded() {
+      return shardRows > 0 || shardBytes > 0;
+    }
   }
 
 }
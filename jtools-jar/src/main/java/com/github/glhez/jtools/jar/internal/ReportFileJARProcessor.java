@@ -25,13 +25,22 @@ public abstract class ReportFileJARProcessor implements JARProcessor {
     reportFile.ifPresent(rf -> {
       try (var printer = rf.toCsvPrinter()) {
         finish(printer);
-        System.out.println("Wrote report [" + reportName + "] to [" + rf + "]");
       } catch (final IOException e) {
         throw new UncheckedIOException("Could not write report [" + reportName + "] to [" + rf + "]", e);
       }
     });
   }
 
+  @Override
+  public Optional<String> getReport() {
+    return reportFile.map(rf -> "[" + reportName + "] to [" + rf + "]");
+  }
+
+  @Override
+  public boolean hasOutput() {
+    return reportFile.isPresent();
+  }
+
   protected abstract void finish(CSVPrinter printer) throws IOException;
 
 }
@@ -4,6 +4,8 @@ import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toCollection;
 
 import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -17,24 +19,31 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.apache.commons.csv.CSVPrinter;
 
-public class SPIServiceJARProcessor extends ReportFileJARProcessor {
+public class SPIServiceJARProcessor extends ReportFileJARProcessor implements CacheableJARProcessor {
+  private static final int CACHE_VERSION = 1;
   private static final String SERVICES_DIRECTORY = "META-INF/services/";
 
   private final ModuleJARProcessor moduleJARProcessor;
   private final boolean all;
   private final Set<String> spiInterfaces;
   private final Set<String> spiInterfacesPath;
-  private final Map<String, Set<AvailableImplementation>> services;
+  private final Map<JARInformation, List<Map.Entry<String, AvailableImplementation>>> servicesPerJAR;
   private final boolean moduleOnly;
 
   public SPIServiceJARProcessor(final ReportFile reportFile, final ModuleJARProcessor moduleJARProcessor,
       final boolean all, final Set<String> spiInterfaces, final boolean moduleOnly) {
+    this(Optional.of(requireNonNull(reportFile, "reportFile")), moduleJARProcessor, all, spiInterfaces, moduleOnly);
+  }
+
+  public SPIServiceJARProcessor(final Optional<ReportFile> reportFile, final ModuleJARProcessor moduleJARProcessor,
+      final boolean all, final Set<String> spiInterfaces, final boolean moduleOnly) {
     super("SPI Service", reportFile);
     Objects.requireNonNull(spiInterfaces, "spiInterfaces");
     this.moduleJARProcessor = requireNonNull(moduleJARProcessor, "moduleJARProcessor");
@@ -43,44 +52,86 @@ public class SPIServiceJARProcessor extends ReportFileJARProcessor {
     this.spiInterfacesPath = spiInterfaces.stream()
                                           .map(path -> SERVICES_DIRECTORY + path)
                                           .collect(toCollection(LinkedHashSet::new));
-    this.services = new LinkedHashMap<>();
+    this.servicesPerJAR = new ConcurrentSkipListMap<>();
     this.moduleOnly = moduleOnly;
   }
 
+  @Override
+  public List<JARProcessor> getDependencies() {
+    return List.of(moduleJARProcessor);
+  }
+
   @Override
   public void init() {
-    services.clear();
+    servicesPerJAR.clear();
+  }
+
+  @Override
+  public void process(final ProcessorContext context, final JARArchive archive) {
+    // entries are visited
   }
 
   @Override
-  public void process(final ProcessorContext context, final JarFile jarFile) {
-    if (!moduleOnly) {
-      List<JarEntry> entries;
-      if (all) {
-        try (final var ss = jarFile.stream()) {
-          entries = ss.filter(SPIServiceJARProcessor::isCandidateForServices).toList();
+  public List<EntrySelector> getEntrySelectors() {
+    if (moduleOnly) {
+      return List.of();
+    }
+    if (all) {
+      return List.of(EntrySelector.prefix(SERVICES_DIRECTORY));
+    }
+    return spiInterfacesPath.stream().map(EntrySelector::name).toList();
+  }
+
+  @Override
+  public JAREntryVisitor newEntryVisitor(final ProcessorContext context, final JARArchive archive) {
+    final List<Map.Entry<String, AvailableImplementation>> services = new ArrayList<>();
+    return new JAREntryVisitor() {
+      @Override
+      public void visitEntry(final JAREntryContent entry) {
+        if (isCandidateForServices(entry.getName())) {
+          process(context, entry, services);
         }
-      } else {
-        entries = spiInterfacesPath.stream().map(jarFile::getJarEntry).filter(Objects::nonNull).toList();
       }
-      entries.forEach(entry -> process(context, jarFile, entry));
-    }
-    moduleJARProcessor.getModuleDescriptor(context.getJARInformation())
-                      .ifPresent(descriptor -> process(context, descriptor));
 
+      @Override
+      public void visitEnd() {
+        // module-info is processed by ModuleJARProcessor::process, which is called before visiting entries.
+        moduleJARProcessor.getModuleDescriptor(context.getJARInformation())
+                          .ifPresent(descriptor -> process(context, descriptor, services));
+        if (!services.isEmpty()) {
+          servicesPerJAR.put(context.getJARInformation(), services);
+        }
+      }
+    };
   }
 
-  private Set<AvailableImplementation> providersFor(final String service) {
-    return services.computeIfAbsent(service, key -> new LinkedHashSet<>());
+  /**
+   * Reuse the services files of the base version, but use the <code>module-info.class</code> of this version.
+   */
+  @Override
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    final List<Map.Entry<String, AvailableImplementation>> services = new ArrayList<>();
+    final var jarInformation = context.getJARInformation();
+    servicesPerJAR.getOrDefault(version.getBase(), List.of())
+                  .stream()
+                  .filter(entry -> !entry.getValue().fromModuleInfo)
+                  .forEach(entry -> services.add(Map.entry(entry.getKey(), new AvailableImplementation(jarInformation,
+                      entry.getValue().implementations, false))));
+    moduleJARProcessor.getModuleDescriptor(jarInformation)
+                      .ifPresent(descriptor -> process(context, descriptor, services));
+    if (!services.isEmpty()) {
+      servicesPerJAR.put(jarInformation, services);
+    }
   }
 
-  private void process(final ProcessorContext context, final JarFile jarFile, final JarEntry entry) {
+  private void process(final ProcessorContext context, final JAREntryContent entry,
+      final List<Map.Entry<String, AvailableImplementation>> services) {
     final var service = getServiceForEntry(entry);
     if (null == service) {
       return;
     }
-    try (final var is = jarFile.getInputStream(entry)) {
-      providersFor(service).add(AvailableImplementation.parse(context.getJARInformation(), is));
+    try (final var is = entry.newInputStream()) {
+      services.add(Map.entry(service, AvailableImplementation.parse(context.getJARInformation(), is)));
     } catch (final IOException | java.lang.SecurityException e) {
       context.addError("Failed to read services definition [" + service + "]: " + e.getMessage());
     }
@@ -90,15 +141,62 @@ public class SPIServiceJARProcessor extends ReportFileJARProcessor {
     return all || spiInterfaces.contains(provides.service());
   }
 
-  private void process(final ProcessorContext context, final ModuleDescriptor descriptor) {
+  private void process(final ProcessorContext context, final ModuleDescriptor descriptor,
+      final List<Map.Entry<String, AvailableImplementation>> services) {
     descriptor.provides().stream().filter(this::isRequestedServices).forEach(provides -> {
-      providersFor(provides.service()).add(new AvailableImplementation(context.getJARInformation(),
-          provides.providers(), true));
+      services.add(Map.entry(provides.service(), new AvailableImplementation(context.getJARInformation(),
+          provides.providers(), true)));
     });
   }
 
+  /**
+   * The result depends on the services being searched.
+   */
+  @Override
+  public String getCacheName() {
+    final var name = moduleOnly ? "services-module-only" : "services";
+    return all ? name : name + ":" + String.join(",", new TreeSet<>(spiInterfaces));
+  }
+
+  @Override
+  public int getCacheVersion() {
+    return CACHE_VERSION;
+  }
+
+  @Override
+  public void writeCache(final JARInformation jarInformation, final DataOutput out) throws IOException {
+    final var services = servicesPerJAR.getOrDefault(jarInformation, List.of());
+    out.writeInt(services.size());
+    for (final var entry : services) {
+      ScanCache.writeString(out, entry.getKey());
+      out.writeBoolean(entry.getValue().fromModuleInfo);
+      ScanCache.writeStrings(out, entry.getValue().implementations);
+    }
+  }
+
+  @Override
+  public void readCache(final JARInformation jarInformation, final DataInput in) throws IOException {
+    final List<Map.Entry<String, AvailableImplementation>> services = new ArrayList<>();
+    for (var n = in.readInt(); n > 0; --n) {
+      final var service = ScanCache.readString(in);
+      final var fromModuleInfo = in.readBoolean();
+      services.add(Map.entry(service, new AvailableImplementation(jarInformation, ScanCache.readStrings(in),
+          fromModuleInfo)));
+    }
+    if (!services.isEmpty()) {
+      servicesPerJAR.put(jarInformation, services);
+    }
+  }
+
   @Override
   protected void finish(final CSVPrinter printer) throws IOException {
+    // merge per JAR result in the order the services were found
+    final Map<String, Set<AvailableImplementation>> services = new LinkedHashMap<>();
+    servicesPerJAR.values()
+                  .forEach(list -> list.forEach(entry -> services.computeIfAbsent(entry.getKey(),
+                                                                                  key -> new LinkedHashSet<>())
+                                                                 .add(entry.getValue())));
+
     final var spiInterfaces = all ? services.keySet() : this.spiInterfaces;
 
     printer.printRecord("Interface", "Implementation count (Fileset)", "Implementation count (JAR)", "Implementation",
@@ -124,15 +222,22 @@ public class SPIServiceJARProcessor extends ReportFileJARProcessor {
     }
   }
 
-  private static boolean isCandidateForServices(final JarEntry jarEntry) {
-    return isCandidateForServices(jarEntry.getName());
+  /**
+   * Implementations of all services, in all JARs.
+   */
+  List<String> getImplementations() {
+    return servicesPerJAR.values()
+                         .stream()
+                         .flatMap(List::stream)
+                         .flatMap(entry -> entry.getValue().implementations.stream())
+                         .toList();
   }
 
   private static boolean isCandidateForServices(final String jarEntryName) {
     return !SERVICES_DIRECTORY.equals(jarEntryName) && jarEntryName.startsWith(SERVICES_DIRECTORY);
   }
 
-  private String getServiceForEntry(final JarEntry entry) {
+  private String getServiceForEntry(final JAREntryContent entry) {
     final var service = entry.getName().substring(SERVICES_DIRECTORY.length());
     if (service.contains("/")) {
       return null;
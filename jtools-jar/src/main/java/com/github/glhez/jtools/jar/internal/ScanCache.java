@@ -0,0 +1,644 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A persistent cache of the results of {@link CacheableJARProcessor}, so that a JAR which did not change since the
+ * last run is not processed again.
+ * <p>
+ * A JAR is identified by its path (and its path in its parent archive for a nested JAR) and is unchanged if the size,
+ * modification time and, optionally, the SHA-256 of the file did not change. The result of each processor is kept
+ * with its {@link CacheableJARProcessor#getCacheVersion()} and the errors it reported: a JAR is restored only if all
+ * processors have a result of the current version, otherwise it is processed again.
+ * <p>
+ * The cache may also be kept in memory between several runs, for example by a daemon (see
+ * {@link #newScanCache(ScanCache, boolean, List)}).
+ * <p>
+ * This class is thread safe.
+ *
+ * @author gael.lhez
+ */
+@SuppressWarnings("java:S106")
+public class ScanCache {
+  private static final int MAGIC = 0x4A544A43;
+  private static final int FORMAT_VERSION = 1;
+  /**
+   * Processor name of the errors reported outside of processors (for example, when the JAR could not be opened).
+   */
+  private static final String NO_PROCESSOR = "";
+
+  private final Optional<Path> path;
+  private final boolean persistent;
+  private final boolean hash;
+  private final List<JARProcessor> processors;
+  private final Map<JARProcessor, String> names;
+  private final Map<Key, Entry> previous;
+  private final Map<Key, Entry> current;
+  private final Map<Path, Stamp> stamps;
+  private final AtomicInteger hits;
+  private final AtomicInteger misses;
+
+  private ScanCache(final Optional<Path> path, final boolean persistent, final boolean hash,
+      final List<JARProcessor> processors, final Map<Key, Entry> previous) {
+    this.path = path;
+    this.persistent = persistent;
+    this.hash = hash;
+    this.processors = List.copyOf(processors);
+    this.names = new HashMap<>();
+    for (final var processor : this.processors) {
+      if (processor instanceof final CacheableJARProcessor cp) {
+        names.put(processor, cp.getCacheName());
+      }
+    }
+    this.previous = previous;
+    this.current = new ConcurrentHashMap<>();
+    this.stamps = new ConcurrentHashMap<>();
+    this.hits = new AtomicInteger();
+    this.misses = new AtomicInteger();
+  }
+
+  /**
+   * Load the cache.
+   * <p>
+   * A missing or unreadable cache is ignored (and replaced by {@link #save()}).
+   *
+   * @param path
+   *          the cache file.
+   * @param hash
+   *          compare the SHA-256 of files in addition to their size and modification time.
+   * @param processors
+   *          processors whose results are cached.
+   * @return a cache.
+   */
+  public static ScanCache load(final Path path, final boolean hash, final List<JARProcessor> processors) {
+    Objects.requireNonNull(path, "path");
+    Objects.requireNonNull(processors, "processors");
+    Map<Key, Entry> previous;
+    try (var is = Files.newInputStream(path); var dis = new DataInputStream(new BufferedInputStream(is))) {
+      previous = readEntries(dis);
+    } catch (@SuppressWarnings("unused") final NoSuchFileException e) {
+      previous = Map.of();
+    } catch (final IOException e) {
+      System.err.println("Ignoring cache [" + path + "]: " + e.getMessage());
+      previous = Map.of();
+    }
+    return new ScanCache(Optional.of(path), true, hash, processors, previous);
+  }
+
+  /**
+   * Create a cache kept in memory, used to copy the results of a JAR to identical JARs (see
+   * {@link #copy(JARInformation, List, MutableProcessorContext)}).
+   *
+   * @param processors
+   *          processors whose results are cached.
+   * @return a cache.
+   */
+  public static ScanCache newScanCache(final List<JARProcessor> processors) {
+    Objects.requireNonNull(processors, "processors");
+    return new ScanCache(Optional.empty(), false, false, processors, Map.of());
+  }
+
+  /**
+   * Create a cache kept in memory, starting with the JARs restored or processed by a previous run: JARs which were not
+   * found by the previous run are dropped.
+   *
+   * @param previous
+   *          cache of the previous run.
+   * @param hash
+   *          compare the SHA-256 of files in addition to their size and modification time.
+   * @param processors
+   *          processors whose results are cached.
+   * @return a persistent cache, which can not be saved.
+   */
+  public static ScanCache newScanCache(final ScanCache previous, final boolean hash,
+      final List<JARProcessor> processors) {
+    Objects.requireNonNull(previous, "previous");
+    Objects.requireNonNull(processors, "processors");
+    return new ScanCache(Optional.empty(), true, hash, processors, new HashMap<>(previous.current));
+  }
+
+  /**
+   * Check if this cache keeps the results of JARs for the next runs.
+   *
+   * @return <code>true</code> if this cache is stored in a file or kept in memory.
+   */
+  public boolean isPersistent() {
+    return persistent;
+  }
+
+  /**
+   * Check if this cache is stored in a file.
+   *
+   * @return <code>true</code> if this cache can be saved.
+   */
+  public boolean isStored() {
+    return path.isPresent();
+  }
+
+  /**
+   * Restore the results of a JAR, and the errors found when it was processed.
+   *
+   * @param file
+   *          a JAR, as found by {@link JARFileLocator}.
+   * @param context
+   *          context receiving the errors.
+   * @return <code>true</code> if the JAR was restored and should not be processed.
+   */
+  public boolean restore(final JARInformation file, final MutableProcessorContext context) {
+    final var key = Key.of(file);
+    final var entry = previous.get(key);
+    if (null == entry || !isUsable(entry, file)) {
+      misses.incrementAndGet();
+      return false;
+    }
+
+    if (!apply(entry, file, context)) {
+      misses.incrementAndGet();
+      return false;
+    }
+    current.put(key, entry);
+    hits.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Copy the results of a JAR, processed using a {@link Recorder}, to identical JARs.
+   * <p>
+   * Unless this cache is persistent, the results of the JAR are then discarded.
+   *
+   * @param source
+   *          a processed JAR.
+   * @param targets
+   *          identical JARs.
+   * @param context
+   *          context receiving the errors.
+   * @return the targets whose results could not be copied, and which should be processed.
+   */
+  public List<JARInformation> copy(final JARInformation source, final List<JARInformation> targets,
+      final MutableProcessorContext context) {
+    return copy(source, targets, context, isPersistent());
+  }
+
+  /**
+   * Copy the results of a JAR, processed using a {@link Recorder}, to an identical JAR.
+   * <p>
+   * The results of the JAR are kept, for identical JARs found later.
+   *
+   * @param source
+   *          a processed JAR.
+   * @param target
+   *          an identical JAR.
+   * @param context
+   *          context receiving the errors.
+   * @return <code>true</code> if the results were copied; otherwise, the target should be processed.
+   */
+  public boolean copyAndKeep(final JARInformation source, final JARInformation target,
+      final MutableProcessorContext context) {
+    return copy(source, List.of(target), context, true).isEmpty();
+  }
+
+  private List<JARInformation> copy(final JARInformation source, final List<JARInformation> targets,
+      final MutableProcessorContext context, final boolean keep) {
+    final var entry = keep ? current.get(Key.of(source)) : current.remove(Key.of(source));
+    if (null == entry || !names.keySet().containsAll(processors)) {
+      return targets;
+    }
+    final List<JARInformation> failed = new ArrayList<>();
+    for (final var target : targets) {
+      if (!apply(entry, target, context)) {
+        failed.add(target);
+      } else if (isPersistent()) {
+        try {
+          current.put(Key.of(target), new Entry(stamp(target), entry.variants, entry.errors, entry.results));
+        } catch (@SuppressWarnings("unused") final IOException e) {
+          // not cached
+        }
+      }
+    }
+    return failed;
+  }
+
+  /**
+   * Restore the results and errors of an entry to some JAR.
+   */
+  private boolean apply(final Entry entry, final JARInformation file, final MutableProcessorContext context) {
+    try {
+      for (final var processor : processors) {
+        final var cp = (CacheableJARProcessor) processor;
+        final var result = entry.results.get(cp.getCacheName());
+        try (var dis = new DataInputStream(new ByteArrayInputStream(result.data))) {
+          for (final var variant : entry.variants) {
+            cp.readCache(variant.toJARInformation(file), dis);
+          }
+        }
+      }
+    } catch (final IOException e) {
+      // the JAR will be processed again, and the result replaced.
+      System.err.println("Ignoring cached result of [" + file + "]: " + e.getMessage());
+      return false;
+    }
+
+    final Set<String> active = new LinkedHashSet<>(names.values());
+    active.add(NO_PROCESSOR);
+    for (final var error : entry.errors) {
+      if (active.contains(error.processor)) {
+        context.withSource(entry.variants.get(error.variant).toJARInformation(file)).addError(error.message);
+      }
+    }
+    return true;
+  }
+
+  private boolean isUsable(final Entry entry, final JARInformation file) {
+    for (final var processor : processors) {
+      final var name = names.get(processor);
+      if (null == name) {
+        return false;
+      }
+      final var result = entry.results.get(name);
+      if (null == result || result.version != ((CacheableJARProcessor) processor).getCacheVersion()) {
+        return false;
+      }
+    }
+    try {
+      return entry.stamp.equals(stamp(file));
+    } catch (@SuppressWarnings("unused") final IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Record the errors reported while processing a JAR, to later {@link Recorder#save()} the results of processors.
+   *
+   * @param file
+   *          a JAR, as found by {@link JARFileLocator}.
+   * @param context
+   *          context receiving the errors.
+   * @return a recorder.
+   */
+  public Recorder newRecorder(final JARInformation file, final MutableProcessorContext context) {
+    return new Recorder(file, context);
+  }
+
+  /**
+   * Write the cache, containing the JARs processed or restored during this run.
+   *
+   * @throws IOException
+   *           if the cache could not be written.
+   */
+  public void save() throws IOException {
+    final var path = this.path.orElseThrow(() -> new IllegalStateException("cache is not persistent"));
+    final var parent = path.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    final var temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+    try {
+      try (var os = Files.newOutputStream(temp); var dos = new DataOutputStream(new BufferedOutputStream(os))) {
+        writeEntries(dos);
+      }
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  public int getHits() {
+    return hits.get();
+  }
+
+  public int getMisses() {
+    return misses.get();
+  }
+
+  private Stamp stamp(final JARInformation file) throws IOException {
+    final var archivePath = file.archivePath;
+    final var stamp = stamps.get(archivePath);
+    if (null != stamp) {
+      return stamp;
+    }
+    final var size = Files.size(archivePath);
+    final var lastModified = Files.getLastModifiedTime(archivePath).toMillis();
+    final var newStamp = new Stamp(size, lastModified, hash ? sha256(archivePath) : "");
+    stamps.putIfAbsent(archivePath, newStamp);
+    return newStamp;
+  }
+
+  private static String sha256(final Path file) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("missing SHA-256 algo", e);
+    }
+    final var buffer = new byte[64 * 1024];
+    try (var is = Files.newInputStream(file)) {
+      for (var n = 0; -1 != (n = is.read(buffer, 0, buffer.length));) {
+        digest.update(buffer, 0, n);
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Record errors and results of one JAR.
+   */
+  public class Recorder {
+    private final JARInformation file;
+    private final MutableProcessorContext context;
+    private final Map<JARInformation, Integer> variants;
+    private final List<CachedError> errors;
+
+    Recorder(final JARInformation file, final MutableProcessorContext context) {
+      this.file = Objects.requireNonNull(file, "file");
+      this.context = Objects.requireNonNull(context, "context");
+      this.variants = new LinkedHashMap<>();
+      this.errors = new ArrayList<>();
+    }
+
+    /**
+     * Create a context for the JAR or one of its version.
+     *
+     * @param information
+     *          the JAR, or one of its version.
+     * @return a context adding errors to the context of this recorder.
+     * @see MutableProcessorContext#withSource(JARInformation)
+     */
+    public ProcessorContext withSource(final JARInformation information) {
+      final int variant;
+      synchronized (this) {
+        variant = variants.computeIfAbsent(information, key -> variants.size());
+      }
+      return new RecordingProcessorContext(context.withSource(information), variant, NO_PROCESSOR);
+    }
+
+    private synchronized void addError(final String processor, final int variant, final String message) {
+      errors.add(new CachedError(processor, variant, message));
+    }
+
+    /**
+     * Keep the results of processors.
+     *
+     * @throws IOException
+     *           if some result could not be written.
+     */
+    public void save() throws IOException {
+      final Stamp stamp;
+      try {
+        stamp = stamp(file);
+      } catch (@SuppressWarnings("unused") final IOException e) {
+        return; // not cacheable: the error is already reported.
+      }
+
+      final List<Variant> variantList;
+      final List<CachedError> errorList;
+      synchronized (this) {
+        variantList = variants.keySet().stream().map(Variant::of).toList();
+        errorList = new ArrayList<>(errors);
+      }
+
+      final Map<String, Result> results = new HashMap<>();
+      for (final var entry : names.entrySet()) {
+        final var cp = (CacheableJARProcessor) entry.getKey();
+        final var bos = new ByteArrayOutputStream();
+        try (var dos = new DataOutputStream(bos)) {
+          for (final var variant : variants.keySet()) {
+            cp.writeCache(variant, dos);
+          }
+        }
+        results.put(entry.getValue(), new Result(cp.getCacheVersion(), bos.toByteArray()));
+      }
+
+      // keep results of processors not used in this run
+      final var key = Key.of(file);
+      final var old = previous.get(key);
+      if (null != old && old.stamp.equals(stamp) && old.variants.equals(variantList)) {
+        old.results.forEach(results::putIfAbsent);
+        old.errors.stream()
+                  .filter(error -> !NO_PROCESSOR.equals(error.processor) && !names.containsValue(error.processor))
+                  .forEach(errorList::add);
+      }
+      current.put(key, new Entry(stamp, variantList, errorList, results));
+    }
+
+    private class RecordingProcessorContext implements ProcessorContext {
+      private final ProcessorContext delegate;
+      private final int variant;
+      private final String processor;
+
+      RecordingProcessorContext(final ProcessorContext delegate, final int variant, final String processor) {
+        this.delegate = delegate;
+        this.variant = variant;
+        this.processor = processor;
+      }
+
+      @Override
+      public JARInformation getJARInformation() {
+        return delegate.getJARInformation();
+      }
+
+      @Override
+      public void addError(final String message) {
+        delegate.addError(message);
+        Recorder.this.addError(processor, variant, message);
+      }
+
+      @Override
+      public ProcessorContext forProcessor(final JARProcessor processor) {
+        final var name = names.get(processor);
+        if (null == name) {
+          return this;
+        }
+        return new RecordingProcessorContext(delegate, variant, name);
+      }
+    }
+  }
+
+  /*
+   * file format
+   */
+
+  private static Map<Key, Entry> readEntries(final DataInputStream in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("not a cache file");
+    }
+    final var version = in.readInt();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("unsupported cache version " + version);
+    }
+    final var count = in.readInt();
+    final Map<Key, Entry> entries = new HashMap<>();
+    for (var i = 0; i < count; ++i) {
+      final var key = new Key(readString(in), readString(in));
+      final var stamp = new Stamp(in.readLong(), in.readLong(), readString(in));
+
+      final List<Variant> variants = new ArrayList<>();
+      for (var n = in.readInt(); n > 0; --n) {
+        variants.add(new Variant(in.readBoolean(), in.readInt()));
+      }
+      final List<CachedError> errors = new ArrayList<>();
+      for (var n = in.readInt(); n > 0; --n) {
+        errors.add(new CachedError(readString(in), in.readInt(), readString(in)));
+      }
+      final Map<String, Result> results = new HashMap<>();
+      for (var n = in.readInt(); n > 0; --n) {
+        final var name = readString(in);
+        final var resultVersion = in.readInt();
+        final var data = new byte[in.readInt()];
+        in.readFully(data);
+        results.put(name, new Result(resultVersion, data));
+      }
+      entries.put(key, new Entry(stamp, variants, errors, results));
+    }
+    return entries;
+  }
+
+  private void writeEntries(final DataOutputStream out) throws IOException {
+    final List<Map.Entry<Key, Entry>> entries = new ArrayList<>(current.entrySet());
+    entries.sort(Map.Entry.comparingByKey(Comparator.comparing(Key::archivePath).thenComparing(Key::pathInArchive)));
+
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeInt(entries.size());
+    for (final var e : entries) {
+      final var key = e.getKey();
+      final var entry = e.getValue();
+      writeString(out, key.archivePath);
+      writeString(out, key.pathInArchive);
+      out.writeLong(entry.stamp.size);
+      out.writeLong(entry.stamp.lastModified);
+      writeString(out, entry.stamp.hash);
+
+      out.writeInt(entry.variants.size());
+      for (final var variant : entry.variants) {
+        out.writeBoolean(variant.multiRelease);
+        out.writeInt(variant.feature);
+      }
+      out.writeInt(entry.errors.size());
+      for (final var error : entry.errors) {
+        writeString(out, error.processor);
+        out.writeInt(error.variant);
+        writeString(out, error.message);
+      }
+      out.writeInt(entry.results.size());
+      for (final var result : new TreeMap<>(entry.results).entrySet()) {
+        writeString(out, result.getKey());
+        out.writeInt(result.getValue().version);
+        out.writeInt(result.getValue().data.length);
+        out.write(result.getValue().data);
+      }
+    }
+  }
+
+  /**
+   * Write a string, without the size limit of {@link DataOutput#writeUTF(String)}.
+   *
+   * @param out
+   *          target.
+   * @param value
+   *          a string (not null).
+   * @throws IOException
+   *           if the string could not be written.
+   */
+  static void writeString(final DataOutput out, final String value) throws IOException {
+    final var bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Read a string written by {@link #writeString(DataOutput, String)}.
+   *
+   * @param in
+   *          source.
+   * @return a string.
+   * @throws IOException
+   *           if the string could not be read.
+   */
+  static String readString(final DataInput in) throws IOException {
+    final var length = in.readInt();
+    if (length < 0) {
+      throw new IOException("invalid string length: " + length);
+    }
+    final var bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static void writeStrings(final DataOutput out, final Collection<String> values) throws IOException {
+    out.writeInt(values.size());
+    for (final var value : values) {
+      writeString(out, value);
+    }
+  }
+
+  static List<String> readStrings(final DataInput in) throws IOException {
+    final var n = in.readInt();
+    if (n < 0) {
+      throw new IOException("invalid list size: " + n);
+    }
+    final List<String> values = new ArrayList<>(n);
+    for (var i = 0; i < n; ++i) {
+      values.add(readString(in));
+    }
+    return Collections.unmodifiableList(values);
+  }
+
+  private record Key(String archivePath, String pathInArchive) {
+    static Key of(final JARInformation file) {
+      return new Key(file.archivePath.toAbsolutePath().normalize().toString(),
+          file.pathInArchive.map(Object::toString).orElse(""));
+    }
+  }
+
+  private record Stamp(long size, long lastModified, String hash) {
+  }
+
+  private record Variant(boolean multiRelease, int feature) {
+    static Variant of(final JARInformation information) {
+      return new Variant(information.multiRelease, information.feature);
+    }
+
+    JARInformation toJARInformation(final JARInformation file) {
+      return multiRelease ? file.asMultiReleaseVersion(feature) : file;
+    }
+  }
+
+  private record CachedError(String processor, int variant, String message) {
+  }
+
+  private record Result(int version, byte[] data) {
+  }
+
+  private record Entry(Stamp stamp, List<Variant> variants, List<CachedError> errors, Map<String, Result> results) {
+  }
+
+}
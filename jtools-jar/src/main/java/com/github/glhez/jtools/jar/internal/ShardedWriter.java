@@ -0,0 +1,129 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
+
+/**
+ * A CSV writer splitting its records in numbered shards, each starting with the first record (the header).
+ * <p>
+ * Records are delimited by the last character of the record separator, outside of quoted values. A new shard is
+ * started before the first record after the limit of rows or bytes (in UTF-8) of the current shard was reached.
+ *
+ * @author gael.lhez
+ */
+class ShardedWriter extends Writer {
+  private final ShardOpener opener;
+  private final char quote;
+  private final char endOfRecord;
+  private final long maxRows;
+  private final long maxBytes;
+  private final StringBuilder header;
+  private boolean headerWritten;
+  private Writer shard;
+  private int shardIndex;
+  private long rows;
+  private long bytes;
+  private boolean quoted;
+  private boolean full;
+
+  /**
+   * Create a new writer, and open its first shard.
+   *
+   * @param opener
+   *          open each shard.
+   * @param quote
+   *          quote character of the CSV format.
+   * @param recordSeparator
+   *          record separator of the CSV format.
+   * @param maxRows
+   *          maximum number of rows per shard, excluding the header (0 for no limit).
+   * @param maxBytes
+   *          maximum number of bytes per shard (0 for no limit).
+   * @throws IOException
+   *           if the first shard could not be opened.
+   */
+  ShardedWriter(final ShardOpener opener, final char quote, final String recordSeparator, final long maxRows,
+      final long maxBytes) throws IOException {
+    this.opener = Objects.requireNonNull(opener, "opener");
+    this.quote = quote;
+    this.endOfRecord = recordSeparator.charAt(recordSeparator.length() - 1);
+    this.maxRows = maxRows;
+    this.maxBytes = maxBytes;
+    this.header = new StringBuilder();
+    this.shardIndex = 1;
+    this.shard = opener.open(shardIndex);
+  }
+
+  @Override
+  public void write(final char[] cbuf, final int off, final int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, cbuf.length);
+    var start = off;
+    final var end = off + len;
+    for (var i = off; i < end; ++i) {
+      if (full) {
+        shard.write(cbuf, start, i - start);
+        start = i;
+        nextShard();
+      }
+      final var c = cbuf[i];
+      bytes += utf8Length(c);
+      if (c == quote) {
+        quoted = !quoted;
+      } else if (c == endOfRecord && !quoted) {
+        endRecord(cbuf, start, i + 1);
+      }
+    }
+    shard.write(cbuf, start, end - start);
+    if (!headerWritten) {
+      header.append(cbuf, start, end - start);
+    }
+  }
+
+  private void endRecord(final char[] cbuf, final int start, final int end) {
+    if (!headerWritten) {
+      header.append(cbuf, start, end - start);
+      headerWritten = true;
+      return;
+    }
+    ++rows;
+    full = maxRows > 0 && rows >= maxRows || maxBytes > 0 && bytes >= maxBytes;
+  }
+
+  private void nextShard() throws IOException {
+    shard.close();
+    shard = opener.open(++shardIndex);
+    shard.append(header);
+    rows = 0;
+    bytes = header.chars().map(ShardedWriter::utf8Length).sum();
+    full = false;
+  }
+
+  private static int utf8Length(final int c) {
+    if (c < 0x80) {
+      return 1;
+    }
+    if (c < 0x800 || Character.isSurrogate((char) c)) {
+      return 2; // a surrogate pair is 4 bytes.
+    }
+    return 3;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    shard.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    shard.close();
+  }
+
+  /**
+   * Open a shard.
+   */
+  @FunctionalInterface
+  interface ShardOpener {
+    Writer open(int shard) throws IOException;
+  }
+}
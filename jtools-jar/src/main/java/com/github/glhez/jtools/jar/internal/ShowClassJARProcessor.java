@@ -1,63 +1,327 @@
 package com.github.glhez.jtools.jar.internal;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.util.LinkedHashMap;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
-import java.util.NavigableSet;
 import java.util.Objects;
-import java.util.TreeSet;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.apache.commons.csv.CSVPrinter;
 
-public class ShowClassJARProcessor extends ReportFileJARProcessor {
+/**
+ * Show classes found in JARs.
+ * <p>
+ * Each class is identified by the CRC-32 and size of its entry, read from the central directory of the JAR: a class
+ * found in several JARs is either identical (all entries have the same CRC-32 and size) or conflicting. When an
+ * opener is given, entries having the same CRC-32 and size are also compared using a SHA-256 of their content.
+ *
+ * @author gael.lhez
+ */
+public class ShowClassJARProcessor extends ReportFileJARProcessor implements CacheableJARProcessor {
+  private static final int CACHE_VERSION = 2;
+
   private final MavenArtifactsJARProcessor mavenArtifactsJARProcessor;
   private final ModuleJARProcessor moduleJARProcessor;
-  private final Map<String, NavigableSet<JARInformation>> classesPerJAR;
+  private final Optional<JARArchiveOpener> digestOpener;
+  private final StringDictionary classNames;
+  private final Map<JARInformation, JARClasses> classesPerJAR;
 
   private final boolean showOnlyDuplicateClasses;
 
   public ShowClassJARProcessor(final ReportFile reportFile, final boolean showOnlyDuplicateClasses,
-      final MavenArtifactsJARProcessor mavenArtifactsJARProcessor, final ModuleJARProcessor moduleJARProcessor) {
+      final MavenArtifactsJARProcessor mavenArtifactsJARProcessor, final ModuleJARProcessor moduleJARProcessor,
+      final Optional<JARArchiveOpener> digestOpener) {
     super("Class in JAR set", reportFile);
     this.mavenArtifactsJARProcessor = Objects.requireNonNull(mavenArtifactsJARProcessor, "mavenArtifactsJARProcessor");
     this.moduleJARProcessor = Objects.requireNonNull(moduleJARProcessor, "moduleJARProcessor");
+    this.digestOpener = Objects.requireNonNull(digestOpener, "digestOpener");
     this.showOnlyDuplicateClasses = showOnlyDuplicateClasses;
-    classesPerJAR = new LinkedHashMap<>();
+    classNames = new StringDictionary();
+    classesPerJAR = new ConcurrentSkipListMap<>();
+  }
+
+  @Override
+  public List<JARProcessor> getDependencies() {
+    return List.of(mavenArtifactsJARProcessor, moduleJARProcessor);
   }
 
   @Override
   public void init() {
+    classNames.clear();
     classesPerJAR.clear();
   }
 
   @Override
-  public void process(final ProcessorContext context, final JarFile jarFile) {
-    try (final var ss = jarFile.stream()) {
-      ss.filter(ShowPackageJARProcessor::isClassFileEntry).map(JarEntry::getName).forEach(name -> {
-        classesPerJAR.computeIfAbsent(name, n -> new TreeSet<>()).add(context.getJARInformation());
-      });
+  public void process(final ProcessorContext context, final JARArchive archive) {
+    // entries are visited
+  }
+
+  @Override
+  public List<EntrySelector> getEntrySelectors() {
+    return List.of(ShowPackageJARProcessor.CLASS_FILE_SELECTOR);
+  }
+
+  @Override
+  public JAREntryVisitor newEntryVisitor(final ProcessorContext context, final JARArchive archive) {
+    return new ClassVisitor(context);
+  }
+
+  private class ClassVisitor implements RangeJAREntryVisitor {
+    private final ProcessorContext context;
+    private final List<String> classes = new ArrayList<>();
+    private long[] signatures = new long[64];
+
+    ClassVisitor(final ProcessorContext context) {
+      this.context = context;
+    }
+
+    @Override
+    public void visitEntry(final JAREntryContent entry) {
+      if (ShowPackageJARProcessor.isClassFileEntry(entry.getEntry())) {
+        if (classes.size() == signatures.length) {
+          signatures = Arrays.copyOf(signatures, 2 * signatures.length);
+        }
+        signatures[classes.size()] = signature(entry.getEntry().getCrc(), entry.getEntry().getSize());
+        classes.add(entry.getName());
+      }
+    }
+
+    @Override
+    public RangeJAREntryVisitor newRangeVisitor(final ProcessorContext rangeContext) {
+      return new ClassVisitor(rangeContext);
+    }
+
+    @Override
+    public void merge(final RangeJAREntryVisitor range) {
+      final var other = (ClassVisitor) range;
+      final var n = classes.size() + other.classes.size();
+      if (n > signatures.length) {
+        signatures = Arrays.copyOf(signatures, Math.max(n, 2 * signatures.length));
+      }
+      System.arraycopy(other.signatures, 0, signatures, classes.size(), other.classes.size());
+      classes.addAll(other.classes);
+    }
+
+    @Override
+    public void visitEnd() {
+      classesPerJAR.put(context.getJARInformation(), new JARClasses(classNames.intern(classes),
+          Arrays.copyOf(signatures, classes.size())));
+    }
+  }
+
+  /**
+   * CRC-32 and size of an entry, as read from the central directory (the content is not read).
+   */
+  private static long signature(final long crc, final long size) {
+    return crc << 32 | size & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    final var classes = classesPerJAR.get(version.getBase());
+    if (null != classes) {
+      classesPerJAR.put(context.getJARInformation(), classes);
+    }
+  }
+
+  @Override
+  public String getCacheName() {
+    return "class";
+  }
+
+  @Override
+  public int getCacheVersion() {
+    return CACHE_VERSION;
+  }
+
+  @Override
+  public void writeCache(final JARInformation jarInformation, final DataOutput out) throws IOException {
+    final var classes = classesPerJAR.get(jarInformation);
+    out.writeBoolean(null != classes);
+    if (null != classes) {
+      ScanCache.writeStrings(out, Arrays.stream(classes.ids).mapToObj(classNames::get).toList());
+      for (final var signature : classes.signatures) {
+        out.writeLong(signature);
+      }
     }
+  }
 
+  @Override
+  public void readCache(final JARInformation jarInformation, final DataInput in) throws IOException {
+    if (in.readBoolean()) {
+      final var ids = classNames.intern(ScanCache.readStrings(in));
+      final var signatures = new long[ids.length];
+      for (var i = 0; i < signatures.length; ++i) {
+        signatures[i] = in.readLong();
+      }
+      classesPerJAR.put(jarInformation, new JARClasses(ids, signatures));
+    }
   }
 
+  /**
+   * Merge per JAR result in the order the class were found.
+   * <p>
+   * JAR are identified by their index, and the JARs containing each class are stored in a single array, using the
+   * offset of each class in this array.
+   */
   @Override
   protected void finish(final CSVPrinter printer) throws IOException {
-    printer.printRecord("JAR", "GAV", "Module", "Class", "Number of classes references in all JARs");
-    for (final var entry : classesPerJAR.entrySet()) {
-      final var className = entry.getKey();
-      final var jars = entry.getValue();
+    final List<JARInformation> jars = new ArrayList<>(classesPerJAR.keySet());
+    final List<JARClasses> classes = new ArrayList<>(classesPerJAR.values());
+    final var n = classNames.size();
 
-      if (!showOnlyDuplicateClasses || jars.size() > 1) {
-        for (final var jar : jars) {
+    // count JARs per class, and the order in which classes were found
+    final var counts = new int[n];
+    final var lastJar = new int[n];
+    final var order = new int[n];
+    var classCount = 0;
+    Arrays.fill(lastJar, -1);
+    for (var jar = 0; jar < jars.size(); ++jar) {
+      for (final var id : classes.get(jar).ids) {
+        if (lastJar[id] != jar) {
+          lastJar[id] = jar;
+          if (counts[id]++ == 0) {
+            order[classCount++] = id;
+          }
+        }
+      }
+    }
+
+    final var offsets = new int[n + 1];
+    for (var id = 0; id < n; ++id) {
+      offsets[id + 1] = offsets[id] + counts[id];
+    }
+    final var jarsPerClass = new int[offsets[n]];
+    final var signaturesPerClass = new long[offsets[n]];
+    final var positions = Arrays.copyOf(offsets, n);
+    Arrays.fill(lastJar, -1);
+    for (var jar = 0; jar < jars.size(); ++jar) {
+      final var jarClasses = classes.get(jar);
+      for (var i = 0; i < jarClasses.ids.length; ++i) {
+        final var id = jarClasses.ids[i];
+        if (lastJar[id] != jar) {
+          lastJar[id] = jar;
+          signaturesPerClass[positions[id]] = jarClasses.signatures[i];
+          jarsPerClass[positions[id]++] = jar;
+        }
+      }
+    }
+
+    final var digests = digestOpener.isPresent()
+        ? computeDigests(jars, offsets, jarsPerClass, signaturesPerClass, order, classCount, counts)
+        : Map.<Integer, String>of();
+
+    printer.printRecord("JAR", "GAV", "Module", "Class", "Number of classes references in all JARs", "Duplicate",
+                        "Number of distinct variants");
+    for (var i = 0; i < classCount; ++i) {
+      final var id = order[i];
+      final var count = counts[id];
+      if (!showOnlyDuplicateClasses || count > 1) {
+        final var className = classNames.get(id);
+        final var variants = countVariants(signaturesPerClass, digests, offsets[id], offsets[id + 1]);
+        final var duplicate = count == 1 ? "" : variants == 1 ? "Identical" : "Conflicting";
+        for (var k = offsets[id]; k < offsets[id + 1]; ++k) {
+          final var jar = jars.get(jarsPerClass[k]);
           final var gav = mavenArtifactsJARProcessor.getGAVAsString(jar);
           final var module = moduleJARProcessor.getModuleDescriptorAsString(jar);
           final var info = jar.toString();
-          printer.printRecord(info, gav, module, className, jars.size());
+          printer.printRecord(info, gav, module, className, count, duplicate, variants);
         }
       }
     }
   }
 
+  private static int countVariants(final long[] signatures, final Map<Integer, String> digests, final int from,
+      final int to) {
+    if (to - from == 1) {
+      return 1;
+    }
+    final Set<String> variants = new HashSet<>();
+    for (var k = from; k < to; ++k) {
+      variants.add(signatures[k] + ":" + digests.getOrDefault(k, ""));
+    }
+    return variants.size();
+  }
+
+  /**
+   * Read the entries of duplicate classes having the same CRC-32 and size, since they may still differ.
+   * <p>
+   * Each JAR is opened once.
+   *
+   * @return the SHA-256 of these entries, by position in <code>jarsPerClass</code>.
+   */
+  private Map<Integer, String> computeDigests(final List<JARInformation> jars, final int[] offsets,
+      final int[] jarsPerClass, final long[] signaturesPerClass, final int[] order, final int classCount,
+      final int[] counts) {
+    // positions to compute, per JAR
+    final Map<Integer, List<Integer>> positionsPerJAR = new TreeMap<>();
+    for (var i = 0; i < classCount; ++i) {
+      final var id = order[i];
+      if (counts[id] > 1) {
+        final Set<Long> seen = new HashSet<>();
+        final Set<Long> collisions = new HashSet<>();
+        for (var k = offsets[id]; k < offsets[id + 1]; ++k) {
+          if (!seen.add(signaturesPerClass[k])) {
+            collisions.add(signaturesPerClass[k]);
+          }
+        }
+        for (var k = offsets[id]; k < offsets[id + 1]; ++k) {
+          if (collisions.contains(signaturesPerClass[k])) {
+            positionsPerJAR.computeIfAbsent(jarsPerClass[k], jar -> new ArrayList<>()).add(k);
+          }
+        }
+      }
+    }
+
+    final Map<Integer, String> digests = new TreeMap<>();
+    final var opener = digestOpener.orElseThrow();
+    final var classIds = new int[jarsPerClass.length];
+    for (var i = 0; i < classCount; ++i) {
+      final var id = order[i];
+      Arrays.fill(classIds, offsets[id], offsets[id + 1], id);
+    }
+    positionsPerJAR.forEach((jar, positions) -> {
+      final var jarInformation = jars.get(jar);
+      try (var archive = opener.open(jarInformation)) {
+        for (final var position : positions) {
+          final var name = classNames.get(classIds[position]);
+          final var entry = archive.getJarEntry(name);
+          if (null != entry) {
+            try (var is = archive.getInputStream(entry)) {
+              digests.put(position, digest(is.readAllBytes()));
+            }
+          }
+        }
+      } catch (final IOException e) {
+        System.err.println("Could not compute digest of classes of [" + jarInformation + "]: " + e.getMessage());
+      }
+    });
+    return digests;
+  }
+
+  private static String digest(final byte[] content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("missing SHA-256 algo", e);
+    }
+  }
+
+  /**
+   * Classes of a JAR: id of their name, and signature of their entry.
+   */
+  private record JARClasses(int[] ids, long[] signatures) {
+  }
+
 }
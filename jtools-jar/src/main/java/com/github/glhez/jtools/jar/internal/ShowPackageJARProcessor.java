@@ -1,26 +1,33 @@
 package com.github.glhez.jtools.jar.internal;
 
-import static java.util.stream.Collectors.counting;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toCollection;
-
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Objects;
-import java.util.Set;
 import java.util.TreeSet;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 import org.apache.commons.csv.CSVPrinter;
 
-public class ShowPackageJARProcessor extends ReportFileJARProcessor {
+public class ShowPackageJARProcessor extends ReportFileJARProcessor implements CacheableJARProcessor {
+  private static final int CACHE_VERSION = 1;
+  /**
+   * Select candidates for {@link #isClassFileEntry(JarEntry)}.
+   */
+  static final EntrySelector CLASS_FILE_SELECTOR = EntrySelector.suffix(".class");
+
   private final MavenArtifactsJARProcessor mavenArtifactsJARProcessor;
   private final ModuleJARProcessor moduleJARProcessor;
-  private final Map<JARInformation, NavigableSet<String>> packagesPerJar;
+  private final StringDictionary packageNames;
+  /**
+   * Packages of each JAR, sorted by name.
+   */
+  private final Map<JARInformation, int[]> packagesPerJar;
   private final boolean showDuplicatePackage;
 
   public ShowPackageJARProcessor(final ReportFile reportFile, final boolean showDuplicatePackage,
@@ -29,21 +36,64 @@ public class ShowPackageJARProcessor extends ReportFileJARProcessor {
     this.showDuplicatePackage = showDuplicatePackage;
     this.mavenArtifactsJARProcessor = Objects.requireNonNull(mavenArtifactsJARProcessor, "mavenArtifactsJARProcessor");
     this.moduleJARProcessor = Objects.requireNonNull(moduleJARProcessor, "moduleJARProcessor");
-    this.packagesPerJar = new LinkedHashMap<>();
+    this.packageNames = new StringDictionary();
+    this.packagesPerJar = new ConcurrentSkipListMap<>();
+  }
+
+  @Override
+  public List<JARProcessor> getDependencies() {
+    return List.of(mavenArtifactsJARProcessor, moduleJARProcessor);
   }
 
   @Override
   public void init() {
+    packageNames.clear();
     packagesPerJar.clear();
   }
 
   @Override
-  public void process(final ProcessorContext context, final JarFile jarFile) {
-    try (final var ss = jarFile.stream()) {
-      final TreeSet<String> packages = ss.filter(ShowPackageJARProcessor::isClassFileEntry)
-                                         .map(this::splitName)
-                                         .collect(toCollection(TreeSet::new));
-      packagesPerJar.put(context.getJARInformation(), packages);
+  public void process(final ProcessorContext context, final JARArchive archive) {
+    // entries are visited
+  }
+
+  @Override
+  public List<EntrySelector> getEntrySelectors() {
+    return List.of(CLASS_FILE_SELECTOR);
+  }
+
+  @Override
+  public JAREntryVisitor newEntryVisitor(final ProcessorContext context, final JARArchive archive) {
+    return new PackageVisitor(context);
+  }
+
+  private class PackageVisitor implements RangeJAREntryVisitor {
+    private final ProcessorContext context;
+    private final NavigableSet<String> packages = new TreeSet<>();
+
+    PackageVisitor(final ProcessorContext context) {
+      this.context = context;
+    }
+
+    @Override
+    public void visitEntry(final JAREntryContent entry) {
+      if (isClassFileEntry(entry.getEntry())) {
+        packages.add(splitName(entry.getEntry()));
+      }
+    }
+
+    @Override
+    public RangeJAREntryVisitor newRangeVisitor(final ProcessorContext rangeContext) {
+      return new PackageVisitor(rangeContext);
+    }
+
+    @Override
+    public void merge(final RangeJAREntryVisitor range) {
+      packages.addAll(((PackageVisitor) range).packages);
+    }
+
+    @Override
+    public void visitEnd() {
+      packagesPerJar.put(context.getJARInformation(), packageNames.intern(packages));
     }
   }
 
@@ -75,13 +125,49 @@ public class ShowPackageJARProcessor extends ReportFileJARProcessor {
     return name.substring(0, n).replace('/', '.');
   }
 
+  @Override
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    final var packages = packagesPerJar.get(version.getBase());
+    if (null != packages) {
+      packagesPerJar.put(context.getJARInformation(), packages);
+    }
+  }
+
+  @Override
+  public String getCacheName() {
+    return "package";
+  }
+
+  @Override
+  public int getCacheVersion() {
+    return CACHE_VERSION;
+  }
+
+  @Override
+  public void writeCache(final JARInformation jarInformation, final DataOutput out) throws IOException {
+    final var packages = packagesPerJar.get(jarInformation);
+    out.writeBoolean(null != packages);
+    if (null != packages) {
+      ScanCache.writeStrings(out, Arrays.stream(packages).mapToObj(packageNames::get).toList());
+    }
+  }
+
+  @Override
+  public void readCache(final JARInformation jarInformation, final DataInput in) throws IOException {
+    if (in.readBoolean()) {
+      packagesPerJar.put(jarInformation, packageNames.intern(new TreeSet<>(ScanCache.readStrings(in))));
+    }
+  }
+
   @Override
   protected void finish(final CSVPrinter printer) throws IOException {
     // compute duplicate per package
-    final Map<String, Long> counters = this.packagesPerJar.values()
-                                                          .stream()
-                                                          .flatMap(Set::stream)
-                                                          .collect(groupingBy(Function.identity(), counting()));
+    final var counters = new int[packageNames.size()];
+    this.packagesPerJar.values().forEach(packages -> {
+      for (final var id : packages) {
+        ++counters[id];
+      }
+    });
 
     printer.printRecord("JAR", "GAV", "Module", "Package", "Number of package references in all JARs");
     for (final var entry : this.packagesPerJar.entrySet()) {
@@ -91,9 +177,10 @@ public class ShowPackageJARProcessor extends ReportFileJARProcessor {
       final var module = moduleJARProcessor.getModuleDescriptorAsString(jar);
       final var info = jar.toString();
 
-      for (final var packageName : packages) {
-        final var counter = counters.getOrDefault(packageName, 1L);
+      for (final var id : packages) {
+        final var counter = counters[id];
         if (!showDuplicatePackage || counter > 1) {
+          final var packageName = packageNames.get(id);
           printer.printRecord(info, gav, module, packageName.isEmpty() ? "<EMPTY>" : packageName, counter);
         }
       }
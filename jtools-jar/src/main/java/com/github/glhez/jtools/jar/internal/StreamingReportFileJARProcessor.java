@@ -0,0 +1,177 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.csv.CSVPrinter;
+
+/**
+ * A processor writing its report while JARs are processed, for reports whose rows only depend on the JAR itself.
+ * <p>
+ * The report is opened by {@link #init()}, and the rows of a JAR are written in {@link JARInformation} order once
+ * this JAR and all the JARs found before it were processed: since JARs are found in this order, only the results of
+ * JARs processed out of order are kept.
+ *
+ * @author gael.lhez
+ */
+public abstract class StreamingReportFileJARProcessor implements JARProcessor {
+  private final String reportName;
+  private final Optional<ReportFile> reportFile;
+  private final NavigableSet<JARInformation> pending;
+  private final Set<JARInformation> processed;
+  private CSVPrinter printer;
+
+  protected StreamingReportFileJARProcessor(final String reportName, final ReportFile reportFile) {
+    this(reportName, Optional.of(Objects.requireNonNull(reportFile, "reportFile")));
+  }
+
+  protected StreamingReportFileJARProcessor(final String reportName, final Optional<ReportFile> reportFile) {
+    this.reportName = Objects.requireNonNull(reportName, "reportName");
+    this.reportFile = Objects.requireNonNull(reportFile, "reportFile");
+    this.pending = new TreeSet<>();
+    this.processed = new HashSet<>();
+  }
+
+  @Override
+  public final void init() {
+    reset();
+    synchronized (this) {
+      pending.clear();
+      processed.clear();
+      if (reportFile.isPresent()) {
+        final var rf = reportFile.get();
+        try {
+          printer = rf.toCsvPrinter();
+          printHeader(printer);
+        } catch (final IOException e) {
+          throw new UncheckedIOException("Could not write report [" + reportName + "] to [" + rf + "]", e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return reportFile.isPresent();
+  }
+
+  @Override
+  public void found(final Collection<JARInformation> files) {
+    if (reportFile.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      pending.addAll(files);
+      flush();
+    }
+  }
+
+  @Override
+  public void processed(final JARInformation file) {
+    if (reportFile.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      processed.add(file);
+      flush();
+    }
+  }
+
+  /**
+   * Print the files processed, up to the first file which is not: files found later are after them.
+   */
+  private void flush() {
+    while (!pending.isEmpty() && processed.remove(pending.first())) {
+      printRows(pending.pollFirst());
+    }
+  }
+
+  @Override
+  public final void finish() {
+    if (reportFile.isEmpty()) {
+      return;
+    }
+    final var rf = reportFile.get();
+    synchronized (this) {
+      try (var p = printer) {
+        // files which were not processed (eg: the processing failed).
+        while (!pending.isEmpty()) {
+          printRows(p, pending.pollFirst());
+        }
+        processed.clear();
+      } catch (final IOException e) {
+        throw new UncheckedIOException("Could not write report [" + reportName + "] to [" + rf + "]", e);
+      } finally {
+        printer = null;
+      }
+    }
+  }
+
+  @Override
+  public Optional<String> getReport() {
+    return reportFile.map(rf -> "[" + reportName + "] to [" + rf + "]");
+  }
+
+  @Override
+  public boolean hasOutput() {
+    return reportFile.isPresent();
+  }
+
+  private void printRows(final JARInformation file) {
+    try {
+      printRows(printer, file);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Could not write report [" + reportName + "] to [" + reportFile.get() + "]",
+          e);
+    }
+  }
+
+  /**
+   * Clear the results of a previous run.
+   */
+  protected abstract void reset();
+
+  /**
+   * Print the header of the report.
+   *
+   * @param printer
+   *          the report.
+   * @throws IOException
+   *           if the header could not be written.
+   */
+  protected abstract void printHeader(CSVPrinter printer) throws IOException;
+
+  /**
+   * Print the rows of a file, and of its versions if it is a Multi-Release JAR.
+   * <p>
+   * The results of the file may be released, unless used by other processors.
+   *
+   * @param printer
+   *          the report.
+   * @param file
+   *          a file, as given to {@link #found(Collection)}.
+   * @throws IOException
+   *           if the rows could not be written.
+   */
+  protected abstract void printRows(CSVPrinter printer, JARInformation file) throws IOException;
+
+  /**
+   * Upper bound of the {@link JARInformation} of a file: the file and its versions are between the file and this
+   * bound.
+   *
+   * @param file
+   *          a file, as given to {@link #found(Collection)}.
+   * @return a bound (inclusive).
+   */
+  protected static JARInformation lastVersion(final JARInformation file) {
+    return file.asMultiReleaseVersion(Integer.MAX_VALUE);
+  }
+
+}
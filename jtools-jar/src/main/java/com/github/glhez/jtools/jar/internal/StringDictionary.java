@@ -0,0 +1,171 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Associate a dense <code>int</code> to strings, each string being stored once.
+ * <p>
+ * Strings are stored as UTF-8 in a single array, and found using an open addressing hash table: this uses a few bytes
+ * per string more than its UTF-8 representation, instead of one {@link String} (and its array) per occurrence.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author gael.lhez
+ */
+public class StringDictionary {
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private byte[] data;
+  private int dataLength;
+  private int[] offsets;
+  private int[] hashes;
+  private int size;
+  /**
+   * Open addressing table, containing <code>id + 1</code> (0 is a free slot).
+   */
+  private int[] table;
+
+  public StringDictionary() {
+    this.data = new byte[16 * INITIAL_CAPACITY];
+    this.offsets = new int[INITIAL_CAPACITY + 1];
+    this.hashes = new int[INITIAL_CAPACITY];
+    this.table = new int[2 * INITIAL_CAPACITY];
+  }
+
+  /**
+   * Number of strings.
+   *
+   * @return a size.
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Get the id of a string, adding it if needed.
+   *
+   * @param value
+   *          a string.
+   * @return an id, between 0 and {@link #size()}.
+   */
+  public synchronized int intern(final String value) {
+    Objects.requireNonNull(value, "value");
+    return add(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Get the id of several strings, adding them if needed.
+   *
+   * @param values
+   *          some strings.
+   * @return the id of each string, in iteration order.
+   */
+  public synchronized int[] intern(final Collection<String> values) {
+    final var ids = new int[values.size()];
+    var i = 0;
+    for (final var value : values) {
+      ids[i++] = add(value.getBytes(StandardCharsets.UTF_8));
+    }
+    return ids;
+  }
+
+  /**
+   * Get the id of a string, without adding it.
+   *
+   * @param value
+   *          a string.
+   * @return an id, or -1 if the string was not added.
+   */
+  public synchronized int find(final String value) {
+    final var bytes = value.getBytes(StandardCharsets.UTF_8);
+    final var hash = hash(bytes);
+    final var mask = table.length - 1;
+    for (var slot = hash & mask; table[slot] != 0; slot = slot + 1 & mask) {
+      final var id = table[slot] - 1;
+      if (hashes[id] == hash && equals(id, bytes)) {
+        return id;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Get a string.
+   *
+   * @param id
+   *          an id returned by {@link #intern(String)}.
+   * @return a string.
+   */
+  public synchronized String get(final int id) {
+    Objects.checkIndex(id, size);
+    return new String(data, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Remove all strings.
+   */
+  public synchronized void clear() {
+    Arrays.fill(table, 0);
+    dataLength = 0;
+    size = 0;
+  }
+
+  private int add(final byte[] bytes) {
+    final var hash = hash(bytes);
+    final var mask = table.length - 1;
+    var slot = hash & mask;
+    for (var id = table[slot]; id != 0; id = table[slot]) {
+      if (hashes[id - 1] == hash && equals(id - 1, bytes)) {
+        return id - 1;
+      }
+      slot = slot + 1 & mask;
+    }
+
+    if (size == hashes.length) {
+      grow();
+      return add(bytes);
+    }
+    if (dataLength + bytes.length > data.length) {
+      data = Arrays.copyOf(data, Math.max(2 * data.length, dataLength + bytes.length));
+    }
+    System.arraycopy(bytes, 0, data, dataLength, bytes.length);
+    final var id = size++;
+    offsets[id] = dataLength;
+    dataLength += bytes.length;
+    offsets[id + 1] = dataLength;
+    hashes[id] = hash;
+    table[slot] = id + 1;
+    return id;
+  }
+
+  private boolean equals(final int id, final byte[] bytes) {
+    final var offset = offsets[id];
+    return Arrays.equals(data, offset, offsets[id + 1], bytes, 0, bytes.length);
+  }
+
+  /**
+   * Double the capacity, keeping the table at most half full.
+   */
+  private void grow() {
+    final var capacity = 2 * hashes.length;
+    offsets = Arrays.copyOf(offsets, capacity + 1);
+    hashes = Arrays.copyOf(hashes, capacity);
+    table = new int[2 * capacity];
+    final var mask = table.length - 1;
+    for (var id = 0; id < size; ++id) {
+      var slot = hashes[id] & mask;
+      while (table[slot] != 0) {
+        slot = slot + 1 & mask;
+      }
+      table[slot] = id + 1;
+    }
+  }
+
+  private static int hash(final byte[] bytes) {
+    final var h = Arrays.hashCode(bytes);
+    return h ^ h >>> 16;
+  }
+}
@@ -0,0 +1,206 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+import java.util.jar.Attributes;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.apache.commons.csv.CSVPrinter;
+
+/**
+ * Find JARs whose classes are never reached from some roots, following the references collected by
+ * {@link ClassReferenceJARProcessor}.
+ * <p>
+ * Roots are the <code>Main-Class</code> of each JAR, the implementations of services found by
+ * {@link SPIServiceJARProcessor}, and classes matching some patterns. A class reached in several JARs reaches all of
+ * them. Classes only used through reflection (other than by services) are not reached.
+ * <p>
+ * The graph is stored in arrays indexed by class id: the references of class <code>c</code> are
+ * <code>targets[targetOffsets[c]]</code> to <code>targets[targetOffsets[c + 1] - 1]</code>, and the JARs defining it
+ * are stored the same way.
+ *
+ * @author gael.lhez
+ */
+public class UnusedJARJARProcessor extends ReportFileJARProcessor implements CacheableJARProcessor {
+  private static final int CACHE_VERSION = 1;
+
+  private final ClassReferenceJARProcessor classReferenceJARProcessor;
+  private final SPIServiceJARProcessor serviceJARProcessor;
+  private final Optional<MavenArtifactsJARProcessor> mavenArtifactsJARProcessor;
+  private final List<Predicate<String>> rootPatterns;
+  private final Map<JARInformation, String> mainClasses;
+
+  public UnusedJARJARProcessor(final ReportFile reportFile, final ClassReferenceJARProcessor classReferenceJARProcessor,
+      final SPIServiceJARProcessor serviceJARProcessor, final MavenArtifactsJARProcessor mavenArtifactsJARProcessor,
+      final List<Pattern> rootPatterns) {
+    super("Unused JAR", reportFile);
+    this.classReferenceJARProcessor = Objects.requireNonNull(classReferenceJARProcessor, "classReferenceJARProcessor");
+    this.serviceJARProcessor = Objects.requireNonNull(serviceJARProcessor, "serviceJARProcessor");
+    this.mavenArtifactsJARProcessor = Optional.ofNullable(mavenArtifactsJARProcessor); // optional
+    this.rootPatterns = Objects.requireNonNull(rootPatterns, "rootPatterns").stream().map(Pattern::asPredicate).toList();
+    this.mainClasses = new ConcurrentSkipListMap<>();
+  }
+
+  @Override
+  public List<JARProcessor> getDependencies() {
+    return Stream.<JARProcessor>concat(Stream.of(classReferenceJARProcessor, serviceJARProcessor),
+                                 mavenArtifactsJARProcessor.stream())
+                 .toList();
+  }
+
+  @Override
+  public void init() {
+    mainClasses.clear();
+  }
+
+  @Override
+  public void process(final ProcessorContext context, final JARArchive archive) {
+    try {
+      Optional.ofNullable(archive.getManifest())
+              .map(manifest -> manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS))
+              .map(String::trim)
+              .filter(name -> !name.isEmpty())
+              .ifPresent(name -> mainClasses.put(context.getJARInformation(), name));
+    } catch (final IOException e) {
+      context.addError("Failed to read manifest: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Classes are only read in the base version.
+   */
+  @Override
+  public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+    // nothing to do
+  }
+
+  @Override
+  public String getCacheName() {
+    return "unused-jar";
+  }
+
+  @Override
+  public int getCacheVersion() {
+    return CACHE_VERSION;
+  }
+
+  @Override
+  public void writeCache(final JARInformation jarInformation, final DataOutput out) throws IOException {
+    ScanCache.writeString(out, mainClasses.getOrDefault(jarInformation, ""));
+  }
+
+  @Override
+  public void readCache(final JARInformation jarInformation, final DataInput in) throws IOException {
+    final var mainClass = ScanCache.readString(in);
+    if (!mainClass.isEmpty()) {
+      mainClasses.put(jarInformation, mainClass);
+    }
+  }
+
+  @Override
+  protected void finish(final CSVPrinter printer) throws IOException {
+    final List<JARInformation> jars = new ArrayList<>(classReferenceJARProcessor.getReferences().keySet());
+    final List<ClassReferenceJARProcessor.ClassReferences> classes = new ArrayList<>(
+        classReferenceJARProcessor.getReferences().values());
+    final var n = classReferenceJARProcessor.getClassCount();
+
+    // count references and JARs per class, then fill them
+    final var targetOffsets = new int[n + 1];
+    final var jarOffsets = new int[n + 1];
+    for (final var jarClasses : classes) {
+      for (var i = 0; i < jarClasses.classes().length; ++i) {
+        final var id = jarClasses.classes()[i];
+        targetOffsets[id + 1] += jarClasses.offsets()[i + 1] - jarClasses.offsets()[i];
+        ++jarOffsets[id + 1];
+      }
+    }
+    for (var id = 0; id < n; ++id) {
+      targetOffsets[id + 1] += targetOffsets[id];
+      jarOffsets[id + 1] += jarOffsets[id];
+    }
+    final var targets = new int[targetOffsets[n]];
+    final var jarsPerClass = new int[jarOffsets[n]];
+    final var targetPositions = new int[n];
+    final var jarPositions = new int[n];
+    System.arraycopy(targetOffsets, 0, targetPositions, 0, n);
+    System.arraycopy(jarOffsets, 0, jarPositions, 0, n);
+    for (var jar = 0; jar < classes.size(); ++jar) {
+      final var jarClasses = classes.get(jar);
+      for (var i = 0; i < jarClasses.classes().length; ++i) {
+        final var id = jarClasses.classes()[i];
+        final var from = jarClasses.offsets()[i];
+        final var length = jarClasses.offsets()[i + 1] - from;
+        System.arraycopy(jarClasses.references(), from, targets, targetPositions[id], length);
+        targetPositions[id] += length;
+        jarsPerClass[jarPositions[id]++] = jar;
+      }
+    }
+
+    // breadth first traversal from the roots
+    final var queue = new int[n];
+    final var reached = new BitSet(n);
+    var tail = 0;
+    for (final var root : findRoots(n)) {
+      if (!reached.get(root)) {
+        reached.set(root);
+        queue[tail++] = root;
+      }
+    }
+    final var reachedJARs = new BitSet(jars.size());
+    for (var head = 0; head < tail; ++head) {
+      final var id = queue[head];
+      for (var k = jarOffsets[id]; k < jarOffsets[id + 1]; ++k) {
+        reachedJARs.set(jarsPerClass[k]);
+      }
+      for (var k = targetOffsets[id]; k < targetOffsets[id + 1]; ++k) {
+        final var target = targets[k];
+        if (!reached.get(target)) {
+          reached.set(target);
+          queue[tail++] = target;
+        }
+      }
+    }
+
+    printer.printRecord("JAR", "GAV", "Number of classes");
+    for (var jar = reachedJARs.nextClearBit(0); jar < jars.size(); jar = reachedJARs.nextClearBit(jar + 1)) {
+      final var jarInformation = jars.get(jar);
+      final var gav = mavenArtifactsJARProcessor.map(p -> p.getGAVAsString(jarInformation)).orElse("");
+      printer.printRecord(jarInformation, gav, classes.get(jar).classes().length);
+    }
+  }
+
+  /**
+   * Id of the root classes, which may contain duplicates.
+   */
+  private int[] findRoots(final int n) {
+    final List<String> names = new ArrayList<>(mainClasses.values());
+    names.addAll(serviceJARProcessor.getImplementations());
+    final var roots = IntStream.builder();
+    for (final var name : names) {
+      final var id = classReferenceJARProcessor.findClassId(name.replace('.', '/'));
+      if (id >= 0 && id < n) {
+        roots.add(id);
+      }
+    }
+    if (!rootPatterns.isEmpty()) {
+      for (var id = 0; id < n; ++id) {
+        final var name = classReferenceJARProcessor.getClassName(id).replace('/', '.');
+        if (rootPatterns.stream().anyMatch(pattern -> pattern.test(name))) {
+          roots.add(id);
+        }
+      }
+    }
+    return roots.build().toArray();
+  }
+}
@@ -0,0 +1,145 @@
+package com.github.glhez.jtools.jar.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+import com.github.glhez.jtools.zip.ZipArchive;
+import com.github.glhez.jtools.zip.ZipSource;
+
+/**
+ * A {@link JARArchive} read using {@link ZipArchive}, for example a JAR stored in a WAR.
+ * <p>
+ * The {@link JarEntry} given to processors are created when needed.
+ *
+ * @author gael.lhez
+ */
+class ZipJARArchive implements JARArchive {
+  private static final String MULTI_RELEASE = "Multi-Release";
+
+  private final String name;
+  private final ZipArchive archive;
+  private final Optional<Closeable> owner;
+  private JARManifest manifest;
+  private boolean manifestRead;
+
+  private ZipJARArchive(final String name, final ZipArchive archive, final Optional<Closeable> owner) {
+    this.name = Objects.requireNonNull(name, "name");
+    this.archive = Objects.requireNonNull(archive, "archive");
+    this.owner = Objects.requireNonNull(owner, "owner");
+  }
+
+  static ZipJARArchive open(final String name, final ZipSource source) throws IOException {
+    return new ZipJARArchive(name, ZipArchive.read(source), Optional.empty());
+  }
+
+  /**
+   * Open an archive whose source is closed with the archive.
+   */
+  static ZipJARArchive open(final String name, final ZipSource source, final Closeable owner) throws IOException {
+    return new ZipJARArchive(name, ZipArchive.read(source), Optional.of(owner));
+  }
+
+  @Override
+  public Stream<JarEntry> stream() {
+    return archive.getEntries().stream().map(Entry::new);
+  }
+
+  @Override
+  public Stream<JarEntry> streamInDataOrder() {
+    return archive.inDataOrder(archive.getEntries()).stream().map(Entry::new);
+  }
+
+  @Override
+  public JarEntry getJarEntry(final String name) {
+    final var entry = archive.getEntry(name);
+    return null == entry ? null : new Entry(entry);
+  }
+
+  @Override
+  public InputStream getInputStream(final ZipEntry entry) throws IOException {
+    Objects.requireNonNull(entry, "entry");
+    final var e = entry instanceof final Entry ze && ze.parent == this ? ze.entry : archive.getEntry(entry.getName());
+    if (null == e) {
+      throw new IOException("No such entry: " + entry.getName());
+    }
+    return archive.getInputStream(e);
+  }
+
+  @Override
+  public synchronized JARManifest getManifest() throws IOException {
+    if (!manifestRead) {
+      final var entry = getManifestEntry();
+      if (null != entry) {
+        manifest = JARManifest.read(() -> archive.getInputStream(entry));
+      }
+      manifestRead = true;
+    }
+    return manifest;
+  }
+
+  private ZipArchive.Entry getManifestEntry() {
+    final var entry = archive.getEntry(JarFile.MANIFEST_NAME);
+    if (null != entry) {
+      return entry;
+    }
+    return IntStream.range(0, archive.size())
+                    .mapToObj(archive::getEntry)
+                    .filter(e -> JarFile.MANIFEST_NAME.equalsIgnoreCase(e.getName()))
+                    .findFirst()
+                    .orElse(null);
+  }
+
+  @Override
+  public boolean isMultiRelease() {
+    try {
+      final var mf = getManifest();
+      return null != mf && "true".equalsIgnoreCase(Objects.toString(mf.getMainAttributes().getValue(MULTI_RELEASE),
+                                                                     "").trim());
+    } catch (@SuppressWarnings("unused") final IOException e) {
+      return false; // like JarFile
+    }
+  }
+
+  @Override
+  public long size() {
+    return archive.getSource().size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (owner.isPresent()) {
+      owner.get().close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  /**
+   * A {@link JarEntry} created from an entry of the central directory.
+   */
+  private final class Entry extends JarEntry {
+    private final ZipJARArchive parent = ZipJARArchive.this;
+    private final ZipArchive.Entry entry;
+
+    Entry(final ZipArchive.Entry entry) {
+      super(entry.getName());
+      this.entry = entry;
+      setMethod(entry.getMethod());
+      setCrc(entry.getCrc());
+      setCompressedSize(entry.getCompressedSize());
+      setSize(entry.getSize());
+    }
+  }
+
+}
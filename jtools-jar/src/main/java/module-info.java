@@ -4,10 +4,12 @@
 module com.github.glhez.jtools.jar {
   exports com.github.glhez.jtools.jar;
 
+  requires com.github.glhez.jtools.zip;
   requires info.picocli;
 
   requires org.apache.commons.csv;
   requires java.sql; // due to commons.csv
+  requires java.management; // CPU time of processors (see --metrics)
 
   opens com.github.glhez.jtools.jar to info.picocli;
 
@@ -0,0 +1,81 @@
+package com.github.glhez.jtools.jar.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.glhez.jtools.jar.internal.ClassIndex.IndexedJAR;
+import com.github.glhez.jtools.jar.internal.ClassIndex.Match;
+
+/**
+ * Write an index, then look it up.
+ *
+ * @author gael.lhez
+ */
+class ClassIndexTest {
+  private static final IndexedJAR A = new IndexedJAR("a.jar", "org.example:a:1.0", "org.example.a");
+  private static final IndexedJAR B = new IndexedJAR("b.jar", "", "");
+
+  private static ClassIndex index;
+
+  @BeforeAll
+  static void writeIndex(@TempDir final Path dir) throws IOException {
+    final var classNames = new StringDictionary();
+    final var a = classNames.intern(List.of("org.example.Util", "org.example.Utils", "org.example.impl.UtilX"));
+    final var b = classNames.intern(List.of("org.example.Util", "org.examples.Main", "Default"));
+    final var file = dir.resolve("classes.idx");
+    ClassIndex.write(file, List.of(A, B), List.of(a, b), classNames);
+    index = ClassIndex.open(file);
+  }
+
+  @Test
+  void counts() {
+    assertEquals(2, index.getJARCount());
+    assertEquals(5, index.getClassCount());
+  }
+
+  @Test
+  void exact() {
+    assertEquals(List.of(new Match("org.example.Util", List.of(A, B))), index.findClasses("org.example.Util"));
+    assertEquals(List.of(new Match("org.example.Util", List.of(A, B))), index.findClasses("org/example/Util"));
+    assertEquals(List.of(new Match("Default", List.of(B))), index.findClasses("Default"));
+    assertEquals(List.of(), index.findClasses("org.example.Ut"));
+    assertEquals(List.of(), index.findClasses("org.example.Missing"));
+  }
+
+  @Test
+  void prefix() {
+    assertEquals(List.of("org.example.Util", "org.example.Utils", "org.example.impl.UtilX"),
+        names(index.findClasses("org.example.*")));
+    assertEquals(List.of("org.example.Util", "org.example.Utils", "org.example.impl.UtilX", "org.examples.Main"),
+        names(index.findClasses("org.example*")));
+    assertEquals(List.of(), names(index.findClasses("com.*")));
+  }
+
+  @Test
+  void wildcard() {
+    assertEquals(List.of("org.example.Utils", "org.example.impl.UtilX"), names(index.findClasses("*Util?")));
+    assertEquals(List.of("org.example.impl.UtilX"), names(index.findClasses("org.*.impl.Util?")));
+    assertEquals(List.of("org.example.Util"), names(index.findClasses("org.example.*Util")));
+    assertEquals(List.of("org.example.Util", "org.examples.Main"), names(index.findClasses("*.????")));
+  }
+
+  @Test
+  void packages() {
+    assertEquals(List.of(new Match("org.example", List.of(A, B))), index.findPackages("org.example"));
+    assertEquals(List.of(), index.findPackages("")); // the default package is not indexed
+    assertEquals(List.of("org.example", "org.example.impl", "org.examples"), names(index.findPackages("org.*")));
+    assertEquals(List.of("org.examples"), names(index.findPackages("org.example?")));
+    assertEquals(List.of(new Match("org.example.impl", List.of(A))), index.findPackages("*impl"));
+  }
+
+  private static List<String> names(final List<Match> matches) {
+    return matches.stream().map(Match::name).toList();
+  }
+}
@@ -0,0 +1,188 @@
+package com.github.glhez.jtools.jar.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.glhez.jtools.jar.internal.ClassReferenceJARProcessor.ConstantPoolReader;
+
+/**
+ * Read hand written constant pools with {@link ConstantPoolReader}.
+ *
+ * @author gael.lhez
+ */
+class ClassReferenceJARProcessorTest {
+  private static final int UTF8 = 1;
+  private static final int INTEGER = 3;
+  private static final int LONG = 5;
+  private static final int DOUBLE = 6;
+  private static final int CLASS = 7;
+  private static final int METHOD_HANDLE = 15;
+
+  private final ConstantPoolReader reader = new ConstantPoolReader();
+
+  @Test
+  void longAndDoubleTakeTwoEntries() throws IOException {
+    final var pool = new ConstantPool();
+    pool.add(LONG, 8); // #1 and #2
+    pool.utf8("java/util/List"); // #3
+    pool.classRef(3); // #4
+    pool.add(DOUBLE, 8); // #5 and #6
+    pool.utf8("java/util/Map"); // #7
+    pool.classRef(7); // #8
+    pool.add(INTEGER, 4); // #9
+    pool.add(METHOD_HANDLE, 3); // #10
+    pool.classRef(3); // #11: same class
+
+    assertEquals(List.of("java/util/List", "java/util/Map"), reader.readClassReferences(pool.toClassFile()));
+  }
+
+  @Test
+  void arraysReferenceTheirElementClass() throws IOException {
+    final var pool = new ConstantPool();
+    pool.utf8("[I"); // #1
+    pool.classRef(1); // #2
+    pool.utf8("[[Ljava/lang/String;"); // #3
+    pool.classRef(3); // #4
+    pool.utf8("[[J"); // #5
+    pool.classRef(5); // #6
+
+    assertEquals(List.of("java/lang/String"), reader.readClassReferences(pool.toClassFile()));
+  }
+
+  @Test
+  void buffersAreReused() throws IOException {
+    final var big = new ConstantPool();
+    for (var i = 0; i < 300; ++i) {
+      big.utf8("com/example/Class" + i);
+      big.classRef(2 * i + 1);
+    }
+    assertEquals(300, reader.readClassReferences(big.toClassFile()).size());
+
+    final var small = new ConstantPool();
+    small.utf8("java/lang/Object");
+    small.classRef(1);
+    assertEquals(List.of("java/lang/Object"), reader.readClassReferences(small.toClassFile()));
+  }
+
+  @Test
+  void classFileOfTheJDK() throws IOException {
+    try (var is = Thread.class.getResourceAsStream("Thread.class")) {
+      final var references = reader.readClassReferences(is);
+      assertTrue(references.contains("java/lang/Thread"), references::toString);
+      assertTrue(references.contains("java/lang/Runnable"), references::toString);
+    }
+  }
+
+  @Test
+  void invalidTag() {
+    final var pool = new ConstantPool();
+    pool.add(2, 0); // unused tag
+    assertThrows(IOException.class, () -> reader.readClassReferences(pool.toClassFile()));
+  }
+
+  @Test
+  void invalidClassNameIndex() {
+    final var pool = new ConstantPool();
+    pool.classRef(2);
+    assertThrows(IOException.class, () -> reader.readClassReferences(pool.toClassFile()));
+  }
+
+  @Test
+  void classNameIndexNotToUtf8() throws IOException {
+    final var previous = new ConstantPool();
+    previous.utf8("org/example/Previous"); // #1
+    previous.utf8("org/example/Other"); // #2
+    previous.classRef(1); // #3
+    assertEquals(List.of("org/example/Previous"), reader.readClassReferences(previous.toClassFile()));
+
+    // the slots of the previous class are reused: #1 must not resolve to its name.
+    final var toInteger = new ConstantPool();
+    toInteger.add(INTEGER, 4); // #1
+    toInteger.classRef(1); // #2
+    assertThrows(IOException.class, () -> reader.readClassReferences(toInteger.toClassFile()));
+
+    final var toClass = new ConstantPool();
+    toClass.utf8("org/example/A"); // #1
+    toClass.classRef(1); // #2
+    toClass.classRef(2); // #3
+    assertThrows(IOException.class, () -> reader.readClassReferences(toClass.toClassFile()));
+
+    final var toSecondEntryOfLong = new ConstantPool();
+    toSecondEntryOfLong.add(LONG, 8); // #1 and #2
+    toSecondEntryOfLong.classRef(2); // #3
+    assertThrows(IOException.class, () -> reader.readClassReferences(toSecondEntryOfLong.toClassFile()));
+  }
+
+  @Test
+  void notAClassFile() {
+    assertThrows(IOException.class,
+        () -> reader.readClassReferences(new ByteArrayInputStream(new byte[] { 'P', 'K', 3, 4, 0, 0, 0, 0 })));
+  }
+
+  /**
+   * The start of a class file, up to its constant pool.
+   */
+  private static class ConstantPool {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private int count = 1;
+
+    void utf8(final String value) {
+      try {
+        out.writeByte(UTF8);
+        out.writeUTF(value);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      ++count;
+    }
+
+    void classRef(final int nameIndex) {
+      try {
+        out.writeByte(CLASS);
+        out.writeShort(nameIndex);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      ++count;
+    }
+
+    /**
+     * Add a constant whose content is not read.
+     */
+    void add(final int tag, final int length) {
+      try {
+        out.writeByte(tag);
+        out.write(new byte[length]);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      count += tag == LONG || tag == DOUBLE ? 2 : 1;
+    }
+
+    ByteArrayInputStream toClassFile() {
+      final var classFile = new ByteArrayOutputStream();
+      try (var dos = new DataOutputStream(classFile)) {
+        dos.writeInt(0xCAFEBABE);
+        dos.writeShort(0); // minor version
+        dos.writeShort(61); // major version
+        dos.writeShort(count);
+        dos.write(bytes.toByteArray());
+        dos.writeShort(0x21); // access flags, which are not read
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return new ByteArrayInputStream(classFile.toByteArray());
+    }
+  }
+}
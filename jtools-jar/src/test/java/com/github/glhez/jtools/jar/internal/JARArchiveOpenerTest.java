@@ -0,0 +1,120 @@
+package com.github.glhez.jtools.jar.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Open JARs nested in an EAR, in place.
+ *
+ * @author gael.lhez
+ */
+class JARArchiveOpenerTest {
+  private static final String STORED = "lib/stored.jar";
+  private static final String DEFLATED = "lib/deflated.jar";
+  private static final String CLASS = "org/example/A.class";
+  private static final byte[] CLASS_CONTENT = "not really a class".getBytes(StandardCharsets.UTF_8);
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void smallArchive() throws IOException {
+    final var jar = newJAR();
+    final var ear = Files.write(dir.resolve("small.ear"), newEAR(jar));
+
+    assertNestedJARs(ear, jar);
+  }
+
+  /**
+   * An archive bigger than a mapped buffer: the central directory is moved after a sparse gap of 2 GiB.
+   */
+  @Test
+  void archiveTooBigToBeMapped() throws IOException {
+    final var jar = newJAR();
+    final var bytes = ByteBuffer.wrap(newEAR(jar)).order(ByteOrder.LITTLE_ENDIAN);
+    final var end = bytes.capacity() - 22; // no comment
+    final var directoryOffset = bytes.getInt(end + 16);
+    final var newDirectoryOffset = 1L << 31;
+    bytes.putInt(end + 16, (int) newDirectoryOffset);
+
+    final var ear = dir.resolve("big.ear");
+    try (var channel = FileChannel.open(ear, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+        StandardOpenOption.SPARSE)) {
+      channel.write(bytes.slice(0, directoryOffset), 0);
+      channel.write(bytes.slice(directoryOffset, bytes.capacity() - directoryOffset), newDirectoryOffset);
+    }
+    assertTrue(Files.size(ear) > Integer.MAX_VALUE);
+
+    assertNestedJARs(ear, jar);
+  }
+
+  private static void assertNestedJARs(final Path ear, final byte[] jar) throws IOException {
+    final var stored = JARInformation.newJARInformation(ear, Path.of(STORED));
+    final var deflated = JARInformation.newJARInformation(ear, Path.of(DEFLATED));
+    final var crc = new CRC32();
+    crc.update(jar);
+
+    // in memory, or extracted to a temporary file.
+    for (final var opener : List.of(new JARArchiveOpener(Long.MAX_VALUE), new JARArchiveOpener(0))) {
+      for (final var information : List.of(stored, deflated)) {
+        try (var archive = opener.open(information)) {
+          final var entry = archive.getJarEntry(CLASS);
+          try (var is = archive.getInputStream(entry)) {
+            assertArrayEquals(CLASS_CONTENT, is.readAllBytes(), information.toString());
+          }
+        }
+        try (var is = opener.newInputStream(information)) {
+          assertArrayEquals(jar, is.readAllBytes(), information.toString());
+        }
+        assertEquals(jar.length, opener.size(information));
+      }
+      final var entries = opener.getEntries(ear, List.of(stored, deflated));
+      assertEquals(crc.getValue(), entries.get(stored).getCrc());
+      assertEquals(crc.getValue(), entries.get(deflated).getCrc());
+    }
+  }
+
+  private static byte[] newJAR() throws IOException {
+    final var bos = new ByteArrayOutputStream();
+    try (var zos = new ZipOutputStream(bos)) {
+      zos.putNextEntry(new ZipEntry(CLASS));
+      zos.write(CLASS_CONTENT);
+    }
+    return bos.toByteArray();
+  }
+
+  private static byte[] newEAR(final byte[] jar) throws IOException {
+    final var crc = new CRC32();
+    crc.update(jar);
+    final var bos = new ByteArrayOutputStream();
+    try (var zos = new ZipOutputStream(bos)) {
+      final var stored = new ZipEntry(STORED);
+      stored.setMethod(ZipEntry.STORED);
+      stored.setSize(jar.length);
+      stored.setCrc(crc.getValue());
+      zos.putNextEntry(stored);
+      zos.write(jar);
+      zos.putNextEntry(new ZipEntry(DEFLATED));
+      zos.write(jar);
+    }
+    return bos.toByteArray();
+  }
+}
@@ -0,0 +1,64 @@
+package com.github.glhez.jtools.jar.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Files are found in {@link JARInformation} order, so that reports may be written while they are found.
+ *
+ * @author gael.lhez
+ */
+class JARFileLocatorTest {
+  @TempDir
+  Path dir;
+
+  @Test
+  void filesAreFoundInOrder() throws IOException {
+    final var a = Files.createDirectories(dir.resolve("a"));
+    final var ab = Files.createDirectories(dir.resolve("a-b"));
+    touch(a.resolve("z.jar"));
+    touch(a.resolve("sub/b.jar"));
+    touch(ab.resolve("c.jar"));
+    touch(dir.resolve("b.jar"));
+    final var ear = dir.resolve("a/m.ear");
+    try (var zos = new ZipOutputStream(Files.newOutputStream(ear))) {
+      for (final var name : List.of("lib/z.jar", "lib/a.jar", "lib/m.jar")) {
+        zos.putNextEntry(new ZipEntry(name));
+      }
+    }
+
+    final var locator = new JARFileLocator(JARFileLocator.DeepMode.ALL, List.of(), List.of(), List.of());
+    final List<List<JARInformation>> batches = new ArrayList<>();
+    // "/a-b" is before "/a/z.jar": walking the roots one after the other is not enough.
+    locator.addFileset(List.of(dir.resolve("b.jar"), a, ab), batches::add);
+
+    assertFalse(locator.hasErrors());
+    final var found = batches.stream().flatMap(List::stream).toList();
+    assertEquals(found.stream().sorted().toList(), found);
+    final var real = dir.toRealPath();
+    assertEquals(List.of(real.resolve("a-b/c.jar"), real.resolve("a/m.ear"), real.resolve("a/m.ear"),
+        real.resolve("a/m.ear"), real.resolve("a/m.ear"), real.resolve("a/sub/b.jar"), real.resolve("a/z.jar"),
+        real.resolve("b.jar")), found.stream().map(file -> file.archivePath).toList());
+    // the archive is given before its content.
+    final var beforeContent = batches.get(0);
+    assertEquals(JARInformation.newJARInformation(real.resolve("a/m.ear")),
+        beforeContent.get(beforeContent.size() - 1));
+    assertEquals(3, batches.get(1).size());
+  }
+
+  private static void touch(final Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.createFile(file);
+  }
+}
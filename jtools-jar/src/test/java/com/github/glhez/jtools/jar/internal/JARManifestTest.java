@@ -0,0 +1,66 @@
+package com.github.glhez.jtools.jar.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Compare {@link JARManifest} with {@link Manifest}.
+ *
+ * @author gael.lhez
+ */
+class JARManifestTest {
+  private static final String MANIFEST = """
+      Manifest-Version: 1.0
+      Automatic-Module-Name: org.example.a
+      Class-Path: lib/first.jar lib/second.jar lib/third.jar lib/fourth.jar lib/fifth.jar lib/sixth.
+       jar
+
+      Name: org/example/
+      Sealed: true
+
+      Name: org/example/Main.class
+      Java-Bean: false
+      """;
+
+  @ParameterizedTest
+  @ValueSource(strings = { "\n", "\r\n", "\r" })
+  void sameAsManifest(final String lineEnd) throws IOException {
+    final var bytes = MANIFEST.replace("\n", lineEnd).getBytes(StandardCharsets.UTF_8);
+    final var expected = new Manifest(new ByteArrayInputStream(bytes));
+    final var opened = new AtomicInteger();
+
+    final var manifest = JARManifest.read(() -> {
+      opened.incrementAndGet();
+      return new ByteArrayInputStream(bytes);
+    });
+
+    assertEquals(expected.getMainAttributes(), manifest.getMainAttributes());
+    assertEquals("lib/first.jar lib/second.jar lib/third.jar lib/fourth.jar lib/fifth.jar lib/sixth.jar",
+        manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH));
+    assertEquals(1, opened.get(), "only the main section is read");
+
+    assertEquals(expected.getEntries(), manifest.getEntries());
+    assertEquals("true", manifest.getAttributes("org/example/").getValue(Attributes.Name.SEALED));
+    manifest.getEntries();
+    assertEquals(2, opened.get(), "the entries are read once");
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "", "Manifest-Version: 1.0", "Manifest-Version: 1.0\n" })
+  void withoutEntries(final String content) throws IOException {
+    final var bytes = content.getBytes(StandardCharsets.UTF_8);
+    final var manifest = JARManifest.read(() -> new ByteArrayInputStream(bytes));
+
+    assertEquals(new Manifest(new ByteArrayInputStream(bytes)).getMainAttributes(), manifest.getMainAttributes());
+    assertEquals(0, manifest.getEntries().size());
+  }
+}
@@ -0,0 +1,93 @@
+package com.github.glhez.jtools.jar.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Index a fake repository, whose "JARs" only need a content.
+ *
+ * @author gael.lhez
+ */
+class MavenRepositoryIndexTest {
+  private static final String SHA1 = "0123456789abcdef0123456789abcdef01234567";
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void findBySHA1() throws IOException {
+    final var repository = dir.resolve("repository");
+    final var a = writeJAR(repository, "org/example/a/1.0/a-1.0.jar", "a");
+    writeJAR(repository, "org/example/a/1.0/a-1.0-sources.jar", "sources");
+    writeJAR(repository, "b/1.0/b-1.0.jar", "b"); // no groupId
+    Files.writeString(a.resolveSibling("a-1.0.jar.sha1"), SHA1.toUpperCase() + "  a-1.0.jar\n");
+    final var c = writeJAR(repository, "org/example/c/2.0/c-2.0.jar", "c");
+    Files.writeString(c.resolveSibling("c-2.0.jar.sha1"), "invalid");
+
+    final var index = MavenRepositoryIndex.open(repository, dir.resolve("index"), 2);
+
+    assertEquals(2, index.getIndexedCount());
+    assertEquals(2, index.getReadCount());
+    assertTrue(index.getErrors().isEmpty());
+    assertEquals(Optional.of("org.example:a:1.0"), index.find(SHA1).map(Object::toString));
+    assertEquals(Optional.of("org.example:c:2.0"), index.find(sha1("c")).map(Object::toString));
+    assertEquals(Optional.empty(), index.find(sha1("a")));
+    assertEquals(Optional.empty(), index.find(sha1("sources")));
+  }
+
+  @Test
+  void update() throws IOException {
+    final var repository = dir.resolve("repository");
+    final var indexFile = dir.resolve("index");
+    final var a = writeJAR(repository, "org/example/a/1.0/a-1.0.jar", "a");
+    final var b = writeJAR(repository, "org/example/b/1.0/b-1.0.jar", "b");
+    MavenRepositoryIndex.open(repository, indexFile, 1);
+
+    final var unchanged = MavenRepositoryIndex.open(repository, indexFile, 1);
+    assertEquals(2, unchanged.getIndexedCount());
+    assertEquals(0, unchanged.getReadCount());
+
+    Files.writeString(a, "a2");
+    Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 2000));
+    Files.delete(b);
+    final var updated = MavenRepositoryIndex.open(repository, indexFile, 1);
+    assertEquals(1, updated.getIndexedCount());
+    assertEquals(1, updated.getReadCount());
+    assertEquals(Optional.of("org.example:a:1.0"), updated.find(sha1("a2")).map(Object::toString));
+    assertEquals(Optional.empty(), updated.find(sha1("a")));
+    assertEquals(Optional.empty(), updated.find(sha1("b")));
+  }
+
+  @Test
+  void invalidIndexFile() throws IOException {
+    final var repository = dir.resolve("repository");
+    final var indexFile = dir.resolve("index");
+    writeJAR(repository, "org/example/a/1.0/a-1.0.jar", "a");
+    Files.writeString(indexFile, "not an index");
+
+    final var index = MavenRepositoryIndex.open(repository, indexFile, 1);
+    assertEquals(1, index.getReadCount());
+    assertEquals(Optional.of("org.example:a:1.0"), index.find(sha1("a")).map(Object::toString));
+  }
+
+  private static Path writeJAR(final Path repository, final String path, final String content) throws IOException {
+    final var file = repository.resolve(path);
+    Files.createDirectories(file.getParent());
+    return Files.writeString(file, content);
+  }
+
+  private static String sha1(final String content) throws IOException {
+    return MavenRepositoryIndex.sha1(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,57 @@
+package com.github.glhez.jtools.jar.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Progress printed while a file is being processed.
+ *
+ * @author gael.lhez
+ */
+class ProgressReporterTest {
+  private static final Duration INTERVAL = Duration.ofMillis(10);
+
+  @Test
+  void slowFileIsReportedWhileItIsProcessed() throws InterruptedException {
+    final var bos = new ByteArrayOutputStream();
+    final var out = new PrintStream(bos, true, StandardCharsets.UTF_8);
+    final var progress = new ProgressReporter(out, INTERVAL, Optional.empty());
+    final var fast = JARInformation.newJARInformation(Path.of("fast.jar"));
+    final var slow = JARInformation.newJARInformation(Path.of("slow.jar"));
+
+    progress.start(2);
+    progress.started(fast);
+    progress.done(fast, 100);
+    progress.started(slow);
+    final var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (!output(bos).contains("Processed 1/2 JAR") && System.nanoTime() - deadline < 0) {
+      Thread.sleep(INTERVAL.toMillis());
+    }
+    assertTrue(output(bos).contains("Processed 1/2 JAR [ 50.00%]"), output(bos));
+    assertTrue(output(bos).contains("slowest: slow.jar"), output(bos));
+
+    progress.done(slow, 100);
+    progress.finish();
+    final var printed = output(bos);
+    final var lines = printed.lines().toList();
+    assertTrue(lines.get(lines.size() - 1).startsWith("Processed 2/2 JAR [100.00%]"), printed);
+
+    // the timer is stopped: nothing is printed anymore.
+    Thread.sleep(5 * INTERVAL.toMillis());
+    progress.finish();
+    assertEquals(printed, output(bos));
+  }
+
+  private static String output(final ByteArrayOutputStream bos) {
+    return bos.toString(StandardCharsets.UTF_8);
+  }
+}
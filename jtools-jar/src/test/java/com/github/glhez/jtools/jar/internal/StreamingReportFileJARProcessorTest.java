@@ -0,0 +1,95 @@
+package com.github.glhez.jtools.jar.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Rows are written once a JAR and the JARs found before it were processed, without waiting for the other JARs to be
+ * found.
+ *
+ * @author gael.lhez
+ */
+class StreamingReportFileJARProcessorTest {
+  @TempDir
+  Path dir;
+
+  @Test
+  void rowsAreWrittenWhileFilesAreFound() {
+    final var processor = new RecordingProcessor(ReportFile.newReportFile(CSVFormat.DEFAULT, dir, "report"));
+    final var a = JARInformation.newJARInformation(Path.of("a.jar"));
+    final var b = JARInformation.newJARInformation(Path.of("b.jar"));
+    final var c = JARInformation.newJARInformation(Path.of("c.jar"));
+    final var d = JARInformation.newJARInformation(Path.of("d.jar"));
+
+    processor.init();
+    processor.found(List.of(a, b));
+    processor.processed(b);
+    assertEquals(List.of(), processor.printed);
+    processor.processed(a);
+    assertEquals(List.of(a, b), processor.printed);
+
+    processor.found(List.of(c, d));
+    processor.processed(d);
+    assertEquals(List.of(a, b), processor.printed);
+    processor.processed(c);
+    assertEquals(List.of(a, b, c, d), processor.printed);
+    processor.finish();
+    assertEquals(List.of(a, b, c, d), processor.printed);
+  }
+
+  @Test
+  void filesNotProcessedAreWrittenByFinish() {
+    final var processor = new RecordingProcessor(ReportFile.newReportFile(CSVFormat.DEFAULT, dir, "report"));
+    final var a = JARInformation.newJARInformation(Path.of("a.jar"));
+    final var b = JARInformation.newJARInformation(Path.of("b.jar"));
+
+    processor.init();
+    processor.found(List.of(a, b));
+    processor.processed(b);
+    processor.finish();
+    assertEquals(List.of(a, b), processor.printed);
+  }
+
+  private static class RecordingProcessor extends StreamingReportFileJARProcessor {
+    final List<JARInformation> printed = new ArrayList<>();
+
+    RecordingProcessor(final ReportFile reportFile) {
+      super("test", reportFile);
+    }
+
+    @Override
+    public void process(final ProcessorContext context, final JARArchive archive) {
+      // nothing to do
+    }
+
+    @Override
+    public void processVersion(final ProcessorContext context, final MultiReleaseVersion version) {
+      // nothing to do
+    }
+
+    @Override
+    protected void reset() {
+      printed.clear();
+    }
+
+    @Override
+    protected void printHeader(final CSVPrinter printer) throws IOException {
+      printer.printRecord("file");
+    }
+
+    @Override
+    protected void printRows(final CSVPrinter printer, final JARInformation file) throws IOException {
+      printed.add(file);
+      printer.printRecord(file);
+    }
+  }
+}
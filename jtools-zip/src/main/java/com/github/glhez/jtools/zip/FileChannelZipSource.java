@@ -0,0 +1,53 @@
+package com.github.glhez.jtools.zip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Objects;
+
+/**
+ * A file too big to be mapped at once.
+ * <p>
+ * Slices up to {@link #MAX_READ_SIZE} (the end of the archive, local headers, small entries) are read in a heap
+ * buffer, to avoid a mapping per header; bigger slices are mapped.
+ *
+ * @author gael.lhez
+ */
+final class FileChannelZipSource implements ZipSource {
+  /**
+   * Enough for the END header and its comment.
+   */
+  static final int MAX_READ_SIZE = 128 * 1024;
+
+  private final FileChannel channel;
+  private final long size;
+
+  FileChannelZipSource(final FileChannel channel, final long size) {
+    this.channel = channel;
+    this.size = size;
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public ByteBuffer slice(final long position, final int length) throws IOException {
+    Objects.checkFromIndexSize(position, length, size);
+    if (length > MAX_READ_SIZE) {
+      return channel.map(MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    final var buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      // positional reads do not change the position of the channel, which may be used by several threads.
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("unexpected end of file at " + (position + buffer.position()));
+      }
+    }
+    return buffer.flip().order(ByteOrder.LITTLE_ENDIAN);
+  }
+}
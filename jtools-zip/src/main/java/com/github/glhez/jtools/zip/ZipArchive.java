@@ -0,0 +1,568 @@
+package com.github.glhez.jtools.zip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Read the central directory of a ZIP archive, and the content of its entries, from a {@link ZipSource}.
+ * <p>
+ * The central directory is not copied: an {@link Entry} is a view over its record, and only the position of each
+ * record and a hash table of names are computed when reading the archive. {@link ZipEntry#STORED} entries are read
+ * from the source, and {@link ZipEntry#DEFLATED} entries are inflated from the source.
+ * <p>
+ * An archive may be read by several threads, each stream having its own state. ZIP64 archives are supported, but not
+ * archives split on several disks.
+ *
+ * @author gael.lhez
+ */
+public final class ZipArchive {
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int END_SIZE = 22;
+  private static final int MAX_COMMENT_SIZE = 0xFFFF;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_LOCATOR_SIZE = 20;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_END_SIZE = 56;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  private static final int CENTRAL_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_SIZE = 46;
+  private static final int LOCAL_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_SIZE = 30;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+  private static final int SIZE_FIELD = 0;
+  private static final int COMPRESSED_SIZE_FIELD = 1;
+  private static final int LOCAL_HEADER_OFFSET_FIELD = 2;
+
+  private final ZipSource source;
+  private final ByteBuffer directory;
+  /**
+   * Position of each record in the central directory.
+   */
+  private final int[] records;
+  /**
+   * Open addressing table of names, containing <code>index + 1</code> (0 is a free slot).
+   */
+  private final int[] table;
+
+  private ZipArchive(final ZipSource source, final ByteBuffer directory, final int[] records) {
+    this.source = source;
+    this.directory = directory;
+    this.records = records;
+    this.table = new int[Integer.highestOneBit(Math.max(1, records.length)) << 2];
+    final var mask = table.length - 1;
+    for (var index = 0; index < records.length; ++index) {
+      var slot = hashName(records[index]) & mask;
+      while (table[slot] != 0) {
+        slot = slot + 1 & mask;
+      }
+      table[slot] = index + 1;
+    }
+  }
+
+  /**
+   * Read the central directory.
+   *
+   * @param source
+   *          the archive.
+   * @return the archive.
+   * @throws ZipException
+   *           if this is not a ZIP archive, or an unsupported one.
+   * @throws IOException
+   *           if the archive could not be read.
+   */
+  public static ZipArchive read(final ZipSource source) throws IOException {
+    Objects.requireNonNull(source, "source");
+    final var size = source.size();
+    final var tailSize = (int) Math.min(size, END_SIZE + MAX_COMMENT_SIZE);
+    if (tailSize < END_SIZE) {
+      throw new ZipException("zip END header not found");
+    }
+    final var tailOffset = size - tailSize;
+    final var tail = source.slice(tailOffset, tailSize);
+    var end = -1;
+    for (var i = tailSize - END_SIZE; i >= 0; --i) {
+      if (tail.getInt(i) == END_SIGNATURE) {
+        end = i;
+        break;
+      }
+    }
+    if (end == -1) {
+      throw new ZipException("zip END header not found");
+    }
+
+    long count = Short.toUnsignedInt(tail.getShort(end + 10));
+    var directorySize = Integer.toUnsignedLong(tail.getInt(end + 12));
+    var directoryOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+    final var zip64End = readZip64End(source, tailOffset + end);
+    if (null != zip64End) {
+      count = zip64End.getLong(32);
+      directorySize = zip64End.getLong(40);
+      directoryOffset = zip64End.getLong(48);
+    } else if (directorySize == ZIP64_MAGIC || directoryOffset == ZIP64_MAGIC) {
+      throw new ZipException("invalid END header (ZIP64 locator not found)");
+    }
+    if (directoryOffset < 0 || directorySize < 0 || directoryOffset + directorySize > size) {
+      throw new ZipException("invalid END header (bad central directory offset)");
+    }
+    if (directorySize > Integer.MAX_VALUE) {
+      throw new ZipException("central directory is too large");
+    }
+
+    final var directory = source.slice(directoryOffset, (int) directorySize).asReadOnlyBuffer()
+                                .order(ByteOrder.LITTLE_ENDIAN);
+    var records = new int[(int) Math.min(count, directorySize / CENTRAL_SIZE)];
+    var n = 0;
+    var position = 0;
+    while (position < directory.limit()) {
+      if (position + CENTRAL_SIZE > directory.limit() || directory.getInt(position) != CENTRAL_SIGNATURE) {
+        throw new ZipException("invalid CEN header (bad signature)");
+      }
+      final var nameLength = Short.toUnsignedInt(directory.getShort(position + 28));
+      final var extraLength = Short.toUnsignedInt(directory.getShort(position + 30));
+      final var commentLength = Short.toUnsignedInt(directory.getShort(position + 32));
+      final var next = position + CENTRAL_SIZE + nameLength + extraLength + commentLength;
+      if (next > directory.limit()) {
+        throw new ZipException("invalid CEN header (bad header size)");
+      }
+      if (n == records.length) {
+        records = Arrays.copyOf(records, Math.max(16, 2 * n));
+      }
+      records[n++] = position;
+      position = next;
+    }
+    // the count of the END header may have overflowed, as with the JDK.
+    if (n != count && (null != zip64End || (n & 0xFFFF) != count)) {
+      throw new ZipException("invalid CEN header (bad entry count)");
+    }
+    final var archive = new ZipArchive(source, directory, n == records.length ? records : Arrays.copyOf(records, n));
+    archive.checkZip64Extras();
+    return archive;
+  }
+
+  /**
+   * Read the ZIP64 END header, if the archive has one.
+   *
+   * @return the header or <code>null</code>.
+   */
+  private static ByteBuffer readZip64End(final ZipSource source, final long endOffset) throws IOException {
+    final var locatorOffset = endOffset - ZIP64_LOCATOR_SIZE;
+    if (locatorOffset < 0) {
+      return null;
+    }
+    final var locator = source.slice(locatorOffset, ZIP64_LOCATOR_SIZE);
+    if (locator.getInt(0) != ZIP64_LOCATOR_SIGNATURE) {
+      return null;
+    }
+    final var zip64EndOffset = locator.getLong(8);
+    if (zip64EndOffset < 0 || zip64EndOffset + ZIP64_END_SIZE > locatorOffset) {
+      throw new ZipException("invalid ZIP64 END header (bad offset)");
+    }
+    final var zip64End = source.slice(zip64EndOffset, ZIP64_END_SIZE);
+    if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+      throw new ZipException("invalid ZIP64 END header (bad signature)");
+    }
+    return zip64End;
+  }
+
+  /**
+   * Ensure that all values stored in a ZIP64 extra field are present, so that {@link Entry} never fails.
+   */
+  private void checkZip64Extras() throws ZipException {
+    for (final var record : records) {
+      for (var field = SIZE_FIELD; field <= LOCAL_HEADER_OFFSET_FIELD; ++field) {
+        if (getLong(record, field) < 0) {
+          throw new ZipException("invalid CEN header (bad ZIP64 extra field) for " + getName(record));
+        }
+      }
+    }
+  }
+
+  /**
+   * The bytes of this archive.
+   *
+   * @return the source used to read this archive.
+   */
+  public ZipSource getSource() {
+    return source;
+  }
+
+  /**
+   * Number of entries.
+   *
+   * @return a size.
+   */
+  public int size() {
+    return records.length;
+  }
+
+  /**
+   * All entries, in the order of the central directory.
+   * <p>
+   * Views are created when getting an entry from this list.
+   *
+   * @return entries.
+   */
+  public List<Entry> getEntries() {
+    return new EntryList();
+  }
+
+  /**
+   * Get an entry.
+   *
+   * @param index
+   *          index of the entry in the central directory.
+   * @return an entry.
+   */
+  public Entry getEntry(final int index) {
+    return new Entry(Objects.checkIndex(index, records.length));
+  }
+
+  /**
+   * Find an entry, or the directory having this name.
+   *
+   * @param name
+   *          name of the entry.
+   * @return an entry or <code>null</code>.
+   * @see java.util.zip.ZipFile#getEntry(String)
+   */
+  public Entry getEntry(final String name) {
+    Objects.requireNonNull(name, "name");
+    var index = indexOf(name.getBytes(StandardCharsets.UTF_8));
+    if (index == -1 && !name.endsWith("/")) {
+      index = indexOf((name + "/").getBytes(StandardCharsets.UTF_8));
+    }
+    return index == -1 ? null : new Entry(index);
+  }
+
+  /**
+   * Sort entries in the order of their data, so that reading all of them reads the archive sequentially.
+   *
+   * @param entries
+   *          entries of this archive.
+   * @return a new list.
+   */
+  public List<Entry> inDataOrder(final Collection<Entry> entries) {
+    final List<Entry> sorted = new ArrayList<>(entries);
+    sorted.sort(Comparator.comparingLong(Entry::getLocalHeaderOffset));
+    return sorted;
+  }
+
+  /**
+   * The compressed content of an entry.
+   *
+   * @param entry
+   *          an entry of this archive.
+   * @return a slice of the source.
+   * @throws IOException
+   *           if the local header is invalid.
+   */
+  public ByteBuffer getData(final Entry entry) throws IOException {
+    checkEntry(entry);
+    final var offset = entry.getLocalHeaderOffset();
+    if (offset + LOCAL_SIZE > source.size()) {
+      throw new ZipException("invalid LOC header (bad offset) for " + entry.getName());
+    }
+    final var header = source.slice(offset, LOCAL_SIZE);
+    if (header.getInt(0) != LOCAL_SIGNATURE) {
+      throw new ZipException("invalid LOC header (bad signature) for " + entry.getName());
+    }
+    final var dataOffset = offset + LOCAL_SIZE + Short.toUnsignedInt(header.getShort(26))
+        + Short.toUnsignedInt(header.getShort(28));
+    final var compressedSize = entry.getCompressedSize();
+    if (dataOffset + compressedSize > source.size()) {
+      throw new ZipException("invalid LOC header (bad size) for " + entry.getName());
+    }
+    if (compressedSize > Integer.MAX_VALUE) {
+      throw new ZipException("entry is too large: " + entry.getName());
+    }
+    return source.slice(dataOffset, (int) compressedSize);
+  }
+
+  /**
+   * Open an entry.
+   *
+   * @param entry
+   *          an entry of this archive.
+   * @return a stream over the uncompressed content.
+   * @throws IOException
+   *           if the entry could not be read.
+   */
+  public InputStream getInputStream(final Entry entry) throws IOException {
+    final var data = getData(entry);
+    return switch (entry.getMethod()) {
+      case ZipEntry.STORED -> new ByteBufferInputStream(data);
+      case ZipEntry.DEFLATED -> new ByteBufferInflaterInputStream(data);
+      default -> throw new ZipException("invalid compression method " + entry.getMethod() + " for "
+          + entry.getName());
+    };
+  }
+
+  private void checkEntry(final Entry entry) {
+    Objects.requireNonNull(entry, "entry");
+    if (entry.archive() != this) {
+      throw new IllegalArgumentException("not an entry of this archive: " + entry.getName());
+    }
+  }
+
+  private int indexOf(final byte[] name) {
+    final var mask = table.length - 1;
+    var slot = hash(name) & mask;
+    for (var index = table[slot]; index != 0; index = table[slot]) {
+      if (nameEquals(records[index - 1], name)) {
+        return index - 1;
+      }
+      slot = slot + 1 & mask;
+    }
+    return -1;
+  }
+
+  private boolean nameEquals(final int record, final byte[] name) {
+    if (nameLength(record) != name.length) {
+      return false;
+    }
+    final var offset = record + CENTRAL_SIZE;
+    for (var i = 0; i < name.length; ++i) {
+      if (directory.get(offset + i) != name[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int hashName(final int record) {
+    var h = 1;
+    final var offset = record + CENTRAL_SIZE;
+    for (var i = 0; i < nameLength(record); ++i) {
+      h = 31 * h + directory.get(offset + i);
+    }
+    return h ^ h >>> 16;
+  }
+
+  private static int hash(final byte[] name) {
+    final var h = Arrays.hashCode(name);
+    return h ^ h >>> 16;
+  }
+
+  private int nameLength(final int record) {
+    return Short.toUnsignedInt(directory.getShort(record + 28));
+  }
+
+  private String getName(final int record) {
+    final var name = new byte[nameLength(record)];
+    directory.get(record + CENTRAL_SIZE, name);
+    return new String(name, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Read a value which may be stored in the ZIP64 extra field.
+   *
+   * @return the value or <code>-1</code> if the extra field is missing.
+   */
+  private long getLong(final int record, final int field) {
+    final var value = Integer.toUnsignedLong(directory.getInt(record + switch (field) {
+      case SIZE_FIELD -> 24;
+      case COMPRESSED_SIZE_FIELD -> 20;
+      default -> 42;
+    }));
+    if (value != ZIP64_MAGIC) {
+      return value;
+    }
+    // the extra field contains each value stored as ZIP64_MAGIC, in order.
+    var index = 0;
+    for (var i = SIZE_FIELD; i < field; ++i) {
+      if (Integer.toUnsignedLong(directory.getInt(record + (i == SIZE_FIELD ? 24 : 20))) == ZIP64_MAGIC) {
+        ++index;
+      }
+    }
+    var position = record + CENTRAL_SIZE + nameLength(record);
+    final var end = position + Short.toUnsignedInt(directory.getShort(record + 30));
+    while (position + 4 <= end) {
+      final var id = Short.toUnsignedInt(directory.getShort(position));
+      final var length = Short.toUnsignedInt(directory.getShort(position + 2));
+      if (id == ZIP64_EXTRA_ID) {
+        return 8 * index + 8 <= length && position + 4 + length <= end ? directory.getLong(position + 4 + 8 * index)
+            : -1;
+      }
+      position += 4 + length;
+    }
+    return -1;
+  }
+
+  /**
+   * A view over an entry of the central directory.
+   * <p>
+   * Values are read from the central directory when needed, and the name is only decoded by {@link #getName()}.
+   */
+  public final class Entry {
+    private final int index;
+    private final int record;
+
+    private Entry(final int index) {
+      this.index = index;
+      this.record = records[index];
+    }
+
+    private ZipArchive archive() {
+      return ZipArchive.this;
+    }
+
+    /**
+     * Index of this entry in the central directory.
+     *
+     * @return an index.
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    public String getName() {
+      return ZipArchive.this.getName(record);
+    }
+
+    /**
+     * The name, as stored in the central directory.
+     *
+     * @return a read only buffer.
+     */
+    public ByteBuffer getNameBytes() {
+      return directory.slice(record + CENTRAL_SIZE, nameLength(record));
+    }
+
+    public boolean isDirectory() {
+      final var length = nameLength(record);
+      return length > 0 && directory.get(record + CENTRAL_SIZE + length - 1) == '/';
+    }
+
+    public int getMethod() {
+      return Short.toUnsignedInt(directory.getShort(record + 10));
+    }
+
+    public long getCrc() {
+      return Integer.toUnsignedLong(directory.getInt(record + 16));
+    }
+
+    public long getCompressedSize() {
+      return getLong(record, COMPRESSED_SIZE_FIELD);
+    }
+
+    public long getSize() {
+      return getLong(record, SIZE_FIELD);
+    }
+
+    public long getLocalHeaderOffset() {
+      return getLong(record, LOCAL_HEADER_OFFSET_FIELD);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return obj instanceof final Entry other && other.archive() == archive() && other.index == index;
+    }
+
+    @Override
+    public int hashCode() {
+      return index;
+    }
+
+    @Override
+    public String toString() {
+      return getName();
+    }
+  }
+
+  private final class EntryList extends AbstractList<Entry> implements RandomAccess {
+    @Override
+    public Entry get(final int index) {
+      return getEntry(index);
+    }
+
+    @Override
+    public int size() {
+      return records.length;
+    }
+  }
+
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(final ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) {
+      Objects.checkFromIndexSize(off, len, b.length);
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      final var n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public long skip(final long n) {
+      final var k = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + k);
+      return k;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+
+  /**
+   * Inflate directly from the source.
+   */
+  private static final class ByteBufferInflaterInputStream extends InflaterInputStream {
+    private boolean eof;
+
+    ByteBufferInflaterInputStream(final ByteBuffer data) {
+      super(InputStream.nullInputStream(), new Inflater(true), 1);
+      inf.setInput(data);
+    }
+
+    @Override
+    protected void fill() throws IOException {
+      if (eof) {
+        throw new EOFException("Unexpected end of ZLIB input stream");
+      }
+      // the whole entry was given to the inflater: nowrap mode may need an extra "dummy" byte.
+      inf.setInput(new byte[1]);
+      eof = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      super.close();
+      inf.end();
+    }
+  }
+
+}
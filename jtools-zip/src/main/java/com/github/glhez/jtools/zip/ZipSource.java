@@ -0,0 +1,82 @@
+package com.github.glhez.jtools.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Objects;
+
+/**
+ * The bytes of a ZIP archive, either a file or a buffer.
+ * <p>
+ * A source may be used by several threads.
+ *
+ * @author gael.lhez
+ */
+public interface ZipSource {
+  /**
+   * Size of the archive.
+   *
+   * @return a size, in bytes.
+   */
+  long size();
+
+  /**
+   * Get some part of the archive, without copying it unless it is small and the archive is not mapped at once.
+   *
+   * @param position
+   *          position of the first byte.
+   * @param length
+   *          number of bytes.
+   * @return a little endian buffer.
+   * @throws IOException
+   *           if the archive could not be read.
+   */
+  ByteBuffer slice(long position, int length) throws IOException;
+
+  /**
+   * Map a file.
+   * <p>
+   * A file smaller than the maximum size of a {@link ByteBuffer} is mapped once, and remains readable once the
+   * channel is closed. Bigger files are mapped in parts, as needed, and their small parts (such as headers) are read
+   * rather than mapped: the channel must then remain open while the source is used.
+   *
+   * @param channel
+   *          a channel opened for reading; the channel may be used by several threads.
+   * @return a source.
+   * @throws IOException
+   *           if the file could not be mapped.
+   */
+  static ZipSource of(final FileChannel channel) throws IOException {
+    Objects.requireNonNull(channel, "channel");
+    final var size = channel.size();
+    if (size <= Integer.MAX_VALUE) {
+      return of(channel.map(MapMode.READ_ONLY, 0, size));
+    }
+    return new FileChannelZipSource(channel, size);
+  }
+
+  /**
+   * Use a buffer.
+   *
+   * @param buffer
+   *          the archive, from its position to its limit.
+   * @return a source.
+   */
+  static ZipSource of(final ByteBuffer buffer) {
+    final var content = buffer.slice();
+    return new ZipSource() {
+      @Override
+      public long size() {
+        return content.capacity();
+      }
+
+      @Override
+      public ByteBuffer slice(final long position, final int length) {
+        Objects.checkFromIndexSize(position, length, content.capacity());
+        return content.slice((int) position, length).order(ByteOrder.LITTLE_ENDIAN);
+      }
+    };
+  }
+}
@@ -0,0 +1,6 @@
+/**
+ * @author gael.lhez
+ */
+module com.github.glhez.jtools.zip {
+  exports com.github.glhez.jtools.zip;
+}
@@ -0,0 +1,263 @@
+package com.github.glhez.jtools.zip;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Read archives written by {@link ZipWriter}, and check that invalid archives are rejected with a
+ * {@link ZipException}, which callers use to fall back to {@link ZipFile}.
+ *
+ * @author gael.lhez
+ */
+class ZipArchiveTest {
+  private static final int END_SIZE = 22;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void storedAndDeflated() throws IOException {
+    final var archive = read(new ZipWriter().stored("dir/", "")
+                                            .stored("dir/stored.txt", "stored content")
+                                            .deflated("dir/deflated.txt", "deflated content ".repeat(100))
+                                            .toByteArray());
+
+    assertEquals(3, archive.size());
+    assertEquals(List.of("dir/", "dir/stored.txt", "dir/deflated.txt"), names(archive.getEntries()));
+
+    final var stored = archive.getEntry("dir/stored.txt");
+    assertEquals(1, stored.getIndex());
+    assertEquals(ZipEntry.STORED, stored.getMethod());
+    assertEquals(14, stored.getSize());
+    assertEquals(14, stored.getCompressedSize());
+    assertFalse(stored.isDirectory());
+    assertEquals("stored content", content(archive, stored));
+
+    final var deflated = archive.getEntry("dir/deflated.txt");
+    assertEquals(ZipEntry.DEFLATED, deflated.getMethod());
+    assertEquals(1700, deflated.getSize());
+    assertTrue(deflated.getCompressedSize() < deflated.getSize());
+    assertEquals("deflated content ".repeat(100), content(archive, deflated));
+
+    assertTrue(archive.getEntry("dir").isDirectory());
+    assertEquals(archive.getEntry(0), archive.getEntry("dir"));
+    assertNull(archive.getEntry("missing"));
+  }
+
+  @Test
+  void zip64() throws IOException {
+    final var bytes = new ZipWriter().stored("a.txt", "a")
+                                     .deflated("b.txt", "b".repeat(1000))
+                                     .zip64End()
+                                     .zip64Extras()
+                                     .toByteArray();
+    final var archive = read(bytes);
+
+    assertEquals(List.of("a.txt", "b.txt"), names(archive.getEntries()));
+    final var b = archive.getEntry("b.txt");
+    assertEquals(1000, b.getSize());
+    assertEquals("b".repeat(1000), content(archive, b));
+    assertEquals("a", content(archive, archive.getEntry("a.txt")));
+
+    // the same values as the JDK
+    try (var zipFile = new ZipFile(Files.write(dir.resolve("zip64.zip"), bytes).toFile())) {
+      for (final var entry : archive.getEntries()) {
+        final var expected = zipFile.getEntry(entry.getName());
+        assertEquals(expected.getSize(), entry.getSize());
+        assertEquals(expected.getCompressedSize(), entry.getCompressedSize());
+        assertEquals(expected.getCrc(), entry.getCrc());
+      }
+    }
+  }
+
+  @Test
+  void zip64EndOnly() throws IOException {
+    final var archive = read(new ZipWriter().stored("a.txt", "a").zip64End().toByteArray());
+
+    assertEquals("a", content(archive, archive.getEntry("a.txt")));
+  }
+
+  @Test
+  void inDataOrder() throws IOException {
+    final var archive = read(new ZipWriter().stored("1", "one")
+                                            .deflated("2", "two")
+                                            .stored("3", "three")
+                                            .reversedDirectory()
+                                            .toByteArray());
+
+    assertEquals(List.of("3", "2", "1"), names(archive.getEntries()));
+    assertEquals(List.of("1", "2", "3"), names(archive.inDataOrder(archive.getEntries())));
+    assertEquals(List.of("1", "3"), names(archive.inDataOrder(List.of(archive.getEntry("3"), archive.getEntry("1")))));
+  }
+
+  @Test
+  void concurrentStreams() throws IOException, InterruptedException, ExecutionException {
+    final var writer = new ZipWriter();
+    for (var i = 0; i < 50; ++i) {
+      if (i % 2 == 0) {
+        writer.stored("entry" + i, "stored " + i);
+      } else {
+        writer.deflated("entry" + i, ("deflated " + i + " ").repeat(i * 100));
+      }
+    }
+    final var archive = read(writer.toByteArray());
+    final List<String> expected = new ArrayList<>();
+    for (final var entry : archive.getEntries()) {
+      expected.add(content(archive, entry));
+    }
+
+    final List<Callable<List<String>>> tasks = new ArrayList<>();
+    for (var thread = 0; thread < 8; ++thread) {
+      final var random = new Random(thread);
+      tasks.add(() -> {
+        final List<ZipArchive.Entry> entries = new ArrayList<>(archive.getEntries());
+        final var contents = new String[entries.size()];
+        for (var round = 0; round < 20; ++round) {
+          Collections.shuffle(entries, random);
+          for (final var entry : entries) {
+            contents[entry.getIndex()] = content(archive, entry);
+          }
+        }
+        return Arrays.asList(contents);
+      });
+    }
+    final var executor = Executors.newFixedThreadPool(8);
+    try {
+      for (final var result : executor.invokeAll(tasks)) {
+        assertEquals(expected, result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void notAnArchive() {
+    assertThrows(ZipException.class, () -> read(new byte[0]));
+    assertThrows(ZipException.class, () -> read(new byte[1000]));
+  }
+
+  @Test
+  void truncated() {
+    final var bytes = new ZipWriter().stored("a.txt", "a").deflated("b.txt", "b").toByteArray();
+
+    // the END header is cut
+    assertThrows(ZipException.class, () -> read(Arrays.copyOf(bytes, bytes.length - 1)));
+    // the beginning of the archive is missing: the central directory is not where the END header says.
+    assertThrows(ZipException.class, () -> read(Arrays.copyOfRange(bytes, 10, bytes.length)));
+    // an entry is missing from the central directory.
+    final var missingEntry = bytes.clone();
+    end(missingEntry).putShort(8, (short) 3).putShort(10, (short) 3);
+    assertThrows(ZipException.class, () -> read(missingEntry));
+  }
+
+  @Test
+  void corruptDirectory() {
+    final var bytes = new ZipWriter().stored("a.txt", "a").deflated("b.txt", "b").toByteArray();
+    final var directoryOffset = end(bytes).getInt(16);
+
+    final var nameTooLong = bytes.clone();
+    ByteBuffer.wrap(nameTooLong).order(ByteOrder.LITTLE_ENDIAN).putShort(directoryOffset + 28, (short) 1000);
+    assertThrows(ZipException.class, () -> read(nameTooLong));
+
+    final var zip64WithoutLocator = bytes.clone();
+    end(zip64WithoutLocator).putInt(16, -1);
+    assertThrows(ZipException.class, () -> read(zip64WithoutLocator));
+
+    final var directoryAfterEnd = bytes.clone();
+    end(directoryAfterEnd).putInt(16, bytes.length);
+    assertThrows(ZipException.class, () -> read(directoryAfterEnd));
+  }
+
+  @Test
+  void corruptZip64() {
+    final var bytes = new ZipWriter().stored("a.txt", "a").zip64End().zip64Extras().toByteArray();
+    final var locatorOffset = bytes.length - END_SIZE - 20;
+
+    final var badLocator = bytes.clone();
+    ByteBuffer.wrap(badLocator).order(ByteOrder.LITTLE_ENDIAN).putLong(locatorOffset + 8, bytes.length);
+    assertThrows(ZipException.class, () -> read(badLocator));
+
+    final var zip64EndOffset = (int) ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getLong(locatorOffset + 8);
+    final var badZip64End = bytes.clone();
+    badZip64End[zip64EndOffset] = 0;
+    assertThrows(ZipException.class, () -> read(badZip64End));
+
+    // the extra field lacks the offset of the local header
+    final var directoryOffset = (int) ByteBuffer.wrap(bytes)
+                                                .order(ByteOrder.LITTLE_ENDIAN)
+                                                .getLong(zip64EndOffset + 48);
+    final var shortExtra = bytes.clone();
+    ByteBuffer.wrap(shortExtra).order(ByteOrder.LITTLE_ENDIAN).putShort(directoryOffset + 46 + 5 + 2, (short) 16);
+    assertThrows(ZipException.class, () -> read(shortExtra));
+  }
+
+  @Test
+  void corruptEntry() throws IOException {
+    final var bytes = new ZipWriter().stored("a.txt", "a").toByteArray();
+
+    final var badSignature = bytes.clone();
+    badSignature[0] = 0;
+    final var archive = read(badSignature);
+    assertThrows(ZipException.class, () -> archive.getInputStream(archive.getEntry("a.txt")));
+
+    final var badMethod = bytes.clone();
+    ByteBuffer.wrap(badMethod).order(ByteOrder.LITTLE_ENDIAN).putShort(end(bytes).getInt(16) + 10, (short) 12);
+    final var bzip2 = read(badMethod);
+    assertThrows(ZipException.class, () -> bzip2.getInputStream(bzip2.getEntry("a.txt")));
+  }
+
+  @Test
+  void otherArchive() throws IOException {
+    final var bytes = new ZipWriter().stored("a.txt", "a").toByteArray();
+    final var archive = read(bytes);
+    final var entry = read(bytes).getEntry("a.txt");
+
+    assertThrows(IllegalArgumentException.class, () -> archive.getInputStream(entry));
+  }
+
+  private static ZipArchive read(final byte[] bytes) throws IOException {
+    return ZipArchive.read(ZipSource.of(ByteBuffer.wrap(bytes)));
+  }
+
+  /**
+   * The END header of an archive without comment.
+   */
+  private static ByteBuffer end(final byte[] bytes) {
+    return ByteBuffer.wrap(bytes, bytes.length - END_SIZE, END_SIZE).slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static String content(final ZipArchive archive, final ZipArchive.Entry entry) throws IOException {
+    try (var is = archive.getInputStream(entry)) {
+      return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static List<String> names(final List<ZipArchive.Entry> entries) {
+    return entries.stream().map(ZipArchive.Entry::getName).toList();
+  }
+}
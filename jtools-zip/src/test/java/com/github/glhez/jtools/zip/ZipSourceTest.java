@@ -0,0 +1,70 @@
+package com.github.glhez.jtools.zip;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Read an archive too big to be mapped at once.
+ *
+ * @author gael.lhez
+ */
+class ZipSourceTest {
+  private static final int END_SIZE = 22;
+
+  @TempDir
+  Path dir;
+
+  /**
+   * The central directory is moved after a sparse gap of 2 GiB.
+   */
+  @Test
+  void fileTooBigToBeMapped() throws IOException {
+    final var big = "big".repeat(FileChannelZipSource.MAX_READ_SIZE);
+    final var bytes = ByteBuffer.wrap(new ZipWriter().stored("small.txt", "small")
+                                                     .stored("big.txt", big)
+                                                     .deflated("deflated.txt", big)
+                                                     .toByteArray())
+                                .order(ByteOrder.LITTLE_ENDIAN);
+    final var end = bytes.capacity() - END_SIZE;
+    final var directoryOffset = bytes.getInt(end + 16);
+    final var newDirectoryOffset = 1L << 31;
+    bytes.putInt(end + 16, (int) newDirectoryOffset);
+    final var file = dir.resolve("big.zip");
+    try (var channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+        StandardOpenOption.SPARSE)) {
+      channel.write(bytes.slice(0, directoryOffset), 0);
+      channel.write(bytes.slice(directoryOffset, bytes.capacity() - directoryOffset), newDirectoryOffset);
+    }
+
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final var source = ZipSource.of(channel);
+      assertTrue(source.size() > Integer.MAX_VALUE);
+      assertFalse(source.slice(0, 30).isDirect(), "small slices are read");
+      assertTrue(source.slice(0, FileChannelZipSource.MAX_READ_SIZE + 1).isDirect(), "big slices are mapped");
+      assertEquals(0x04034b50, source.slice(0, 30).getInt(0));
+
+      final var archive = ZipArchive.read(source);
+      assertEquals("small", content(archive, "small.txt"));
+      assertEquals(big, content(archive, "big.txt"));
+      assertEquals(big, content(archive, "deflated.txt"));
+    }
+  }
+
+  private static String content(final ZipArchive archive, final String name) throws IOException {
+    try (var is = archive.getInputStream(archive.getEntry(name))) {
+      return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package com.github.glhez.jtools.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Write ZIP archives byte per byte, to produce what {@link java.util.zip.ZipOutputStream} does not write for small
+ * archives: ZIP64 END headers and extra fields, or a central directory in another order than the data.
+ *
+ * @author gael.lhez
+ */
+class ZipWriter {
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+  private final List<Entry> entries = new ArrayList<>();
+  private boolean zip64End;
+  private boolean zip64Extras;
+  private boolean reversedDirectory;
+
+  ZipWriter stored(final String name, final String content) {
+    entries.add(new Entry(name, content.getBytes(StandardCharsets.UTF_8), ZipEntry.STORED));
+    return this;
+  }
+
+  ZipWriter deflated(final String name, final String content) {
+    entries.add(new Entry(name, content.getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED));
+    return this;
+  }
+
+  /**
+   * Write a ZIP64 END header and its locator, the END header only containing {@link #ZIP64_MAGIC}.
+   */
+  ZipWriter zip64End() {
+    zip64End = true;
+    return this;
+  }
+
+  /**
+   * Store the sizes and offset of each entry in a ZIP64 extra field.
+   */
+  ZipWriter zip64Extras() {
+    zip64Extras = true;
+    return this;
+  }
+
+  /**
+   * Write the central directory in the reverse order of the data.
+   */
+  ZipWriter reversedDirectory() {
+    reversedDirectory = true;
+    return this;
+  }
+
+  byte[] toByteArray() {
+    final var out = new Output();
+    final List<Long> offsets = new ArrayList<>();
+    for (final var entry : entries) {
+      offsets.add((long) out.size());
+      out.int32(0x04034b50).int16(20).int16(0x800).int16(entry.method()).int32(0).int32(entry.crc());
+      out.int32(entry.data().length).int32(entry.content().length);
+      out.int16(entry.name().length).int16(0).bytes(entry.name()).bytes(entry.data());
+    }
+
+    final var directoryOffset = out.size();
+    final List<Integer> order = new ArrayList<>();
+    for (var i = 0; i < entries.size(); ++i) {
+      order.add(i);
+    }
+    if (reversedDirectory) {
+      Collections.reverse(order);
+    }
+    for (final var i : order) {
+      final var entry = entries.get(i);
+      out.int32(0x02014b50).int16(45).int16(zip64Extras ? 45 : 20).int16(0x800).int16(entry.method()).int32(0);
+      out.int32(entry.crc());
+      if (zip64Extras) {
+        out.int32(ZIP64_MAGIC).int32(ZIP64_MAGIC);
+      } else {
+        out.int32(entry.data().length).int32(entry.content().length);
+      }
+      out.int16(entry.name().length).int16(zip64Extras ? 4 + 3 * 8 : 0).int16(0).int16(0).int16(0).int32(0);
+      out.int32(zip64Extras ? ZIP64_MAGIC : offsets.get(i)).bytes(entry.name());
+      if (zip64Extras) {
+        // in the order of the fields: size, compressed size, offset.
+        out.int16(0x0001).int16(3 * 8);
+        out.int64(entry.content().length).int64(entry.data().length).int64(offsets.get(i));
+      }
+    }
+    final var directorySize = out.size() - directoryOffset;
+
+    if (zip64End) {
+      final var zip64EndOffset = out.size();
+      out.int32(0x06064b50).int64(44).int16(45).int16(45).int32(0).int32(0);
+      out.int64(entries.size()).int64(entries.size()).int64(directorySize).int64(directoryOffset);
+      out.int32(0x07064b50).int32(0).int64(zip64EndOffset).int32(1);
+      out.int32(0x06054b50).int16(0).int16(0).int16(0xFFFF).int16(0xFFFF);
+      out.int32(ZIP64_MAGIC).int32(ZIP64_MAGIC).int16(0);
+    } else {
+      out.int32(0x06054b50).int16(0).int16(0).int16(entries.size()).int16(entries.size());
+      out.int32(directorySize).int32(directoryOffset).int16(0);
+    }
+    return out.toByteArray();
+  }
+
+  private record Entry(byte[] name, byte[] content, int method, byte[] data, long crc) {
+    Entry(final String name, final byte[] content, final int method) {
+      this(name.getBytes(StandardCharsets.UTF_8), content, method,
+          method == ZipEntry.STORED ? content : deflate(content), crc(content));
+    }
+
+    private static long crc(final byte[] content) {
+      final var crc = new CRC32();
+      crc.update(content);
+      return crc.getValue();
+    }
+
+    private static byte[] deflate(final byte[] content) {
+      final var deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      try {
+        deflater.setInput(content);
+        deflater.finish();
+        final var bos = new ByteArrayOutputStream();
+        final var buffer = new byte[1024];
+        while (!deflater.finished()) {
+          bos.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return bos.toByteArray();
+      } finally {
+        deflater.end();
+      }
+    }
+  }
+
+  private static class Output extends ByteArrayOutputStream {
+    private final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    Output int16(final int value) {
+      return bytes(buffer.clear().putShort((short) value).array(), Short.BYTES);
+    }
+
+    Output int32(final long value) {
+      return bytes(buffer.clear().putInt((int) value).array(), Integer.BYTES);
+    }
+
+    Output int64(final long value) {
+      return bytes(buffer.clear().putLong(value).array(), Long.BYTES);
+    }
+
+    Output bytes(final byte[] bytes) {
+      return bytes(bytes, bytes.length);
+    }
+
+    private Output bytes(final byte[] bytes, final int length) {
+      write(bytes, 0, length);
+      return this;
+    }
+  }
+}